@@ -1,8 +1,13 @@
 package com.kibikalo.encodingservice;
 
-import com.kibikalo.encodingservice.service.EncodingService;
+import com.kibikalo.encodingservice.service.EncodingJobScheduler;
+import com.kibikalo.encodingservice.service.EncodingOffsetTracker;
+import com.kibikalo.encodingservice.service.JobIdempotencyStore;
 import com.kibikalo.shared.events.EncodingRequestedEvent;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
@@ -14,10 +19,13 @@ import lombok.extern.slf4j.Slf4j;
 @Slf4j
 public class KafkaEventListener {
 
-    private final EncodingService encodingService;
+    private final EncodingJobScheduler encodingJobScheduler;
+    private final JobIdempotencyStore idempotencyStore;
+    private final EncodingOffsetTracker offsetTracker;
 
     // Consume from the topic defined in application.yml
     @KafkaListener(
+            id = EncodingJobScheduler.LISTENER_ID, // Scheduler pauses/resumes this container and its retry containers
             topics = "${app.kafka.topic.encoding-requested}",
             groupId = "${spring.kafka.consumer.group-id}",
             // Ensure the deserializer knows the target type
@@ -25,26 +33,40 @@ public class KafkaEventListener {
                     "spring.json.value.default.type=com.kibikalo.shared.events.EncodingRequestedEvent" }
     )
     public void handleEncodingRequestedEvent(
-            @Payload EncodingRequestedEvent event
+            @Payload EncodingRequestedEvent event,
+            @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
+            @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
+            @Header(KafkaHeaders.OFFSET) long offset,
+            Acknowledgment acknowledgment // Manual ack mode, committed once the job is done
     ) {
         log.info(
                 "Received EncodingRequestedEvent for audioId: {}",
                 event.getAudioId()
         );
+        Runnable onFinished = offsetTracker.track(topic, partition, offset, acknowledgment);
+        if (!idempotencyStore.tryClaim(event)) {
+            log.info(
+                    "EncodingRequestedEvent for audioId {} (attempt {}) is already queued or done, skipping",
+                    event.getAudioId(),
+                    event.getAttempt()
+            );
+            onFinished.run();
+            return;
+        }
         try {
-            // Delegate processing to the service layer
-            encodingService.processEncodingRequest(event);
+            // Hand off to the scheduler so the consumer thread is never blocked by FFmpeg
+            encodingJobScheduler.submit(event, onFinished);
         } catch (Exception e) {
-            // Service layer should handle publishing failure event,
-            // but log unexpected errors here.
+            idempotencyStore.release(event);
+            onFinished.run(); // The error handler moves the record on and commits it
             log.error(
-                    "Unexpected error during top-level handling of EncodingRequestedEvent for audioId {}: {}",
+                    "Unexpected error while scheduling EncodingRequestedEvent for audioId {}: {}",
                     event.getAudioId(),
                     e.getMessage(),
                     e
             );
-            // Depending on error handling strategy, might need to manually publish
-            // failure event here if the service couldn't.
+            // Rethrown so the record moves to the retry topics instead of being lost
+            throw new RuntimeException("Failed to schedule EncodingRequestedEvent", e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.kibikalo.encodingservice.config;
+
+import java.util.Collection;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import com.kibikalo.encodingservice.service.EncodingOffsetTracker;
+
+/**
+ * Boot sets a single {@link ConsumerAwareRebalanceListener} bean on the
+ * auto-configured listener container factory, which every listener of this
+ * service is created from.
+ */
+@Configuration
+public class KafkaConsumerConfig {
+
+    @Bean
+    public ConsumerAwareRebalanceListener encodingRebalanceListener(EncodingOffsetTracker offsetTracker) {
+        return new ConsumerAwareRebalanceListener() {
+
+            // After the container has committed what was already acknowledged
+            @Override
+            public void onPartitionsRevokedAfterCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                offsetTracker.forget(partitions);
+            }
+
+            @Override
+            public void onPartitionsLost(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                offsetTracker.forget(partitions);
+            }
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.kibikalo.encodingservice.config;
+
+import org.springframework.context.annotation.Configuration;
+
+import com.kibikalo.shared.kafka.RetryTopicConfigSupport;
+
+/**
+ * Retry topics with the shared defaults and no extra rules. Encoding itself
+ * runs off the consumer thread and reports failures on the failed topic, so
+ * this only covers handing requests to the scheduler.
+ */
+@Configuration
+public class KafkaRetryConfig extends RetryTopicConfigSupport {
+}
@@ -0,0 +1,25 @@
+package com.kibikalo.encodingservice.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.kibikalo.encodingservice.service.BacklogEstimator;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/v1/encoding")
+@RequiredArgsConstructor
+public class EncodingStatusController {
+
+    private final BacklogEstimator backlogEstimator;
+
+    // Scaling signal for autoscalers, also published as gauges. drainSeconds covers this instance's
+    // queue (at most queue-capacity jobs) and running jobs; groupMediaSeconds covers the Kafka lag
+    @GetMapping("/backlog")
+    public ResponseEntity<BacklogEstimator.BacklogEstimate> getBacklog() {
+        return ResponseEntity.ok(backlogEstimator.estimate());
+    }
+}
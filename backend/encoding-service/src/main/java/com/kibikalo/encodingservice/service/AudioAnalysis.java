@@ -0,0 +1,117 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kibikalo.shared.dto.SilenceRange;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * What the analysis outputs of an encode measured: loudness, silent ranges and
+ * the finest level of waveform peaks (one unsigned byte of linear amplitude per
+ * {@code samplesPerPeak} samples at {@code peaksSampleRate}).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioAnalysis {
+
+    // Neighbouring silences closer than this are one range split by a chunk boundary
+    private static final long SILENCE_JOIN_TOLERANCE_MILLIS = 50;
+
+    private Double integratedLoudnessLufs; // EBU R128 integrated loudness, null if not reported
+    private Double loudnessRangeLu; // EBU R128 LRA
+    private List<SilenceRange> silences;
+    private int peaksSampleRate;
+    private int samplesPerPeak;
+
+    @JsonIgnore // Written to the peaks file, not worth keeping in checkpoints
+    private byte[] peaks;
+
+    /**
+     * Drops the first {@code millis}, a chunk's pre-roll. Loudness still covers
+     * them, they are a small part of the chunk.
+     */
+    AudioAnalysis withoutLeading(long millis) {
+        if (millis <= 0) {
+            return this;
+        }
+        List<SilenceRange> kept = new ArrayList<>();
+        for (SilenceRange silence : silences) {
+            if (silence.getEndMillis() > millis) {
+                kept.add(new SilenceRange(
+                        Math.max(0, silence.getStartMillis() - millis),
+                        silence.getEndMillis() - millis
+                ));
+            }
+        }
+        byte[] keptPeaks = peaks;
+        if (peaks != null) {
+            int dropped = (int) Math.min(
+                    peaks.length,
+                    Math.round(millis * peaksSampleRate / (1000.0 * samplesPerPeak))
+            );
+            keptPeaks = Arrays.copyOfRange(peaks, dropped, peaks.length);
+        }
+        return new AudioAnalysis(
+                integratedLoudnessLufs,
+                loudnessRangeLu,
+                kept,
+                peaksSampleRate,
+                samplesPerPeak,
+                keptPeaks
+        );
+    }
+
+    /**
+     * Joins the analyses of consecutive chunks. Integrated loudness is combined as
+     * the duration-weighted energy mean, an approximation since R128 gating works on
+     * the whole programme; the loudness range can't be combined and is left empty.
+     *
+     * @param offsetsMillis start of each part on the full timeline
+     * @param lengthsMillis length of each part
+     */
+    static AudioAnalysis merge(List<AudioAnalysis> parts, List<Long> offsetsMillis, List<Long> lengthsMillis) {
+        ByteArrayOutputStream peaks = new ByteArrayOutputStream();
+        List<SilenceRange> silences = new ArrayList<>();
+        double weightedEnergy = 0;
+        double weight = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            AudioAnalysis part = parts.get(i);
+            long offset = offsetsMillis.get(i);
+            if (part.getPeaks() != null) {
+                peaks.writeBytes(part.getPeaks());
+            }
+            for (SilenceRange silence : part.getSilences()) {
+                SilenceRange last = silences.isEmpty() ? null : silences.get(silences.size() - 1);
+                long start = silence.getStartMillis() + offset;
+                long end = silence.getEndMillis() + offset;
+                if (last != null && start - last.getEndMillis() <= SILENCE_JOIN_TOLERANCE_MILLIS) {
+                    last.setEndMillis(end);
+                } else {
+                    silences.add(new SilenceRange(start, end));
+                }
+            }
+            Double loudness = part.getIntegratedLoudnessLufs();
+            if (loudness != null && Double.isFinite(loudness)) {
+                weightedEnergy += lengthsMillis.get(i) * Math.pow(10, loudness / 10);
+                weight += lengthsMillis.get(i);
+            }
+        }
+        AudioAnalysis first = parts.get(0);
+        return new AudioAnalysis(
+                weight > 0 ? 10 * Math.log10(weightedEnergy / weight) : null,
+                null,
+                silences,
+                first.getPeaksSampleRate(),
+                first.getSamplesPerPeak(),
+                peaks.toByteArray()
+        );
+    }
+}
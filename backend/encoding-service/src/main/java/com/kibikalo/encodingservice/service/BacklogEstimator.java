@@ -0,0 +1,132 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Estimates how long this instance needs to work off its backlog, as a scaling
+ * signal that accounts for job size (Kafka lag counts a 5 s clip like a 2 h file).
+ * Remaining media time (queued job durations plus what running FFmpeg processes
+ * have left) is divided by the instance's throughput: slots x cores per job x
+ * measured speed per core.
+ * <p>
+ * That drain time is per instance and only sees what it has taken off Kafka,
+ * which is at most {@code queue-capacity} queued jobs plus the running ones.
+ * Requests still waiting in Kafka show up in the group-wide figures instead:
+ * the consumer group's lag, weighted by the mean duration of the requests this
+ * instance has seen.
+ */
+@Service
+@RequiredArgsConstructor
+public class BacklogEstimator {
+
+    private final EncodingJobScheduler scheduler;
+    private final EncodingProgressMetrics progressMetrics;
+    private final KafkaLagMonitor lagMonitor;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.encoding.backlog.default-speed-per-core}")
+    private double defaultSpeedPerCore; // Used until an encode has finished on this instance
+
+    public record BacklogEstimate(
+            int queuedJobs,
+            int runningJobs,
+            int slots,
+            long queuedMediaSeconds,
+            double runningMediaSecondsLeft,
+            double speedPerCore,
+            boolean speedMeasured,
+            double drainSeconds, // This instance only, capped by its queue, see the class doc
+            Long groupLag, // Unfinished requests of the whole consumer group, null if unknown
+            double meanRequestSeconds,
+            Double groupMediaSeconds // groupLag x meanRequestSeconds
+    ) {
+    }
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("encoding.backlog.drain.time", this, estimator -> estimator.estimate().drainSeconds())
+                .description("Estimated time to encode everything queued and running on this instance, "
+                        + "not counting requests still in Kafka")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("encoding.backlog.media", this, estimator -> {
+                    BacklogEstimate estimate = estimator.estimate();
+                    return estimate.queuedMediaSeconds() + estimate.runningMediaSecondsLeft();
+                })
+                .description("Media time queued or still to be encoded by running jobs")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("encoding.backlog.group.media", this, estimator -> {
+                    Double groupMediaSeconds = estimator.estimate().groupMediaSeconds();
+                    return groupMediaSeconds != null ? groupMediaSeconds : Double.NaN;
+                })
+                .description("Consumer group lag on the requested topic times the mean request duration")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("encoding.slots.busy", scheduler, EncodingJobScheduler::getRunningJobs)
+                .description("Encoding slots running a job")
+                .register(meterRegistry);
+    }
+
+    public BacklogEstimate estimate() {
+        List<Double> runningLeft = new ArrayList<>();
+        for (FFmpegProgress progress : progressMetrics.getActiveJobs()) {
+            Long expected = progress.getExpectedDurationMillis();
+            if (expected != null && !progress.isEnded()) {
+                runningLeft.add(Math.max(0, expected - progress.getOutTimeMillis()) / 1000.0);
+            }
+        }
+        double measuredSpeed = progressMetrics.getRecentSpeed();
+        boolean speedMeasured = !Double.isNaN(measuredSpeed) && measuredSpeed > 0;
+        double speedPerCore = speedMeasured ? measuredSpeed / scheduler.getThreadsPerJob() : defaultSpeedPerCore;
+        long queuedMediaSeconds = scheduler.getWorkQueue().getPendingDurationSeconds();
+        Long groupLag = lagMonitor.getLag();
+        double meanRequestSeconds = scheduler.getWorkQueue().getMeanDurationSeconds();
+        return new BacklogEstimate(
+                scheduler.getWorkQueue().size(),
+                scheduler.getRunningJobs(),
+                scheduler.getSlots(),
+                queuedMediaSeconds,
+                runningLeft.stream().mapToDouble(Double::doubleValue).sum(),
+                speedPerCore,
+                speedMeasured,
+                drainSeconds(
+                        queuedMediaSeconds,
+                        runningLeft,
+                        scheduler.getSlots(),
+                        speedPerCore * scheduler.getThreadsPerJob()
+                ),
+                groupLag,
+                meanRequestSeconds,
+                groupLag != null ? groupLag * meanRequestSeconds : null
+        );
+    }
+
+    /**
+     * All slots share the remaining work, but no faster than the longest running
+     * process can finish on its own slot.
+     *
+     * @param speedPerSlot media seconds one slot encodes per wall second
+     */
+    static double drainSeconds(long queuedMediaSeconds, List<Double> runningSecondsLeft, int slots, double speedPerSlot) {
+        if (speedPerSlot <= 0 || slots <= 0) {
+            return Double.NaN;
+        }
+        double totalMediaSeconds = queuedMediaSeconds;
+        double longestRunning = 0;
+        for (double secondsLeft : runningSecondsLeft) {
+            totalMediaSeconds += secondsLeft;
+            longestRunning = Math.max(longestRunning, secondsLeft);
+        }
+        return Math.max(totalMediaSeconds / (slots * speedPerSlot), longestRunning / speedPerSlot);
+    }
+}
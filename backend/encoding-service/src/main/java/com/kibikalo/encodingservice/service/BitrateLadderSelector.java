@@ -0,0 +1,85 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Trims the configured bitrate ladder to what the source can actually fill.
+ * Re-encoding a 64 kbps MP3 at 128 kbps adds bytes, not information, so rungs
+ * above the source's quality limit are dropped. If no rung fits, a single rung
+ * capped at the limit is kept so every input still gets one rendition.
+ */
+@Service
+@Slf4j
+public class BitrateLadderSelector {
+
+    // Codecs whose bitrate says nothing about the quality ceiling
+    private static final Set<String> LOSSLESS_CODECS = Set.of("flac", "alac", "wavpack", "ape", "tta", "mlp", "truehd");
+
+    @Value("${app.encoding.ladder.adaptive}")
+    private boolean adaptive;
+
+    @Value("${app.encoding.ladder.mono-max-kbps}")
+    private int monoMaxKbps; // The configured ladder assumes stereo
+
+    @Value("${app.encoding.ladder.narrowband-sample-rate}")
+    private int narrowbandSampleRate; // At or below this, the source is treated as speech-grade
+
+    @Value("${app.encoding.ladder.narrowband-max-kbps}")
+    private int narrowbandMaxKbps;
+
+    /**
+     * @param configured ladder from configuration
+     * @param probe      may be null when probing failed, the full ladder is used then
+     */
+    public List<Integer> select(List<Integer> configured, SourceProbe probe) {
+        Integer limit = adaptive && probe != null ? qualityLimitKbps(probe) : null;
+        if (limit == null) {
+            return configured;
+        }
+
+        List<Integer> selected = new ArrayList<>();
+        for (Integer bitrate : configured) {
+            if (bitrate <= limit) {
+                selected.add(bitrate);
+            }
+        }
+        if (selected.isEmpty()) {
+            selected.add(limit);
+        }
+        if (!selected.equals(configured)) {
+            log.info("Source limits quality to {} kbps, ladder {} -> {}", limit, configured, selected);
+        }
+        return selected;
+    }
+
+    private Integer qualityLimitKbps(SourceProbe probe) {
+        Integer limit = null;
+        if (isLossy(probe.getCodecName()) && probe.getBitrateKbps() != null && probe.getBitrateKbps() > 0) {
+            limit = probe.getBitrateKbps();
+        }
+        if (probe.getChannels() != null && probe.getChannels() == 1) {
+            limit = min(limit, monoMaxKbps);
+        }
+        if (probe.getSampleRate() != null && probe.getSampleRate() <= narrowbandSampleRate) {
+            limit = min(limit, narrowbandMaxKbps);
+        }
+        return limit;
+    }
+
+    private boolean isLossy(String codecName) {
+        return codecName != null
+                && !codecName.startsWith("pcm_")
+                && !LOSSLESS_CODECS.contains(codecName);
+    }
+
+    private static Integer min(Integer limit, int cap) {
+        return limit == null ? cap : Math.min(limit, cap);
+    }
+}
@@ -0,0 +1,442 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Encodes long inputs as several segment-aligned time ranges in parallel and
+ * stitches them into one DASH presentation. Every chunk starts on a segment
+ * boundary and keeps its real timestamps (-output_ts_offset), so renumbering
+ * the segments is enough to get one continuous SegmentTemplate timeline.
+ * A fresh encoder starts with priming samples and no history, which would be
+ * audible at every boundary, so each chunk after the first also encodes a
+ * pre-roll of whole segments before its range and those segments are dropped.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ChunkedEncodingService {
+
+    private static final Pattern MEDIA_SEGMENT = Pattern.compile("chunk-stream(\\d+)-(\\d+)\\.m4s");
+    private static final Pattern INIT_SEGMENT = Pattern.compile("init-stream\\d+\\.m4s");
+    private static final Pattern PRESENTATION_DURATION = Pattern.compile("mediaPresentationDuration=\"[^\"]*\"");
+
+    private final FFmpegService ffmpegService;
+    private final JobCheckpointStore checkpointStore;
+
+    @Value("${app.encoding.chunked.enabled}")
+    private boolean enabled;
+
+    @Value("${app.encoding.chunked.min-duration-seconds}")
+    private long minDurationSeconds; // Shorter inputs are encoded in one pass
+
+    @Value("${app.encoding.chunked.chunk-duration-seconds}")
+    private long chunkDurationSeconds; // Rounded up to a whole number of segments
+
+    @Value("${app.encoding.chunked.pre-roll-segments}")
+    private int preRollSegments; // At least one, the encoder has settled by the end of it
+
+    @Value("${app.encoding.chunked.parallelism}")
+    private int configuredParallelism; // 0 = derive from what the scheduler slots leave over
+
+    @Value("${app.encoding.scheduler.slots}")
+    private int configuredSlots;
+
+    @Value("${app.ffmpeg.threads}")
+    private int ffmpegThreads;
+
+    // Shared by all jobs so concurrent chunked encodes can't run more than `parallelism` FFmpeg processes
+    private ExecutorService chunkExecutor;
+
+    @PostConstruct
+    void init() {
+        int parallelism = resolveParallelism();
+        chunkExecutor = Executors.newFixedThreadPool(parallelism, new CustomizableThreadFactory("encoding-chunk-"));
+        log.info("Chunked encoding runs up to {} chunks at a time", parallelism);
+    }
+
+    public boolean shouldChunk(Long durationMillis) {
+        return enabled
+                && durationMillis != null
+                && durationMillis >= minDurationSeconds * 1000;
+    }
+
+    /**
+     * @param spec           spec of the whole job, must use a local input file (chunks seek in it)
+     * @param durationMillis probed duration of the input
+     * @param checkpoint     chunks (except the first, which provides the init segments and
+     *                       manifest) whose segments it lists as uploaded are not encoded again;
+     *                       may be null
+     * @return failure if any chunk failed or the chunks don't line up, in which case
+     * nothing has been written to the output directory itself
+     */
+    public DashEncodingResult encodeInChunks(DashEncodingSpec spec, long durationMillis, JobCheckpoint checkpoint)
+            throws IOException {
+        if (spec.isPipedInput()) {
+            throw new IllegalArgumentException("Chunked encoding needs a seekable input file");
+        }
+        long segmentMillis = spec.getSegmentDuration() * 1000L;
+        long chunkMillis = ceilDiv(chunkDurationSeconds * 1000, segmentMillis) * segmentMillis;
+        int chunkCount = (int) ceilDiv(durationMillis, chunkMillis);
+        int segmentsPerChunk = (int) (chunkMillis / segmentMillis);
+        Path outputDirectory = spec.getOutputDirectory();
+        log.info(
+                "Encoding {} ms in {} chunks of {} ms ({} segments each)",
+                durationMillis,
+                chunkCount,
+                chunkMillis,
+                segmentsPerChunk
+        );
+
+        long startNanos = System.nanoTime();
+        int representations = spec.getBitratesKbps().size();
+        // Null entries are chunks restored from the checkpoint
+        List<Path> chunkDirectories = new ArrayList<>();
+        List<DashEncodingSpec> chunkSpecs = new ArrayList<>();
+        Map<String, Long> resumedSegments = new HashMap<>();
+        for (int i = 0; i < chunkCount; i++) {
+            long startMillis = i * chunkMillis;
+            long lengthMillis = Math.min(chunkMillis, durationMillis - startMillis);
+            int expectedSegments = (int) ceilDiv(lengthMillis, segmentMillis);
+            Map<String, Long> uploaded = i > 0
+                    ? uploadedChunkSegments(checkpoint, representations, i * segmentsPerChunk, expectedSegments)
+                    : null;
+            if (uploaded != null) {
+                log.info("Chunk {} of {} is already uploaded, not encoding it again", i, chunkCount);
+                resumedSegments.putAll(uploaded);
+                chunkDirectories.add(null);
+                chunkSpecs.add(null);
+                continue;
+            }
+            Path chunkDirectory = Files.createDirectory(outputDirectory.resolve(String.format("chunk-%03d", i)));
+            chunkDirectories.add(chunkDirectory);
+            long preRollMillis = preRollSegments(i, segmentsPerChunk) * segmentMillis;
+            DashEncodingSpec chunkSpec = spec.toBuilder()
+                    .outputDirectory(chunkDirectory)
+                    .startSeconds((startMillis - preRollMillis) / 1000.0)
+                    .durationSeconds((preRollMillis + lengthMillis) / 1000.0)
+                    .jobTag(String.format("%s-chunk-%03d", spec.getJobTag(), i))
+                    .expectedDurationMillis(preRollMillis + lengthMillis)
+                    .build();
+            chunkSpecs.add(chunkSpec);
+        }
+
+        // Counted down by every task that ran and every task cancelled before it started
+        CountDownLatch tasksEnded = new CountDownLatch((int) chunkSpecs.stream().filter(Objects::nonNull).count());
+        List<ChunkTask> tasks = new ArrayList<>();
+        List<Future<DashEncodingResult>> results = new ArrayList<>();
+        for (DashEncodingSpec chunkSpec : chunkSpecs) {
+            if (chunkSpec == null) {
+                results.add(null);
+                continue;
+            }
+            ChunkTask task = new ChunkTask(chunkSpec, tasksEnded);
+            tasks.add(task);
+            results.add(chunkExecutor.submit(task));
+        }
+
+        try {
+            // Wait for every chunk and check it produced exactly the segments its range implies
+            Long cpuMillis = 0L;
+            // Analysis only covers the whole track if no chunk was restored from the checkpoint
+            boolean analysisComplete = spec.isAnalyze() && resumedSegments.isEmpty();
+            List<AudioAnalysis> analyses = new ArrayList<>();
+            List<Long> offsetsMillis = new ArrayList<>();
+            List<Long> lengthsMillis = new ArrayList<>();
+            for (int i = 0; i < chunkCount; i++) {
+                if (results.get(i) == null) {
+                    continue;
+                }
+                DashEncodingResult result = results.get(i).get();
+                long lengthMillis = Math.min(chunkMillis, durationMillis - i * chunkMillis);
+                int preRoll = preRollSegments(i, segmentsPerChunk);
+                int expectedSegments = preRoll + (int) ceilDiv(lengthMillis, segmentMillis);
+                if (!result.isSuccess()) {
+                    log.warn("Chunk {} of {} failed to encode", i, chunkCount);
+                    return DashEncodingResult.failure();
+                }
+                if (!hasExpectedSegments(chunkDirectories.get(i), representations, expectedSegments)) {
+                    log.warn("Chunk {} did not produce {} segments per representation, cannot stitch", i, expectedSegments);
+                    return DashEncodingResult.failure();
+                }
+                cpuMillis = cpuMillis != null && result.getEncodeCpuMillis() != null
+                        ? cpuMillis + result.getEncodeCpuMillis()
+                        : null;
+                if (result.getAnalysis() != null) {
+                    analyses.add(result.getAnalysis().withoutLeading(preRoll * segmentMillis));
+                    offsetsMillis.add(i * chunkMillis);
+                    lengthsMillis.add(lengthMillis);
+                } else {
+                    analysisComplete = false;
+                }
+            }
+
+            // Stitch: init segments from the first chunk, renumbered media segments, manifest last
+            moveInitSegments(chunkDirectories.get(0), outputDirectory);
+            for (int i = 0; i < chunkCount; i++) {
+                if (chunkDirectories.get(i) == null) {
+                    continue;
+                }
+                moveMediaSegments(
+                        chunkDirectories.get(i),
+                        outputDirectory,
+                        preRollSegments(i, segmentsPerChunk),
+                        i * segmentsPerChunk
+                );
+            }
+            writeStitchedManifest(
+                    chunkDirectories.get(0).resolve(spec.getManifestName()),
+                    outputDirectory.resolve(spec.getManifestName()),
+                    durationMillis
+            );
+            return DashEncodingResult.success(
+                    durationMillis,
+                    RenditionStatsCollector.collect(
+                            outputDirectory,
+                            resumedSegments,
+                            spec.getBitratesKbps(),
+                            durationMillis
+                    ),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos),
+                    cpuMillis,
+                    analysisComplete ? AudioAnalysis.merge(analyses, offsetsMillis, lengthsMillis) : null
+            );
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for chunk encodes", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Chunk encode crashed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            // Cancelling interrupts running chunks, which kill their FFmpeg process
+            for (ChunkTask task : tasks) {
+                task.skip();
+            }
+            for (Future<DashEncodingResult> future : results) {
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+            // A chunk still writing into its directory would race the delete
+            awaitUninterruptibly(tasksEnded);
+            for (Path chunkDirectory : chunkDirectories) {
+                if (chunkDirectory != null) {
+                    deleteDirectory(chunkDirectory);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the chunk's segments (final names) and sizes if every one of them is
+     * checkpointed and verified in MinIO, otherwise null
+     */
+    private Map<String, Long> uploadedChunkSegments(
+            JobCheckpoint checkpoint,
+            int representations,
+            int numberOffset,
+            int expectedSegments
+    ) {
+        if (checkpoint == null) {
+            return null;
+        }
+        Map<String, Long> segments = new HashMap<>();
+        for (int representation = 0; representation < representations; representation++) {
+            for (int number = numberOffset + 1; number <= numberOffset + expectedSegments; number++) {
+                String name = String.format("chunk-stream%d-%05d.m4s", representation, number);
+                Long size = checkpoint.getUploadedObjects().get(name);
+                if (size == null || !checkpointStore.isUploaded(checkpoint, name, size)) {
+                    return null;
+                }
+                segments.put(name, size);
+            }
+        }
+        return segments;
+    }
+
+    private boolean hasExpectedSegments(Path chunkDirectory, int representations, int expectedSegments) throws IOException {
+        int[] counts = new int[representations];
+        try (Stream<Path> files = Files.list(chunkDirectory)) {
+            files.map(path -> MEDIA_SEGMENT.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .forEach(matcher -> {
+                        int representation = Integer.parseInt(matcher.group(1));
+                        if (representation < counts.length) {
+                            counts[representation]++;
+                        }
+                    });
+        }
+        for (int count : counts) {
+            if (count != expectedSegments) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void moveInitSegments(Path chunkDirectory, Path outputDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(chunkDirectory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (INIT_SEGMENT.matcher(file.getFileName().toString()).matches()) {
+                    Files.move(file, outputDirectory.resolve(file.getFileName()), StandardCopyOption.ATOMIC_MOVE);
+                }
+            }
+        }
+    }
+
+    // Segments left over for the pre-roll are not moved, they go with the chunk directory
+    private int preRollSegments(int chunkIndex, int segmentsPerChunk) {
+        return chunkIndex == 0 ? 0 : Math.min(Math.max(1, preRollSegments), chunkIndex * segmentsPerChunk);
+    }
+
+    // Atomic renames, so the pipelined uploader only ever sees complete segments
+    private void moveMediaSegments(
+            Path chunkDirectory,
+            Path outputDirectory,
+            int preRoll,
+            int numberOffset
+    ) throws IOException {
+        List<Path> segments;
+        try (Stream<Path> files = Files.list(chunkDirectory)) {
+            segments = files.filter(path -> MEDIA_SEGMENT.matcher(path.getFileName().toString()).matches())
+                    .sorted()
+                    .toList();
+        }
+        for (Path segment : segments) {
+            Matcher matcher = MEDIA_SEGMENT.matcher(segment.getFileName().toString());
+            if (!matcher.matches()) {
+                continue;
+            }
+            int chunkNumber = Integer.parseInt(matcher.group(2));
+            if (chunkNumber <= preRoll) {
+                continue;
+            }
+            int number = chunkNumber - preRoll + numberOffset;
+            String target = String.format("chunk-stream%s-%05d.m4s", matcher.group(1), number);
+            Files.move(segment, outputDirectory.resolve(target), StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    // The first chunk's manifest already has the right template, only the length differs
+    private void writeStitchedManifest(Path chunkManifest, Path target, long durationMillis) throws IOException {
+        String manifest = Files.readString(chunkManifest, StandardCharsets.UTF_8);
+        String stitched = PRESENTATION_DURATION.matcher(manifest).replaceFirst(
+                "mediaPresentationDuration=\"" + Duration.ofMillis(durationMillis) + "\""
+        );
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.writeString(temp, stitched, StandardCharsets.UTF_8);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private void deleteDirectory(Path directory) {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(java.util.Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Failed to delete chunk file {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to clean up chunk directory {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private int resolveParallelism() {
+        if (configuredParallelism > 0) {
+            return configuredParallelism;
+        }
+        // The chunked job's own slot sits idle while its chunks run, plus any cores no slot covers
+        int threadsPerJob = EncodingJobScheduler.resolveThreadsPerJob(ffmpegThreads);
+        int slots = EncodingJobScheduler.resolveSlots(configuredSlots, threadsPerJob);
+        int freeCores = Runtime.getRuntime().availableProcessors() - (slots - 1) * threadsPerJob;
+        return Math.max(1, freeCores / threadsPerJob);
+    }
+
+    private static long ceilDiv(long dividend, long divisor) {
+        return (dividend + divisor - 1) / divisor;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        chunkExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs one chunk unless {@link #skip()} got there first, and counts down
+     * {@code ended} exactly once either way.
+     */
+    private class ChunkTask implements Callable<DashEncodingResult> {
+
+        private final DashEncodingSpec spec;
+        private final CountDownLatch ended;
+        private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+        ChunkTask(DashEncodingSpec spec, CountDownLatch ended) {
+            this.spec = spec;
+            this.ended = ended;
+        }
+
+        @Override
+        public DashEncodingResult call() {
+            if (!claimed.compareAndSet(false, true)) {
+                return DashEncodingResult.failure();
+            }
+            try {
+                return ffmpegService.runDashEncoding(spec);
+            } finally {
+                ended.countDown();
+            }
+        }
+
+        void skip() {
+            if (claimed.compareAndSet(false, true)) {
+                ended.countDown();
+            }
+        }
+    }
+}
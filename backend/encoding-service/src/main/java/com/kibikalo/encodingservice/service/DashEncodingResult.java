@@ -0,0 +1,56 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.List;
+
+import com.kibikalo.shared.dto.RenditionStats;
+
+import lombok.Getter;
+
+@Getter
+public class DashEncodingResult {
+    private final boolean success;
+    private final Long durationMillis; // Final FFmpeg out_time, null if not reported
+    private final List<RenditionStats> renditions; // Measured from the output directory
+    private final long encodeWallMillis;
+    private final Long encodeCpuMillis; // Null if the platform doesn't report process CPU time
+    private final AudioAnalysis analysis; // Null unless the spec asked for analysis
+
+    private DashEncodingResult(
+            boolean success,
+            Long durationMillis,
+            List<RenditionStats> renditions,
+            long encodeWallMillis,
+            Long encodeCpuMillis,
+            AudioAnalysis analysis
+    ) {
+        this.success = success;
+        this.durationMillis = durationMillis;
+        this.renditions = renditions;
+        this.encodeWallMillis = encodeWallMillis;
+        this.encodeCpuMillis = encodeCpuMillis;
+        this.analysis = analysis;
+    }
+
+    public static DashEncodingResult success(
+            Long durationMillis,
+            List<RenditionStats> renditions,
+            long encodeWallMillis,
+            Long encodeCpuMillis
+    ) {
+        return success(durationMillis, renditions, encodeWallMillis, encodeCpuMillis, null);
+    }
+
+    public static DashEncodingResult success(
+            Long durationMillis,
+            List<RenditionStats> renditions,
+            long encodeWallMillis,
+            Long encodeCpuMillis,
+            AudioAnalysis analysis
+    ) {
+        return new DashEncodingResult(true, durationMillis, renditions, encodeWallMillis, encodeCpuMillis, analysis);
+    }
+
+    public static DashEncodingResult failure() {
+        return new DashEncodingResult(false, null, List.of(), 0, null, null);
+    }
+}
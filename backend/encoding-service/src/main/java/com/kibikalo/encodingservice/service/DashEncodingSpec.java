@@ -0,0 +1,48 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Everything FFmpegService needs for one DASH encode. The input is either a
+ * local file or a stream piped into FFmpeg's stdin, exactly one must be set.
+ */
+@Getter
+@Builder(toBuilder = true)
+public class DashEncodingSpec {
+    private final Path inputFile;
+    private final InputStream inputStream;
+    private final Path outputDirectory;
+    private final String manifestName;
+    private final List<Integer> bitratesKbps;
+    private final int segmentDuration;
+    private final String codec;
+
+    // Optional time range for chunked encoding; output timestamps are shifted by
+    // startSeconds so chunks line up on one continuous timeline
+    private final Double startSeconds;
+    private final Double durationSeconds;
+
+    // Progressive mode: FFmpeg flushes segments early and rewrites a dynamic manifest
+    // after each one, the final manifest is static
+    private final boolean progressive;
+
+    // SegmentBase packaging: one fragmented MP4 per representation with a global sidx,
+    // players fetch segments by byte range. Not combinable with chunks or progressive mode
+    private final boolean singleFile;
+
+    // Also decode into the analysis filters (waveform peaks, loudness, silences) in the same run
+    private final boolean analyze;
+
+    // Only used for progress reporting: tags the job's meters and scales the percentage
+    private final String jobTag;
+    private final Long expectedDurationMillis;
+
+    public boolean isPipedInput() {
+        return inputStream != null;
+    }
+}
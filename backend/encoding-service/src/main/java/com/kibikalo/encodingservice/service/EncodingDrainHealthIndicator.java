@@ -0,0 +1,33 @@
+package com.kibikalo.encodingservice.service;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Reports OUT_OF_SERVICE while the instance drains, so orchestrators stop
+ * routing to it and wait for the running jobs instead of killing it.
+ * Shows up as "encodingDrain" in /actuator/health.
+ */
+@Component
+@RequiredArgsConstructor
+public class EncodingDrainHealthIndicator implements HealthIndicator {
+
+    private final EncodingDrainLifecycle drainLifecycle;
+    private final EncodingJobScheduler scheduler;
+    private final EncodingOffsetTracker offsetTracker;
+
+    @Override
+    public Health health() {
+        Health.Builder builder = drainLifecycle.isDraining() ? Health.outOfService() : Health.up();
+        builder.withDetail("runningJobs", scheduler.getRunningJobs())
+                .withDetail("queuedJobs", scheduler.getWorkQueue().size())
+                .withDetail("uncommittedRecords", offsetTracker.getPendingCount());
+        if (drainLifecycle.isDraining()) {
+            builder.withDetail("drainDeadline", drainLifecycle.getDrainDeadline().toString());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,86 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.stereotype.Service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lets running encodes finish when the instance shuts down. Stops before the
+ * Kafka listener containers (higher phase): the listener is paused, queued jobs
+ * are left alone and running jobs get up to the grace period. Their offsets are
+ * acknowledged as they finish and committed when the containers stop right
+ * after; queued and unfinished jobs stay uncommitted and are redelivered.
+ * The web server stops later, so health keeps reporting the drain.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EncodingDrainLifecycle implements SmartLifecycle {
+
+    // Stopped before the listener containers, which commit pending acks when they stop
+    private static final int PHASE = AbstractMessageListenerContainer.DEFAULT_PHASE + 50;
+
+    private final EncodingJobScheduler scheduler;
+
+    @Value("${app.encoding.drain.grace-period-seconds}")
+    private long gracePeriodSeconds; // Keep below spring.lifecycle.timeout-per-shutdown-phase
+
+    private volatile boolean running = false;
+
+    @Getter
+    private volatile Instant drainDeadline; // Set once draining has started
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        drainDeadline = Instant.now().plusSeconds(gracePeriodSeconds);
+        log.info(
+                "Draining: {} running encoding jobs get up to {} s, {} queued jobs are left for redelivery",
+                scheduler.getRunningJobs(),
+                gracePeriodSeconds,
+                scheduler.getWorkQueue().size()
+        );
+        scheduler.beginDrain();
+        try {
+            if (scheduler.awaitRunningJobs(Duration.ofSeconds(gracePeriodSeconds))) {
+                log.info("Drained, all running encoding jobs finished");
+            } else {
+                log.warn(
+                        "Grace period over with {} encoding jobs still running, they will be redelivered",
+                        scheduler.getRunningJobs()
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while draining encoding jobs");
+        } finally {
+            running = false;
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    public boolean isDraining() {
+        return drainDeadline != null;
+    }
+}
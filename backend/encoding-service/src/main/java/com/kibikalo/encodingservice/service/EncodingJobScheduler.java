@@ -0,0 +1,316 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs encoding jobs on a fixed number of slots. Accepted requests wait in an
+ * {@link EncodingWorkQueue}, which decides the order (high-priority lane, fair
+ * share per uploader, shortest job first); each slot takes the next job as soon
+ * as it is free. Backpressure goes to the Kafka listeners of the requested
+ * topic: once the queue holds {@code queueCapacity} jobs their partitions are
+ * paused (the consumers keep polling, so no rebalance), and resumed when the
+ * queue drains below that.
+ * A job that finds no workspace gives its slot back and is queued again after
+ * {@code workspaceRetrySeconds}, still unacknowledged; after a restart Kafka
+ * redelivers it.
+ * On shutdown {@link #beginDrain()} stops handing out queued jobs while the
+ * running ones finish.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EncodingJobScheduler {
+
+    public static final String LISTENER_ID = "encodingRequestedListener";
+
+    private final EncodingService encodingService;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Value("${app.kafka.topic.encoding-requested}")
+    private String encodingRequestedTopic; // Also matches topics derived from it, <topic>-*
+
+    @Value("${app.encoding.scheduler.slots}")
+    private int configuredSlots; // 0 = derive from available cores
+
+    @Value("${app.ffmpeg.threads}")
+    private int ffmpegThreads;
+
+    @Value("${app.encoding.scheduler.queue-capacity}")
+    private int queueCapacity; // Waiting jobs to choose from; more means better ordering but later pauses
+
+    @Value("${app.encoding.scheduler.uploader-weights}")
+    private String uploaderWeightsConfig; // e.g. "podcasts=4,archive=1", unlisted uploaders get 1
+
+    @Value("${app.encoding.scheduler.aging-factor}")
+    private double agingFactor;
+
+    @Value("${app.encoding.scheduler.unknown-duration-seconds}")
+    private int unknownDurationSeconds;
+
+    @Value("${app.encoding.scheduler.workspace-retry-seconds}")
+    private long workspaceRetrySeconds;
+
+    @Getter
+    private int slots;
+
+    @Getter
+    private int threadsPerJob; // Cores one FFmpeg process uses
+
+    @Getter
+    private EncodingWorkQueue workQueue;
+
+    private ExecutorService workers;
+    private ScheduledExecutorService retryTimer; // Queues deferred jobs again
+
+    private boolean listenerPaused = false;
+    private volatile boolean draining = false;
+
+    // Called once a job's outcome is published (by identity, equal events may be queued twice)
+    private final Map<EncodingRequestedEvent, Runnable> completionCallbacks = new IdentityHashMap<>();
+
+    private final Object runningLock = new Object();
+    private int runningJobs = 0;
+
+    @PostConstruct
+    void init() {
+        threadsPerJob = resolveThreadsPerJob(ffmpegThreads);
+        slots = resolveSlots(configuredSlots, threadsPerJob);
+        workQueue = new EncodingWorkQueue(
+                parseUploaderWeights(uploaderWeightsConfig),
+                agingFactor,
+                unknownDurationSeconds,
+                Clock.systemUTC()
+        );
+        workers = Executors.newFixedThreadPool(slots, new CustomizableThreadFactory("encoding-worker-"));
+        for (int i = 0; i < slots; i++) {
+            workers.execute(this::workerLoop);
+        }
+        retryTimer = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("encoding-retry-"));
+        log.info(
+                "Encoding scheduler started with {} slots ({} cores, {} FFmpeg threads per job), queue capacity {}",
+                slots,
+                Runtime.getRuntime().availableProcessors(),
+                ffmpegThreads,
+                queueCapacity
+        );
+    }
+
+    public void submit(EncodingRequestedEvent event) {
+        submit(event, null);
+    }
+
+    /**
+     * @param onFinished run after the job has finished (successfully or not), not run
+     *                   for jobs still queued at shutdown; may be null
+     */
+    public void submit(EncodingRequestedEvent event, Runnable onFinished) {
+        if (onFinished != null) {
+            synchronized (completionCallbacks) {
+                completionCallbacks.put(event, onFinished);
+            }
+        }
+        workQueue.add(event);
+        updateBackpressure();
+    }
+
+    /**
+     * Pauses the listener for good and stops starting queued jobs. Running jobs
+     * carry on, see {@link #awaitRunningJobs(Duration)}.
+     */
+    public synchronized void beginDrain() {
+        if (draining) {
+            return;
+        }
+        draining = true;
+        if (!listenerPaused) {
+            setListenerPaused(true);
+        }
+        workQueue.close();
+    }
+
+    /**
+     * Waits until no job is running or the timeout passes.
+     *
+     * @return true if every running job finished
+     */
+    public boolean awaitRunningJobs(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (runningLock) {
+            while (runningJobs > 0) {
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000;
+                if (remainingMillis <= 0) {
+                    return false;
+                }
+                runningLock.wait(remainingMillis);
+            }
+            return true;
+        }
+    }
+
+    public int getRunningJobs() {
+        synchronized (runningLock) {
+            return runningJobs;
+        }
+    }
+
+    private void workerLoop() {
+        try {
+            EncodingRequestedEvent event;
+            while ((event = workQueue.take()) != null) {
+                updateBackpressure();
+                runJob(event);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runJob(EncodingRequestedEvent event) {
+        synchronized (runningLock) {
+            runningJobs++;
+        }
+        Runnable onFinished;
+        synchronized (completionCallbacks) {
+            onFinished = completionCallbacks.remove(event);
+        }
+        try {
+            if (!encodingService.processEncodingRequest(event)) {
+                defer(event, onFinished);
+                return;
+            }
+            if (onFinished != null) {
+                onFinished.run();
+            }
+        } catch (Exception e) {
+            // processEncodingRequest publishes its own failure event, this is a last resort
+            log.error(
+                    "Unexpected error in encoding worker for audioId {}: {}",
+                    event.getAudioId(),
+                    e.getMessage(),
+                    e
+            );
+            if (onFinished != null) {
+                onFinished.run(); // No outcome was published, but running it again would fail the same way
+            }
+        } finally {
+            synchronized (runningLock) {
+                runningJobs--;
+                runningLock.notifyAll();
+            }
+        }
+    }
+
+    // The offset stays unacknowledged and the claim held, so only this instance runs it meanwhile
+    private void defer(EncodingRequestedEvent event, Runnable onFinished) {
+        if (draining || Thread.currentThread().isInterrupted()) {
+            log.info("Leaving deferred job {} for redelivery, shutting down", event.getAudioId());
+            return;
+        }
+        log.info("Queueing {} again in {} s", event.getAudioId(), workspaceRetrySeconds);
+        retryTimer.schedule(() -> submit(event, onFinished), workspaceRetrySeconds, TimeUnit.SECONDS);
+    }
+
+    private synchronized void updateBackpressure() {
+        if (draining) {
+            return; // Stays paused until the container stops
+        }
+        boolean full = workQueue.size() >= Math.max(1, queueCapacity);
+        if (full != listenerPaused) {
+            setListenerPaused(full);
+        }
+    }
+
+    private void setListenerPaused(boolean pause) {
+        List<MessageListenerContainer> containers = encodingRequestedContainers();
+        if (containers.isEmpty()) {
+            log.warn("No listener containers for '{}' found, cannot apply backpressure", encodingRequestedTopic);
+            return;
+        }
+        for (MessageListenerContainer container : containers) {
+            if (pause) {
+                container.pause();
+            } else {
+                container.resume();
+            }
+        }
+        if (pause) {
+            log.info("{} encoding jobs queued, pausing {} listener(s)", workQueue.size(), containers.size());
+        } else {
+            log.info("Encoding queue has room, resuming {} listener(s)", containers.size());
+        }
+        listenerPaused = pause;
+    }
+
+    // Every container feeding the scheduler, not only the one registered as LISTENER_ID
+    private List<MessageListenerContainer> encodingRequestedContainers() {
+        List<MessageListenerContainer> containers = new ArrayList<>();
+        for (MessageListenerContainer container : listenerRegistry.getListenerContainers()) {
+            String[] topics = container.getContainerProperties().getTopics();
+            if (topics != null && Arrays.stream(topics).anyMatch(this::isEncodingRequestedTopic)) {
+                containers.add(container);
+            }
+        }
+        return containers;
+    }
+
+    private boolean isEncodingRequestedTopic(String topic) {
+        return topic.equals(encodingRequestedTopic) || topic.startsWith(encodingRequestedTopic + "-");
+    }
+
+    // Static so ChunkedEncodingService can size its pool from the same settings
+    static int resolveThreadsPerJob(int ffmpegThreads) {
+        // -threads 0 lets FFmpeg use every core, so give each job the whole machine
+        return ffmpegThreads > 0 ? ffmpegThreads : Runtime.getRuntime().availableProcessors();
+    }
+
+    static int resolveSlots(int configuredSlots, int threadsPerJob) {
+        if (configuredSlots > 0) {
+            return configuredSlots;
+        }
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / threadsPerJob);
+    }
+
+    private Map<String, Integer> parseUploaderWeights(String config) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String entry : config.split(",")) {
+            String[] parts = entry.split("=");
+            if (parts.length == 2) {
+                weights.put(parts[0].trim(), Integer.parseInt(parts[1].trim()));
+            }
+        }
+        return weights;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        log.info("Shutting down encoding scheduler, {} queued jobs are left for redelivery", workQueue.size());
+        // Running jobs finish, idle workers wake up and exit
+        workQueue.close();
+        workers.shutdown();
+        retryTimer.shutdownNow();
+    }
+}
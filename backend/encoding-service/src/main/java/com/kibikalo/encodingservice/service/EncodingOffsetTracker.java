@@ -0,0 +1,100 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Service;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Commits encoding requests once their job is done instead of when they are
+ * handed to the scheduler. Jobs finish out of order, so a finished record is
+ * only acknowledged when every earlier record of its partition has finished
+ * too. Records still queued or running when the instance goes away are not
+ * committed and get redelivered. The same goes for partitions revoked in a
+ * rebalance, see {@link #forget(Collection)}.
+ */
+@Service
+@Slf4j
+public class EncodingOffsetTracker {
+
+    private final Map<TopicPartition, TreeMap<Long, PendingRecord>> partitions = new HashMap<>();
+    private int pendingCount = 0;
+
+    /**
+     * @return marks the record as done, may be called more than once
+     */
+    public synchronized Runnable track(String topic, int partition, long offset, Acknowledgment acknowledgment) {
+        TopicPartition topicPartition = new TopicPartition(topic, partition);
+        PendingRecord record = new PendingRecord(acknowledgment);
+        PendingRecord previous = partitions.computeIfAbsent(topicPartition, key -> new TreeMap<>()).put(offset, record);
+        if (previous == null) {
+            pendingCount++; // A retried delivery replaces the record of the failed one
+        }
+        AtomicBoolean completed = new AtomicBoolean(false);
+        return () -> {
+            if (completed.compareAndSet(false, true)) {
+                complete(topicPartition, offset, record);
+            }
+        };
+    }
+
+    /**
+     * Drops the pending records of partitions this consumer no longer owns. Their
+     * jobs may still finish, but the new owner redelivers from the last commit and
+     * an acknowledgment from here would commit for a partition we don't hold.
+     */
+    public synchronized void forget(Collection<TopicPartition> revoked) {
+        for (TopicPartition topicPartition : revoked) {
+            TreeMap<Long, PendingRecord> pending = partitions.remove(topicPartition);
+            if (pending != null) {
+                pendingCount -= pending.size();
+                log.info("Dropped {} unacknowledged records of revoked partition {}", pending.size(), topicPartition);
+            }
+        }
+    }
+
+    /**
+     * Records received but not acknowledged yet, queued and running jobs included.
+     */
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    private synchronized void complete(TopicPartition topicPartition, long offset, PendingRecord record) {
+        TreeMap<Long, PendingRecord> pending = partitions.get(topicPartition);
+        if (pending == null || pending.get(offset) != record) {
+            return; // Forgotten, possibly redelivered and tracked again since
+        }
+        record.done = true;
+        // Acknowledging the last record of the finished prefix commits all of it
+        Map.Entry<Long, PendingRecord> last = null;
+        while (!pending.isEmpty() && pending.firstEntry().getValue().done) {
+            last = pending.pollFirstEntry();
+            pendingCount--;
+        }
+        if (pending.isEmpty()) {
+            partitions.remove(topicPartition);
+        }
+        if (last != null) {
+            // Queued for the consumer thread, which commits on its next poll
+            last.getValue().acknowledgment.acknowledge();
+            log.debug("Acknowledged {} up to offset {}", topicPartition, last.getKey());
+        }
+    }
+
+    private static final class PendingRecord {
+        private final Acknowledgment acknowledgment;
+        private boolean done = false;
+
+        private PendingRecord(Acknowledgment acknowledgment) {
+            this.acknowledgment = acknowledgment;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Publishes FFmpeg progress as Micrometer meters. While a process runs it has
+ * gauges tagged with its job; they are removed when it exits so finished jobs
+ * don't pile up as stale time series. The final speed and bitrate of every
+ * process go into histograms.
+ */
+@Service
+@RequiredArgsConstructor
+public class EncodingProgressMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<FFmpegProgress, List<Gauge>> activeJobs = new ConcurrentHashMap<>();
+    private DistributionSummary speedSummary;
+    private DistributionSummary bitrateSummary;
+
+    // Exponentially smoothed speed of finished runs, NaN until the first one
+    private static final double SPEED_SMOOTHING = 0.2;
+    private volatile double recentSpeed = Double.NaN;
+
+    @PostConstruct
+    void init() {
+        speedSummary = DistributionSummary.builder("encoding.ffmpeg.speed")
+                .description("Encode speed factor (media time / wall time) of finished FFmpeg runs")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        bitrateSummary = DistributionSummary.builder("encoding.ffmpeg.bitrate")
+                .description("Total output bitrate of finished FFmpeg runs")
+                .baseUnit("kbit/s")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public FFmpegProgress start(String jobTag, Long expectedDurationMillis, long timelineOffsetMillis) {
+        FFmpegProgress progress = new FFmpegProgress(jobTag, expectedDurationMillis, timelineOffsetMillis);
+        Tags tags = Tags.of("job", jobTag);
+        List<Gauge> gauges = List.of(
+                Gauge.builder("encoding.job.out.time", progress, p -> p.getOutTimeMillis() / 1000.0)
+                        .description("Media time encoded so far")
+                        .baseUnit("seconds")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("encoding.job.speed", progress, FFmpegProgress::getSpeed)
+                        .description("Current encode speed factor")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("encoding.job.bitrate", progress, FFmpegProgress::getBitrateKbps)
+                        .description("Current total output bitrate")
+                        .baseUnit("kbit/s")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("encoding.job.progress", progress, FFmpegProgress::getPercentDone)
+                        .description("Share of the probed duration encoded so far")
+                        .baseUnit("percent")
+                        .tags(tags)
+                        .register(meterRegistry)
+        );
+        activeJobs.put(progress, gauges);
+        return progress;
+    }
+
+    /**
+     * @param succeeded only successful runs are recorded in the histograms, a
+     *                  killed process would skew them towards zero
+     */
+    public void finish(FFmpegProgress progress, boolean succeeded) {
+        List<Gauge> gauges = activeJobs.remove(progress);
+        if (gauges != null) {
+            gauges.forEach(meterRegistry::remove);
+        }
+        if (succeeded) {
+            if (!Double.isNaN(progress.getSpeed())) {
+                speedSummary.record(progress.getSpeed());
+                updateRecentSpeed(progress.getSpeed());
+            }
+            if (!Double.isNaN(progress.getBitrateKbps())) {
+                bitrateSummary.record(progress.getBitrateKbps());
+            }
+        }
+    }
+
+    public Collection<FFmpegProgress> getActiveJobs() {
+        return List.copyOf(activeJobs.keySet());
+    }
+
+    /**
+     * Smoothed speed factor (media time / wall time) of recently finished FFmpeg
+     * runs, NaN if none has finished yet.
+     */
+    public double getRecentSpeed() {
+        return recentSpeed;
+    }
+
+    private synchronized void updateRecentSpeed(double speed) {
+        recentSpeed = Double.isNaN(recentSpeed)
+                ? speed
+                : SPEED_SMOOTHING * speed + (1 - SPEED_SMOOTHING) * recentSpeed;
+    }
+}
@@ -2,11 +2,15 @@ package com.kibikalo.encodingservice.service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -14,15 +18,17 @@ import io.minio.StatObjectArgs;
 import io.minio.StatObjectResponse;
 import com.kibikalo.shared.events.EncodingFailedEvent;
 import com.kibikalo.shared.events.EncodingRequestedEvent;
+import com.kibikalo.shared.events.EncodingStreamableEvent;
 import com.kibikalo.shared.events.EncodingSucceededEvent;
 import io.minio.GetObjectArgs;
+import io.minio.GetPresignedObjectUrlArgs;
+import io.minio.http.Method;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import io.minio.MinioClient;
-import io.minio.UploadObjectArgs;
 import io.minio.errors.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +40,14 @@ public class EncodingService {
 
     private final MinioClient minioClient;
     private final FFmpegService ffmpegService;
+    private final SegmentUploadService segmentUploadService;
+    private final MediaProbeService mediaProbeService;
+    private final ChunkedEncodingService chunkedEncodingService;
+    private final BitrateLadderSelector bitrateLadderSelector;
+    private final JobCheckpointStore checkpointStore;
+    private final WorkspaceManager workspaceManager;
+    private final JobIdempotencyStore idempotencyStore;
+    private final RangedDownloadService rangedDownloadService;
     private final KafkaTemplate<String, Object> kafkaTemplate; // Use Object for multiple event types
 
     @Value("${app.minio.bucket.raw}")
@@ -48,6 +62,9 @@ public class EncodingService {
     @Value("${app.kafka.topic.encoding-failed}")
     private String failedTopic;
 
+    @Value("${app.kafka.topic.encoding-streamable}")
+    private String streamableTopic;
+
     @Value("${app.encoding.bitrates-kbps}")
     private String bitratesConfig; // Comma-separated e.g., "64,128"
 
@@ -57,7 +74,36 @@ public class EncodingService {
     @Value("${app.encoding.codec}")
     private String targetCodec;
 
-    public void processEncodingRequest(EncodingRequestedEvent event) {
+    @Value("${app.encoding.ingest.streaming-enabled}")
+    private boolean streamingIngestEnabled;
+
+    @Value("${app.encoding.progressive.enabled}")
+    private boolean progressiveEnabled; // Publish a playable dynamic manifest while encoding
+
+    @Value("${app.encoding.single-file}")
+    private boolean singleFile; // One SegmentBase file per representation instead of segment objects
+
+    @Value("${app.encoding.analysis.enabled}")
+    private boolean analysisEnabled; // Waveform peaks, loudness and silences from the encoding pass
+
+    @Value("${app.encoding.analysis.peaks-levels}")
+    private int peaksLevels;
+
+    @Value("${app.encoding.analysis.peaks-zoom-factor}")
+    private int peaksZoomFactor; // Each peaks level is this many times coarser than the one before
+
+    // Containers FFmpeg may need to seek in (MP4 with the moov atom after mdat)
+    private static final Set<String> SEEKABLE_EXTENSIONS = Set.of("mp4", "m4a", "m4b", "mov", "3gp");
+    private static final int MP4_MAX_BOXES_TO_SCAN = 8;
+    private static final int PROBE_URL_EXPIRY_MINUTES = 15;
+
+    /**
+     * Encodes the raw object and publishes the outcome.
+     *
+     * @return false if the job could not start for lack of workspace; nothing was
+     *         published and the request is not marked finished, so it can run again
+     */
+    public boolean processEncodingRequest(EncodingRequestedEvent event) {
         String audioId = event.getAudioId();
         String rawFilePath = event.getRawFilePath();
         log.info(
@@ -66,9 +112,13 @@ public class EncodingService {
                 rawFilePath
         );
 
+        WorkspaceManager.Workspace workspace = null;
         Path tempInputFile = null;
         Path tempOutputDir = null;
+        SegmentUploadSession uploadSession = null;
         StatObjectResponse rawFileStats = null;
+        JobCheckpoint checkpoint = null;
+        boolean deferred = false;
 
         try {
             // --- Get Raw File Stats from MinIO ---
@@ -88,75 +138,144 @@ public class EncodingService {
             }
             // ---------------------------------------
 
-            // 1. Create temporary local directories/files
-            tempOutputDir = Files.createTempDirectory("encode-out-" + audioId + "-");
-            // Extract original filename to use for temp file (optional)
-            String originalFileName = extractFileName(rawFilePath);
-            tempInputFile = tempOutputDir.resolve(originalFileName); // Place input inside output dir temporarily
-
+            // 1. Reserve scratch space for the job, waits while other jobs hold the quota
+            try {
+                workspace = workspaceManager.acquire(audioId, rawFileStats.size());
+            } catch (WorkspaceManager.WorkspaceUnavailableException | InterruptedException e) {
+                // Disk pressure or shutdown, not a problem with this track: hand it back unfinished
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                log.warn("No workspace for audioId {}, deferring the job: {}", audioId, e.getMessage());
+                deferred = true;
+                return false;
+            }
+            tempOutputDir = workspace.getDirectory();
             log.debug(
                     "Created temp output dir: {}",
                     tempOutputDir.toAbsolutePath()
             );
-            log.debug(
-                    "Temporary input file path: {}",
-                    tempInputFile.toAbsolutePath()
-            );
 
-            // 2. Download raw file from MinIO
-            log.info("Downloading {} from bucket {}", rawFilePath, rawBucket);
-            downloadFromMinio(rawBucket, rawFilePath, tempInputFile);
-            log.info("Downloaded raw file to {}", tempInputFile);
+            // Probe up front (over a presigned URL, no download) to decide how to encode
+            SourceProbe sourceProbe = probeSource(rawFilePath);
+            Long sourceDurationMillis = sourceProbe != null ? sourceProbe.getDurationMillis() : null;
 
-            // 3. Perform DASH encoding using FFmpeg
-            List<Integer> bitrates = parseBitrates(bitratesConfig);
+            // Only encode the rungs the source can fill
+            List<Integer> bitrates = bitrateLadderSelector.select(parseBitrates(bitratesConfig), sourceProbe);
             String manifestName = "manifest.mpd"; // Standard name
-
-            boolean encodingSuccess = ffmpegService.runDashEncoding(
-                    tempInputFile,
-                    tempOutputDir,
-                    manifestName,
-                    bitrates,
-                    segmentDuration,
-                    targetCodec
+            DashEncodingSpec.DashEncodingSpecBuilder specBuilder = DashEncodingSpec.builder()
+                    .outputDirectory(tempOutputDir)
+                    .manifestName(manifestName)
+                    .bitratesKbps(bitrates)
+                    .segmentDuration(segmentDuration)
+                    .codec(targetCodec)
+                    .singleFile(singleFile)
+                    .analyze(analysisEnabled);
+            // Stitching works on segment files, a single file per representation can't be split up
+            boolean chunked = !singleFile && chunkedEncodingService.shouldChunk(sourceDurationMillis);
+            // Chunks only produce a manifest when stitched at the end, so they can't stream early;
+            // a single file's sidx index is only written once encoding is done
+            boolean progressive = progressiveEnabled && !chunked && !singleFile;
+            specBuilder.jobTag(audioId).expectedDurationMillis(sourceDurationMillis).progressive(progressive);
+            Runnable onFirstManifest = progressive ? () -> publishStreamable(audioId, manifestName) : null;
+
+            // A redelivered request picks up the checkpoint of the previous attempt
+            String outputKey = String.join(
+                    "|",
+                    targetCodec,
+                    String.valueOf(segmentDuration),
+                    bitrates.toString(),
+                    chunked ? "chunked" : "single",
+                    singleFile ? "single-file" : "segments"
             );
+            checkpoint = checkpointStore.resume(audioId, rawFileStats.etag(), outputKey);
+            if (checkpoint != null && checkpoint.isCompleted() && isManifestUploaded(checkpoint, manifestName)) {
+                // Crashed between uploading the manifest and publishing, only the event is missing
+                log.info("Output of {} is complete according to its checkpoint, publishing without encoding", audioId);
+                String peaksPath = checkpoint.getUploadedObjects().containsKey(PeaksFile.FILE_NAME)
+                        ? audioId + "/" + PeaksFile.FILE_NAME
+                        : null;
+                publishSuccess(audioId, manifestName, peaksPath, checkpoint.toResult(), bitrates, rawFileStats, sourceProbe);
+                markPublished(checkpoint);
+                return true;
+            }
+
+            DashEncodingResult encodingResult;
+            if (!chunked && streamingIngestEnabled && !requiresSeekableInput(rawFilePath, rawFileStats.contentType())) {
+                // 2+3. Pipe the raw object straight into FFmpeg, no temp copy
+                log.info("Streaming {} from bucket {} into FFmpeg stdin", rawFilePath, rawBucket);
+                uploadSession = segmentUploadService.startSession(
+                        audioId, tempOutputDir, manifestName, null, progressive, onFirstManifest, checkpoint
+                );
+                try (InputStream rawStream = openRawStream(rawFilePath)) {
+                    encodingResult = ffmpegService.runDashEncoding(
+                            specBuilder.inputStream(rawStream).build()
+                    );
+                }
+            } else {
+                // Extract original filename to use for temp file (optional)
+                String originalFileName = extractFileName(rawFilePath);
+                tempInputFile = tempOutputDir.resolve(originalFileName); // Place input inside output dir temporarily
+                log.debug(
+                        "Temporary input file path: {}",
+                        tempInputFile.toAbsolutePath()
+                );
+
+                // 2. Download raw file from MinIO
+                log.info("Downloading {} from bucket {}", rawFilePath, rawBucket);
+                rangedDownloadService.download(
+                        rawBucket, rawFilePath, rawFileStats.size(), rawFileStats.etag(), tempInputFile
+                );
+                log.info("Downloaded raw file to {}", tempInputFile);
+
+                // 3. Perform DASH encoding using FFmpeg, segments are uploaded as they complete
+                uploadSession = segmentUploadService.startSession(
+                        audioId, tempOutputDir, manifestName, tempInputFile, progressive, onFirstManifest, checkpoint
+                );
+                DashEncodingSpec spec = specBuilder.inputFile(tempInputFile).build();
+                if (chunked) {
+                    encodingResult = chunkedEncodingService.encodeInChunks(spec, sourceDurationMillis, checkpoint);
+                    if (!encodingResult.isSuccess()) {
+                        // Nothing was stitched into the output dir, so a plain encode can start clean
+                        log.warn("Chunked encoding failed for {}, falling back to a single pass", audioId);
+                        encodingResult = ffmpegService.runDashEncoding(spec);
+                    }
+                } else {
+                    encodingResult = ffmpegService.runDashEncoding(spec);
+                }
+            }
 
-            if (!encodingSuccess) {
+            if (!encodingResult.isSuccess()) {
                 throw new RuntimeException("FFmpeg encoding failed.");
             }
 
             log.info("FFmpeg encoding completed successfully for {}", audioId);
 
-            // 4. Upload processed files (manifest + segments) to MinIO
-            // String minioUploadPrefix = "processed-audio/" + relativeBaseDir; // REMOVE THIS
-            // Pass only the temp dir, bucket, and file to exclude
-            uploadDirectoryToMinio(tempOutputDir, processedBucket, tempInputFile); // REMOVE prefix argument
+            // Peaks go up with the remaining files, so they are in place before the manifest
+            String peaksPath = writePeaksFile(tempOutputDir, encodingResult.getAnalysis())
+                    ? audioId + "/" + PeaksFile.FILE_NAME
+                    : null;
+
+            // 4. Upload the remaining segments, then the manifest
+            uploadSession.finish();
             log.info(
-                    "Uploaded encoded files to MinIO bucket '{}'", // Update log message
+                    "Uploaded encoded files to MinIO bucket '{}'",
                     processedBucket
             );
 
-            // 5. Publish Success Event (Ensure relative paths are correct)
-            String relativeBaseDir = audioId + "/"; // Make sure this is correct
-            String relativeManifestPath = relativeBaseDir + manifestName;
-            EncodingSucceededEvent successEvent = new EncodingSucceededEvent(
-                    audioId,
-                    relativeManifestPath, // Send relative path
-                    relativeBaseDir, // Base path for segments
-                    ffmpegService.getLastDurationMillis(), // Get duration parsed by FFmpegService
-                    bitrates,
-                    targetCodec,
-                    Instant.now(),
-                    rawFileStats.size(),
-                    rawFileStats.contentType()
-            );
-            publishEvent(successTopic, audioId, successEvent);
-            log.info(
-                    "Published EncodingSucceededEvent for audioId: {}",
-                    audioId
-            );
+            if (checkpoint != null) {
+                checkpoint.complete(encodingResult);
+                checkpointStore.save(checkpoint);
+            }
+
+            // 5. Publish Success Event
+            publishSuccess(audioId, manifestName, peaksPath, encodingResult, bitrates, rawFileStats, sourceProbe);
+            markPublished(checkpoint);
 
         } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
             log.error(
                     "Encoding process failed for audioId {}: {}",
                     audioId,
@@ -173,113 +292,193 @@ public class EncodingService {
             log.info("Published EncodingFailedEvent for audioId: {}", audioId);
 
         } finally {
-            // 7. Cleanup temporary files/directories
+            // 7. Stop any pipelined upload, then cleanup temporary files/directories
+            if (uploadSession != null) {
+                uploadSession.close();
+            }
             cleanupTempFiles(tempInputFile, tempOutputDir);
+            if (workspace != null) {
+                workspace.close();
+            }
+            // Success or failure has been published, redeliveries of this request are acknowledged
+            if (!deferred) {
+                idempotencyStore.markFinished(event);
+            }
         }
+        return true;
     }
 
-    private void downloadFromMinio(
-            String bucket,
-            String objectName,
-            Path destination
-    ) throws IOException {
-        try (
-                InputStream stream = minioClient.getObject(
-                        GetObjectArgs.builder()             // <-- Use GetObjectArgs
-                                .bucket(bucket)
-                                .object(objectName)
-                                .build()
-                )
-        ) {
-            Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING);
+    // Probe failures are not fatal, the job just loses the probe-driven optimisations
+    private SourceProbe probeSource(String objectName) {
+        try {
+            String url = minioClient.getPresignedObjectUrl(
+                    GetPresignedObjectUrlArgs.builder()
+                            .method(Method.GET)
+                            .bucket(rawBucket)
+                            .object(objectName)
+                            .expiry(PROBE_URL_EXPIRY_MINUTES, TimeUnit.MINUTES)
+                            .build()
+            );
+            return mediaProbeService.probe(url);
+        } catch (Exception e) {
+            log.warn("Could not probe {}: {}", objectName, e.getMessage());
+            return null;
+        }
+    }
+
+    private InputStream openRawStream(String objectName) throws IOException {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(rawBucket)
+                            .object(objectName)
+                            .build()
+            );
         } catch (MinioException | java.security.InvalidKeyException | java.security.NoSuchAlgorithmException e) {
             throw new IOException(
-                    "Failed to download " + objectName + " from MinIO: " + e.getMessage(),
+                    "Failed to open " + objectName + " from MinIO: " + e.getMessage(),
                     e
             );
         }
     }
 
-    private void uploadDirectoryToMinio(
-            Path sourceDirectory,
-            String bucket,
-//            String fullUploadPrefix,
-            Path tempInputFileToExclude
-    ) throws IOException {
-        log.info("Starting upload from temp directory: {}", sourceDirectory);
-        List<Path> filesFound;
-        try (Stream<Path> stream = Files.walk(sourceDirectory, 1)) {
-            filesFound = stream.filter(Files::isRegularFile)
-                    .collect(Collectors.toList());
-            log.debug("Files found in temp directory: {}", filesFound);
-
-            List<Path> filesToUpload = filesFound.stream()
-                    .filter(path -> !path.equals(tempInputFileToExclude))
-                    .collect(Collectors.toList());
-            log.info("Files to upload (after excluding input): {}", filesToUpload);
-
-            if (filesToUpload.isEmpty()) {
-                log.warn("No output files found in {} to upload (excluding input file). FFmpeg might have failed silently.", sourceDirectory);
-                return;
-            }
+    /**
+     * MP4-family inputs can only be piped when they are "fast start" (moov before mdat),
+     * otherwise FFmpeg has to seek to the end and needs a real file.
+     */
+    private boolean requiresSeekableInput(String objectName, String contentType) {
+        String extension = StringUtils.getFilenameExtension(objectName);
+        boolean mp4Family = (extension != null && SEEKABLE_EXTENSIONS.contains(extension.toLowerCase()))
+                || (contentType != null && (contentType.contains("mp4")
+                || contentType.contains("m4a")
+                || contentType.contains("quicktime")));
+        if (!mp4Family) {
+            return false;
+        }
+        try {
+            boolean fastStart = isMp4FastStart(objectName);
+            log.info("MP4 input {} is {}fast start", objectName, fastStart ? "" : "not ");
+            return !fastStart;
+        } catch (Exception e) {
+            log.warn("Could not inspect MP4 box layout of {}, using temp file: {}", objectName, e.getMessage());
+            return true;
+        }
+    }
 
-            // --- Determine the RELATIVE base path using the audioId from the directory name ---
-            // This assumes the temp dir name contains the audioId like "encode-out-<audioId>-..."
-            String tempDirName = sourceDirectory.getFileName().toString();
-            String audioId = extractAudioIdFromTempDir(tempDirName); // Need to implement this helper
-            if (audioId == null) {
-                throw new IOException("Could not extract audioId from temp directory name: " + tempDirName);
+    // Walks the top-level boxes with small ranged reads until moov or mdat shows up
+    private boolean isMp4FastStart(String objectName) throws Exception {
+        long offset = 0;
+        for (int i = 0; i < MP4_MAX_BOXES_TO_SCAN; i++) {
+            byte[] header;
+            try (InputStream stream = minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(rawBucket)
+                            .object(objectName)
+                            .offset(offset)
+                            .length(16L)
+                            .build()
+            )) {
+                header = stream.readNBytes(16);
             }
-            String relativeBaseDir = audioId + "/"; // e.g., "4ecb0d64.../"
-            // ---------------------------------------------------------------------------------
-
-            for (Path filePath : filesToUpload) {
-                // --- Construct the RELATIVE object name ---
-                String objectName = relativeBaseDir + filePath.getFileName().toString();
-                // ----------------------------------------
-                log.debug("--- UPLOAD DEBUG (Encoding) ---");
-                log.debug("Using Bucket Name: '{}'", bucket); // Log the bucket name value
-                log.debug("Using Object Key : '{}'", objectName); // Log the object key value
-                log.debug("Target Full Path (Expected): {}/{}", bucket, objectName);
-                log.debug("Attempting to upload {} to MinIO...", filePath.getFileName());
-                try {
-                    minioClient.uploadObject(
-                            UploadObjectArgs.builder()
-                                    .bucket(bucket) // Specify the target bucket
-                                    .object(objectName) // Use the RELATIVE object key
-                                    .filename(filePath.toAbsolutePath().toString())
-                                    // Add Cache-Control headers here if needed
-                                    .build()
-                    );
-                    log.info("Successfully uploaded {}", objectName);
-                } catch (Exception e) {
-                    log.error("Failed to upload {} to MinIO: {}", filePath.getFileName(), e.getMessage(), e);
-                    throw new IOException("Failed to upload " + filePath.getFileName() + " to MinIO: " + e.getMessage(), e);
-                }
+            if (header.length < 8) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(header);
+            long boxSize = Integer.toUnsignedLong(buffer.getInt());
+            String boxType = new String(header, 4, 4, StandardCharsets.US_ASCII);
+            if ("moov".equals(boxType)) {
+                return true;
+            }
+            if ("mdat".equals(boxType)) {
+                return false;
+            }
+            if (boxSize == 1 && header.length >= 16) {
+                boxSize = buffer.getLong(8); // 64-bit largesize
             }
+            if (boxSize < 8) {
+                return false; // size 0 ("until EOF") or corrupt, don't guess
+            }
+            offset += boxSize;
+        }
+        return false;
+    }
+
+    // A missing peaks file only costs the waveform, the encode itself is fine
+    private boolean writePeaksFile(Path outputDir, AudioAnalysis analysis) {
+        if (analysis == null || analysis.getPeaks() == null || analysis.getPeaks().length == 0) {
+            return false;
+        }
+        try {
+            PeaksFile.write(outputDir.resolve(PeaksFile.FILE_NAME), analysis, peaksLevels, peaksZoomFactor);
+            return true;
         } catch (IOException e) {
-            log.error("IOException during directory walk or upload preparation for {}: {}", sourceDirectory, e.getMessage(), e);
-            throw e; // Re-throw
+            log.warn("Could not write peaks file: {}", e.getMessage());
+            return false;
         }
-        log.info("Finished uploading from temp directory: {}", sourceDirectory); // Log finish
     }
 
-    // --- Add Helper Method to Extract audioId ---
-    private String extractAudioIdFromTempDir(String dirName) {
-        // Assuming format "encode-out-<audioId>-<randomNumber>"
-        if (dirName != null && dirName.startsWith("encode-out-")) {
-            String[] parts = dirName.split("-");
-            if (parts.length >= 4) { // Need at least encode, out, audioId, number
-                // Basic UUID check (adjust if your ID format is different)
-                if (parts[2].length() == 8 && parts[3].length() == 4 && parts[4].length() == 4 && parts[5].length() == 4 && parts[6].length() == 12) {
-                    return parts[2] + "-" + parts[3] + "-" + parts[4] + "-" + parts[5] + "-" + parts[6];
-                }
-            }
+    private void publishSuccess(
+            String audioId,
+            String manifestName,
+            String peaksPath,
+            DashEncodingResult encodingResult,
+            List<Integer> bitrates,
+            StatObjectResponse rawFileStats,
+            SourceProbe sourceProbe
+    ) {
+        String relativeBaseDir = audioId + "/"; // Make sure this is correct
+        String relativeManifestPath = relativeBaseDir + manifestName;
+        AudioAnalysis analysis = encodingResult.getAnalysis();
+        EncodingSucceededEvent successEvent = new EncodingSucceededEvent(
+                audioId,
+                relativeManifestPath, // Send relative path
+                relativeBaseDir, // Base path for segments
+                encodingResult.getDurationMillis(), // Duration parsed for this job
+                bitrates,
+                targetCodec,
+                Instant.now(),
+                rawFileStats.size(),
+                rawFileStats.contentType(),
+                encodingResult.getRenditions(),
+                encodingResult.getEncodeWallMillis(),
+                encodingResult.getEncodeCpuMillis(),
+                sourceProbe != null ? sourceProbe.getCodecName() : null,
+                sourceProbe != null ? sourceProbe.getBitrateKbps() : null,
+                sourceProbe != null ? sourceProbe.getChannels() : null,
+                sourceProbe != null ? sourceProbe.getSampleRate() : null,
+                peaksPath,
+                analysis != null ? analysis.getIntegratedLoudnessLufs() : null,
+                analysis != null ? analysis.getLoudnessRangeLu() : null,
+                analysis != null ? analysis.getSilences() : null
+        );
+        publishEvent(successTopic, audioId, successEvent);
+        log.info(
+                "Published EncodingSucceededEvent for audioId: {}",
+                audioId
+        );
+    }
+
+    private boolean isManifestUploaded(JobCheckpoint checkpoint, String manifestName) {
+        Long size = checkpoint.getUploadedObjects().get(manifestName);
+        return size != null && checkpointStore.isUploaded(checkpoint, manifestName, size);
+    }
+
+    private void markPublished(JobCheckpoint checkpoint) {
+        if (checkpoint != null) {
+            checkpoint.setStage(JobCheckpoint.Stage.PUBLISHED);
+            checkpointStore.save(checkpoint);
         }
-        log.warn("Could not extract valid audioId from temp directory name: {}", dirName);
-        return null; // Or throw an exception
     }
-    // -----------------------------------------
+
+    private void publishStreamable(String audioId, String manifestName) {
+        String relativeBaseDir = audioId + "/";
+        publishEvent(
+                streamableTopic,
+                audioId,
+                new EncodingStreamableEvent(audioId, relativeBaseDir + manifestName, relativeBaseDir, Instant.now())
+        );
+        log.info("Published EncodingStreamableEvent for audioId: {}", audioId);
+    }
 
     private void publishEvent(String topic, String key, Object event) {
         try {
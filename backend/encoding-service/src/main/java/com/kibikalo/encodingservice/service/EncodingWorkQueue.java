@@ -0,0 +1,194 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+import com.kibikalo.shared.model.EncodingPriority;
+
+/**
+ * In-memory ordering of accepted encoding requests.
+ * <ul>
+ *   <li>HIGH priority requests have their own FIFO lane that is always served first.</li>
+ *   <li>NORMAL requests are grouped per uploader. Uploaders take turns by start-time
+ *   fair queuing: each one is charged its job's duration divided by its weight, and
+ *   the one that has been charged least goes next, so a batch of long uploads from
+ *   one uploader can't hold everyone else back.</li>
+ *   <li>Within an uploader the shortest job goes first. Waiting jobs age, every second
+ *   of waiting shortens their effective duration, so long jobs can't starve.</li>
+ * </ul>
+ * Thread-safe; {@link #take()} blocks until work is available.
+ */
+public class EncodingWorkQueue {
+
+    private static final String ANONYMOUS_UPLOADER = "";
+
+    private final Map<String, Integer> uploaderWeights;
+    private final double agingFactor;
+    private final int unknownDurationSeconds;
+    private final Clock clock;
+
+    private final Queue<QueuedJob> highLane = new ArrayDeque<>();
+    private final Map<String, UploaderQueue> uploaders = new HashMap<>();
+    private int size = 0;
+    private long pendingDurationSeconds = 0;
+    private long addedJobs = 0;
+    private long addedDurationSeconds = 0; // Over every job ever added, for the mean request size
+    // Virtual start time of the last dispatched NORMAL job, where newly active uploaders start
+    private double systemVirtualTime = 0;
+    private boolean closed = false;
+
+    /**
+     * @param uploaderWeights        relative capacity shares, uploaders not listed get 1
+     * @param agingFactor            seconds of effective job duration removed per second waited
+     * @param unknownDurationSeconds size assumed for requests without a duration
+     */
+    public EncodingWorkQueue(
+            Map<String, Integer> uploaderWeights,
+            double agingFactor,
+            int unknownDurationSeconds,
+            Clock clock
+    ) {
+        this.uploaderWeights = Map.copyOf(uploaderWeights);
+        this.agingFactor = agingFactor;
+        this.unknownDurationSeconds = unknownDurationSeconds;
+        this.clock = clock;
+    }
+
+    public synchronized void add(EncodingRequestedEvent event) {
+        QueuedJob job = new QueuedJob(event, durationOf(event), clock.instant());
+        if (event.getPriority() == EncodingPriority.HIGH) {
+            highLane.add(job);
+        } else {
+            String uploader = event.getUploaderId() != null ? event.getUploaderId() : ANONYMOUS_UPLOADER;
+            UploaderQueue queue = uploaders.get(uploader);
+            if (queue == null) {
+                // Starts at the current virtual time, an idle uploader doesn't bank credit
+                queue = new UploaderQueue(uploader, systemVirtualTime);
+                uploaders.put(uploader, queue);
+            }
+            queue.jobs.add(job);
+        }
+        size++;
+        pendingDurationSeconds += job.durationSeconds;
+        addedJobs++;
+        addedDurationSeconds += job.durationSeconds;
+        notifyAll();
+    }
+
+    /**
+     * Removes the next job, waiting for one if the queue is empty.
+     *
+     * @return null once the queue is closed
+     */
+    public synchronized EncodingRequestedEvent take() throws InterruptedException {
+        while (size == 0 && !closed) {
+            wait();
+        }
+        return closed ? null : poll();
+    }
+
+    /**
+     * Stops handing out work; jobs still queued stay where they are.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Removes the next job, or returns null if there is none.
+     */
+    public synchronized EncodingRequestedEvent poll() {
+        if (size == 0) {
+            return null;
+        }
+        QueuedJob job = highLane.poll();
+        if (job == null) {
+            job = pollNormal();
+        }
+        size--;
+        pendingDurationSeconds -= job.durationSeconds;
+        return job.event;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Sum of the durations of all queued jobs, estimated where unknown.
+     */
+    public synchronized long getPendingDurationSeconds() {
+        return pendingDurationSeconds;
+    }
+
+    /**
+     * Mean duration of the jobs added so far, the assumed size of unknown ones before the first.
+     */
+    public synchronized double getMeanDurationSeconds() {
+        return addedJobs > 0 ? (double) addedDurationSeconds / addedJobs : unknownDurationSeconds;
+    }
+
+    private QueuedJob pollNormal() {
+        UploaderQueue next = null;
+        for (UploaderQueue queue : uploaders.values()) {
+            if (next == null || queue.virtualTime < next.virtualTime) {
+                next = queue;
+            }
+        }
+        QueuedJob job = removeShortest(next.jobs);
+        systemVirtualTime = next.virtualTime;
+        next.virtualTime += (double) job.durationSeconds / weightOf(next.uploader);
+        if (next.jobs.isEmpty()) {
+            uploaders.remove(next.uploader);
+        }
+        return job;
+    }
+
+    private QueuedJob removeShortest(List<QueuedJob> jobs) {
+        Instant now = clock.instant();
+        QueuedJob shortest = null;
+        double shortestScore = Double.MAX_VALUE;
+        for (QueuedJob job : jobs) {
+            double waitedSeconds = Duration.between(job.enqueuedAt, now).toMillis() / 1000.0;
+            double score = job.durationSeconds - agingFactor * waitedSeconds;
+            if (score < shortestScore) {
+                shortest = job;
+                shortestScore = score;
+            }
+        }
+        jobs.remove(shortest);
+        return shortest;
+    }
+
+    private int weightOf(String uploader) {
+        return Math.max(1, uploaderWeights.getOrDefault(uploader, 1));
+    }
+
+    private long durationOf(EncodingRequestedEvent event) {
+        Integer seconds = event.getDurationSeconds();
+        return seconds != null && seconds > 0 ? seconds : unknownDurationSeconds;
+    }
+
+    private record QueuedJob(EncodingRequestedEvent event, long durationSeconds, Instant enqueuedAt) {
+    }
+
+    private static final class UploaderQueue {
+        private final String uploader;
+        private final List<QueuedJob> jobs = new ArrayList<>();
+        private double virtualTime;
+
+        private UploaderQueue(String uploader, double virtualTime) {
+            this.uploader = uploader;
+            this.virtualTime = virtualTime;
+        }
+    }
+}
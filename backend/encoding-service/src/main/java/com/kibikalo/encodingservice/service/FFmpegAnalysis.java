@@ -0,0 +1,154 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.kibikalo.shared.dto.SilenceRange;
+
+/**
+ * Collects what the analysis filters of an encode log on stderr: one
+ * {@code lavfi.astats.Overall.Peak_level} per peak window (via ametadata),
+ * {@code silence_start}/{@code silence_end} from silencedetect and the ebur128
+ * summary printed when the filter graph closes. Fed from the stderr drain
+ * thread and read after it has been joined.
+ */
+class FFmpegAnalysis {
+
+    private static final String PEAK_LEVEL_KEY = "lavfi.astats.Overall.Peak_level=";
+    private static final String PEAK_FILTER = "Parsed_ametadata_";
+    private static final String SILENCE_START = "silence_start:";
+    private static final String SILENCE_END = "silence_end:";
+    // Lines of the ebur128 summary, in order; "LRA high:" is the last one without peak metering
+    private static final List<String> SUMMARY_FIELDS = List.of(
+            "Integrated loudness:", "I:", "Threshold:", "Loudness range:", "LRA:", "LRA low:", "LRA high:"
+    );
+    private static final String LAST_SUMMARY_FIELD = "LRA high:";
+
+    private final int peaksSampleRate;
+    private final int samplesPerPeak;
+
+    private final ByteArrayOutputStream peaks = new ByteArrayOutputStream();
+    private final List<SilenceRange> silences = new ArrayList<>();
+    private Long openSilenceStartMillis;
+    private boolean inLoudnessSummary = false;
+    private Double integratedLoudnessLufs;
+    private Double loudnessRangeLu;
+
+    FFmpegAnalysis(int peaksSampleRate, int samplesPerPeak) {
+        this.peaksSampleRate = peaksSampleRate;
+        this.samplesPerPeak = samplesPerPeak;
+    }
+
+    /**
+     * Applies one line of FFmpeg's stderr.
+     *
+     * @return true if the line belonged to the analysis and needn't be logged
+     */
+    boolean accept(String line) {
+        int peakLevel = line.indexOf(PEAK_LEVEL_KEY);
+        if (peakLevel >= 0) {
+            peaks.write(toPeakByte(line.substring(peakLevel + PEAK_LEVEL_KEY.length()).trim()));
+            return true;
+        }
+        if (line.contains(PEAK_FILTER)) {
+            return true; // frame/pts line ametadata prints before every value
+        }
+        int silenceStart = line.indexOf(SILENCE_START);
+        if (silenceStart >= 0) {
+            openSilenceStartMillis = parseMillis(firstToken(line, silenceStart + SILENCE_START.length()));
+            return true;
+        }
+        int silenceEnd = line.indexOf(SILENCE_END);
+        if (silenceEnd >= 0) {
+            Long endMillis = parseMillis(firstToken(line, silenceEnd + SILENCE_END.length()));
+            if (openSilenceStartMillis != null && endMillis != null) {
+                silences.add(new SilenceRange(openSilenceStartMillis, endMillis));
+            }
+            openSilenceStartMillis = null;
+            return true;
+        }
+        if (line.contains("ebur128") && line.contains("Summary:")) {
+            inLoudnessSummary = true;
+            return true;
+        }
+        return inLoudnessSummary && acceptSummaryLine(line.trim());
+    }
+
+    // Anything that isn't a summary field ends the summary and is logged as usual
+    private boolean acceptSummaryLine(String trimmed) {
+        if (trimmed.isEmpty()) {
+            return true;
+        }
+        if (SUMMARY_FIELDS.stream().noneMatch(trimmed::startsWith)) {
+            inLoudnessSummary = false;
+            return false;
+        }
+        if (trimmed.startsWith("I:")) {
+            integratedLoudnessLufs = parseLoudness(trimmed, "I:", "LUFS");
+        } else if (trimmed.startsWith("LRA:")) {
+            loudnessRangeLu = parseLoudness(trimmed, "LRA:", "LU");
+        } else if (trimmed.startsWith(LAST_SUMMARY_FIELD)) {
+            inLoudnessSummary = false;
+        }
+        return true;
+    }
+
+    /**
+     * @param durationMillis closes a silence still running at the end of the input,
+     *                       an open silence is dropped without it
+     */
+    AudioAnalysis toAnalysis(Long durationMillis) {
+        List<SilenceRange> ranges = new ArrayList<>(silences);
+        if (openSilenceStartMillis != null && durationMillis != null && durationMillis > openSilenceStartMillis) {
+            ranges.add(new SilenceRange(openSilenceStartMillis, durationMillis));
+        }
+        return new AudioAnalysis(
+                integratedLoudnessLufs,
+                loudnessRangeLu,
+                ranges,
+                peaksSampleRate,
+                samplesPerPeak,
+                peaks.toByteArray()
+        );
+    }
+
+    // dBFS to linear amplitude, quantised to one unsigned byte (0 = silence, 255 = full scale)
+    static int toPeakByte(String decibels) {
+        double db = parseDouble(decibels);
+        if (Double.isNaN(db)) {
+            return 0; // -inf for digital silence
+        }
+        double amplitude = Math.min(1.0, Math.pow(10, db / 20));
+        return (int) Math.round(amplitude * 255);
+    }
+
+    private static String firstToken(String line, int from) {
+        String rest = line.substring(from).trim();
+        int end = rest.indexOf(' ');
+        return end >= 0 ? rest.substring(0, end) : rest;
+    }
+
+    private static Long parseMillis(String seconds) {
+        double value = parseDouble(seconds);
+        return Double.isNaN(value) ? null : Math.max(0, Math.round(value * 1000));
+    }
+
+    // "I:         -16.2 LUFS"
+    private static Double parseLoudness(String line, String prefix, String unit) {
+        String value = line.substring(prefix.length()).trim();
+        if (value.endsWith(unit)) {
+            value = value.substring(0, value.length() - unit.length());
+        }
+        double parsed = parseDouble(value);
+        return Double.isFinite(parsed) ? parsed : null;
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
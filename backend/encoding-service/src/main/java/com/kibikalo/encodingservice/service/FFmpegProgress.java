@@ -0,0 +1,96 @@
+package com.kibikalo.encodingservice.service;
+
+import lombok.Getter;
+
+/**
+ * Latest state of one FFmpeg process, fed from its {@code -progress} output.
+ * FFmpeg writes one {@code key=value} per line and ends every block with
+ * {@code progress=continue} (or {@code progress=end} once done). Values are
+ * written by the reader thread and read by the meter registry, hence volatile.
+ */
+@Getter
+public class FFmpegProgress {
+
+    private final String jobTag;
+    private final Long expectedDurationMillis;
+    private final long timelineOffsetMillis;
+
+    private volatile long outTimeMillis = 0;
+    private volatile double speed = Double.NaN;
+    private volatile double bitrateKbps = Double.NaN;
+    private volatile boolean ended = false;
+
+    FFmpegProgress(String jobTag, Long expectedDurationMillis, long timelineOffsetMillis) {
+        this.jobTag = jobTag;
+        this.expectedDurationMillis = expectedDurationMillis;
+        this.timelineOffsetMillis = timelineOffsetMillis;
+    }
+
+    /**
+     * Applies one line of progress output.
+     *
+     * @return true if the line closed a progress block
+     */
+    boolean accept(String line) {
+        int separator = line.indexOf('=');
+        if (separator <= 0) {
+            return false;
+        }
+        String key = line.substring(0, separator).trim();
+        String value = line.substring(separator + 1).trim();
+        switch (key) {
+            case "out_time_us" -> {
+                long micros = parseLong(value);
+                if (micros >= 0) {
+                    // FFmpeg reports the output timeline, which -output_ts_offset shifts for chunks
+                    outTimeMillis = Math.max(0, micros / 1000 - timelineOffsetMillis);
+                }
+            }
+            case "speed" -> speed = parseDouble(stripSuffix(value, "x"));
+            case "bitrate" -> bitrateKbps = parseDouble(stripSuffix(value, "kbits/s"));
+            case "progress" -> {
+                ended = "end".equals(value);
+                return true;
+            }
+            default -> {
+                // frame, fps, total_size, dup_frames, ... are not interesting for audio
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Share of the expected duration encoded so far, in percent, or NaN when the
+     * duration wasn't probed.
+     */
+    public double getPercentDone() {
+        if (ended) {
+            return 100.0;
+        }
+        if (expectedDurationMillis == null || expectedDurationMillis <= 0) {
+            return Double.NaN;
+        }
+        return Math.min(100.0, outTimeMillis * 100.0 / expectedDurationMillis);
+    }
+
+    private static String stripSuffix(String value, String suffix) {
+        return value.endsWith(suffix) ? value.substring(0, value.length() - suffix.length()) : value;
+    }
+
+    // FFmpeg prints N/A before the first packet is muxed
+    private static long parseLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value.trim());
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
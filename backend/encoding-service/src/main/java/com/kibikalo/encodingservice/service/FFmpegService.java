@@ -2,47 +2,86 @@ package com.kibikalo.encodingservice.service;
 
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.nio.file.Path;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class FFmpegService {
 
+    private final EncodingProgressMetrics progressMetrics;
+
     @Value("${app.ffmpeg.path}")
     private String ffmpegPath;
 
-    private static final Pattern DURATION_PATTERN = Pattern.compile(
-            "Duration: (\\d{2}):(\\d{2}):(\\d{2})\\.(\\d{2})"
-    );
+    @Value("${app.ffmpeg.threads}")
+    private int ffmpegThreads; // Threads per FFmpeg process, used to size scheduler slots
 
-    @Getter
-    private Long lastDurationMillis = null;
+    @Value("${app.ffmpeg.timeout-minutes}")
+    private long timeoutMinutes; // Hard limit per FFmpeg process, must cover the longest allowed input
 
-    public boolean runDashEncoding(
-            Path inputFile,
-            Path outputDirectory,
-            String manifestName,
-            List<Integer> bitratesKbps,
-            int segmentDuration,
-            String codec
-    ) {
-        lastDurationMillis = null;
+    @Value("${app.encoding.ingest.pipe-buffer-bytes}")
+    private int pipeBufferBytes; // Chunk size used when feeding FFmpeg's stdin
+
+    @Value("${app.encoding.progressive.utc-timing-url:}")
+    private String utcTimingUrl; // Lets players sync their clock for the dynamic manifest, optional
+
+    @Value("${app.encoding.analysis.silence-threshold-db}")
+    private double silenceThresholdDb; // Quieter than this counts as silence
+
+    @Value("${app.encoding.analysis.silence-min-seconds}")
+    private double silenceMinSeconds; // Shorter gaps are not reported
+
+    @Value("${app.encoding.analysis.peaks-sample-rate}")
+    private int peaksSampleRate; // Peaks are measured on a mono downmix at this rate
+
+    @Value("${app.encoding.analysis.peaks-per-second}")
+    private int peaksPerSecond; // Resolution of the finest peaks level
+
+    private static final String STDIN_INPUT = "pipe:0";
+    private static final String STDOUT_OUTPUT = "pipe:1";
+
+    // Stderr lines kept for the error log when FFmpeg fails
+    private static final int STDERR_TAIL_LINES = 20;
+
+    public DashEncodingResult runDashEncoding(DashEncodingSpec spec) {
+        List<Integer> bitratesKbps = spec.getBitratesKbps();
         List<String> command = new ArrayList<>();
         command.add(ffmpegPath);
+        // Machine-readable key=value progress on stdout, stderr only carries diagnostics
+        command.add("-hide_banner");
+        command.add("-nostats");
+        command.add("-progress");
+        command.add(STDOUT_OUTPUT);
+        if (spec.getStartSeconds() != null) {
+            command.add("-ss");
+            command.add(formatSeconds(spec.getStartSeconds()));
+        }
+        if (spec.getDurationSeconds() != null) {
+            command.add("-t");
+            command.add(formatSeconds(spec.getDurationSeconds()));
+        }
         command.add("-i");
-        command.add(inputFile.toAbsolutePath().toString());
+        command.add(spec.isPipedInput()
+                ? STDIN_INPUT
+                : spec.getInputFile().toAbsolutePath().toString());
 
         // Map specific input audio stream (0:a:0) for EACH output
         for (int i = 0; i < bitratesKbps.size(); i++) {
@@ -56,24 +95,47 @@ public class FFmpegService {
             command.add("-b:a:" + i);
             command.add(bitratesKbps.get(i) + "k");
             command.add("-c:a:" + i);
-            command.add(codec); // Should be libopus based on config
+            command.add(spec.getCodec()); // Should be libopus based on config
         }
 
+        // Cap threads so concurrent jobs don't oversubscribe the cores
+        command.add("-threads");
+        command.add(String.valueOf(ffmpegThreads));
+
         // DASH specific options
         command.add("-f");
         command.add("dash");
         command.add("-seg_duration");
-        command.add(String.valueOf(segmentDuration));
+        command.add(String.valueOf(spec.getSegmentDuration()));
         command.add("-use_template");
-        command.add("1");
+        command.add(spec.isSingleFile() ? "0" : "1"); // A template would win over SegmentBase
         command.add("-use_timeline");
         command.add("0");
 
-        // Naming convention for segments (Java strings are fine here)
-        command.add("-init_seg_name");
-        command.add("init-stream$RepresentationID$.m4s"); // No extra quotes needed in Java code
-        command.add("-media_seg_name");
-        command.add("chunk-stream$RepresentationID$-$Number%05d$.m4s"); // No extra quotes needed
+        if (spec.isProgressive()) {
+            command.add("-streaming");
+            command.add("1");
+            if (!utcTimingUrl.isBlank()) {
+                command.add("-utc_timing_url");
+                command.add(utcTimingUrl);
+            }
+        }
+
+        if (spec.isSingleFile()) {
+            // One object per representation, indexed by a global sidx for byte-range requests
+            command.add("-single_file");
+            command.add("1");
+            command.add("-single_file_name");
+            command.add("single-stream$RepresentationID$.m4s"); // The processed bucket only serves *.m4s
+            command.add("-global_sidx");
+            command.add("1");
+        } else {
+            // Naming convention for segments (Java strings are fine here)
+            command.add("-init_seg_name");
+            command.add("init-stream$RepresentationID$.m4s"); // No extra quotes needed in Java code
+            command.add("-media_seg_name");
+            command.add("chunk-stream$RepresentationID$-$Number%05d$.m4s"); // No extra quotes needed
+        }
 
         // Force all mapped audio streams into ONE adaptation set
         command.add("-adaptation_sets");
@@ -83,11 +145,24 @@ public class FFmpegService {
         command.add("-strict");
         command.add("experimental"); // Or "-2"
 
+        // Keep a chunk's timestamps at its position in the full track
+        if (spec.getStartSeconds() != null) {
+            command.add("-output_ts_offset");
+            command.add(formatSeconds(spec.getStartSeconds()));
+        }
+
         // Output manifest file path
         command.add(
-                outputDirectory.resolve(manifestName).toAbsolutePath().toString()
+                spec.getOutputDirectory().resolve(spec.getManifestName()).toAbsolutePath().toString()
         );
 
+        FFmpegAnalysis analysis = null;
+        if (spec.isAnalyze()) {
+            int samplesPerPeak = Math.max(1, peaksSampleRate / peaksPerSecond);
+            analysis = new FFmpegAnalysis(peaksSampleRate, samplesPerPeak);
+            addAnalysisOutput(command, samplesPerPeak);
+        }
+
         // Log the command exactly as it will be executed
         log.info("Executing FFmpeg command list: {}", command);
         // Log the command joined for easier manual copy/paste if needed again
@@ -95,10 +170,47 @@ public class FFmpegService {
 
 
         ProcessBuilder processBuilder = new ProcessBuilder(command);
-        processBuilder.redirectErrorStream(true);
+        long timelineOffsetMillis = spec.getStartSeconds() != null
+                ? Math.round(spec.getStartSeconds() * 1000)
+                : 0;
+        FFmpegProgress progress = progressMetrics.start(
+                spec.getJobTag() != null ? spec.getJobTag() : spec.getOutputDirectory().getFileName().toString(),
+                spec.getExpectedDurationMillis(),
+                timelineOffsetMillis
+        );
+        boolean succeeded = false;
+        Process process = null;
 
         try {
-            Process process = processBuilder.start();
+            long startNanos = System.nanoTime();
+            process = processBuilder.start();
+            ProcessHandle processHandle = process.toHandle();
+            // CPU time is only readable while the process exists, so sample it per progress block
+            long cpuMillis = -1;
+
+            // Reading the output blocks until FFmpeg exits, so enforce the timeout from the side
+            AtomicBoolean timedOut = new AtomicBoolean(false);
+            Process started = process;
+            process.onExit()
+                    .orTimeout(timeoutMinutes, TimeUnit.MINUTES)
+                    .exceptionally(ex -> {
+                        timedOut.set(true);
+                        started.destroyForcibly();
+                        return null;
+                    });
+
+            // Feed stdin from the source stream, or close it straight away for file inputs
+            AtomicReference<IOException> feedError = new AtomicReference<>();
+            Thread stdinFeeder = null;
+            if (spec.isPipedInput()) {
+                stdinFeeder = startStdinFeeder(process, spec.getInputStream(), feedError);
+            } else {
+                process.getOutputStream().close();
+            }
+
+            // Both pipes must be drained or FFmpeg blocks once one of them fills up
+            Deque<String> stderrTail = new ArrayDeque<>();
+            Thread stderrDrain = startStderrDrain(process, stderrTail, analysis);
 
             try (
                     BufferedReader reader = new BufferedReader(
@@ -107,39 +219,169 @@ public class FFmpegService {
             ) {
                 String line;
                 while ((line = reader.readLine()) != null) {
-                    log.debug("FFmpeg output: {}", line);
-                    Matcher matcher = DURATION_PATTERN.matcher(line);
-                    if (matcher.find()) {
-                        long hours = Long.parseLong(matcher.group(1));
-                        long minutes = Long.parseLong(matcher.group(2));
-                        long seconds = Long.parseLong(matcher.group(3));
-                        long centiseconds = Long.parseLong(matcher.group(4));
-                        lastDurationMillis = TimeUnit.HOURS.toMillis(hours)
-                                + TimeUnit.MINUTES.toMillis(minutes)
-                                + TimeUnit.SECONDS.toMillis(seconds)
-                                + centiseconds * 10;
-                        log.info("Parsed duration: {} ms", lastDurationMillis);
+                    // A blocked read ignores interrupts, but -progress prints a block every half second
+                    if (Thread.currentThread().isInterrupted()) {
+                        throw new InterruptedException("FFmpeg run cancelled");
+                    }
+                    if (progress.accept(line)) {
+                        cpuMillis = Math.max(cpuMillis, sampleCpuMillis(processHandle));
+                        log.debug(
+                                "FFmpeg progress [{}]: out_time={} ms, speed={}x, bitrate={} kbit/s",
+                                progress.getJobTag(),
+                                progress.getOutTimeMillis(),
+                                progress.getSpeed(),
+                                progress.getBitrateKbps()
+                        );
                     }
                 }
             }
 
-            boolean exited = process.waitFor(5, TimeUnit.MINUTES);
-            if (!exited) {
-                log.error("FFmpeg process timed out!");
-                process.destroyForcibly();
-                return false;
+            process.waitFor();
+            long wallMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            stderrDrain.join();
+            if (timedOut.get()) {
+                log.error("FFmpeg process timed out after {} minutes!", timeoutMinutes);
+                return DashEncodingResult.failure();
+            }
+
+            if (stdinFeeder != null) {
+                stdinFeeder.join();
+                if (feedError.get() != null) {
+                    // A truncated input still encodes "successfully", so treat it as a failure
+                    log.error("Failed to feed input into FFmpeg: {}", feedError.get().getMessage());
+                    return DashEncodingResult.failure();
+                }
             }
 
             int exitCode = process.exitValue();
             log.info("FFmpeg process finished with exit code: {}", exitCode);
-            return exitCode == 0;
+            if (exitCode != 0) {
+                synchronized (stderrTail) {
+                    log.error("FFmpeg failed, last output:\n{}", String.join("\n", stderrTail));
+                }
+                return DashEncodingResult.failure();
+            }
+            succeeded = true;
+            // The final out_time is the encoded length, no need to parse FFmpeg's log for it
+            Long durationMillis = progress.isEnded() ? progress.getOutTimeMillis() : spec.getExpectedDurationMillis();
+            log.info("Encoded {} ms at {}x in {} ms wall, {} ms CPU", durationMillis, progress.getSpeed(), wallMillis, cpuMillis);
+            return DashEncodingResult.success(
+                    durationMillis,
+                    RenditionStatsCollector.collect(spec.getOutputDirectory(), bitratesKbps, durationMillis),
+                    wallMillis,
+                    cpuMillis >= 0 ? cpuMillis : null,
+                    analysis != null ? analysis.toAnalysis(durationMillis) : null
+            );
 
         } catch (IOException | InterruptedException e) {
             log.error("Error executing FFmpeg command: {}", e.getMessage(), e);
+            if (process != null) {
+                process.destroyForcibly(); // Nobody is left to drain its pipes or wait for it
+            }
             if (e instanceof InterruptedException) {
                 Thread.currentThread().interrupt();
             }
-            return false;
+            return DashEncodingResult.failure();
+        } finally {
+            progressMetrics.finish(progress, succeeded);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Second output of the same process: the decoded input is split into the
+     * loudness/silence chain and a mono peak meter that prints one peak level per
+     * window, both discarded by a null muxer. Results are read from stderr.
+     */
+    private void addAnalysisOutput(List<String> command, int samplesPerPeak) {
+        String filterGraph = String.format(
+                Locale.ROOT,
+                "[0:a:0]asplit=2[loudness][peaks];"
+                        // Per-frame ebur128 lines only show at verbose level, the summary is always logged
+                        + "[loudness]ebur128=framelog=verbose,silencedetect=noise=%.1fdB:duration=%.3f[analysis_loudness];"
+                        + "[peaks]aformat=channel_layouts=mono,aresample=%d,asetnsamples=n=%d:p=0,"
+                        + "astats=metadata=1:reset=1:measure_perchannel=none:measure_overall=Peak_level,"
+                        + "ametadata=mode=print:key=lavfi.astats.Overall.Peak_level[analysis_peaks]",
+                silenceThresholdDb,
+                silenceMinSeconds,
+                peaksSampleRate,
+                samplesPerPeak
+        );
+        command.add("-filter_complex");
+        command.add(filterGraph);
+        command.add("-map");
+        command.add("[analysis_loudness]");
+        command.add("-map");
+        command.add("[analysis_peaks]");
+        command.add("-f");
+        command.add("null");
+        command.add("-"); // The null muxer never opens its output, stdout stays for -progress
+    }
+
+    private long sampleCpuMillis(ProcessHandle processHandle) {
+        return processHandle.info().totalCpuDuration().map(Duration::toMillis).orElse(-1L);
+    }
+
+    private Thread startStderrDrain(Process process, Deque<String> tail, FFmpegAnalysis analysis) {
+        Thread drain = new Thread(() -> {
+            try (
+                    BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(process.getErrorStream())
+                    )
+            ) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (analysis != null && analysis.accept(line)) {
+                        continue; // One line per peak window, too many to log
+                    }
+                    log.debug("FFmpeg output: {}", line);
+                    synchronized (tail) {
+                        if (tail.size() == STDERR_TAIL_LINES) {
+                            tail.removeFirst();
+                        }
+                        tail.addLast(line);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Stopped reading FFmpeg stderr: {}", e.getMessage());
+            }
+        }, "ffmpeg-stderr-" + process.pid());
+        drain.setDaemon(true);
+        drain.start();
+        return drain;
+    }
+
+    private Thread startStdinFeeder(
+            Process process,
+            InputStream source,
+            AtomicReference<IOException> feedError
+    ) {
+        Thread feeder = new Thread(() -> {
+            // Fixed-size buffer keeps memory bounded; the OS pipe blocks us when FFmpeg lags
+            byte[] buffer = new byte[pipeBufferBytes];
+            long copied = 0;
+            try (OutputStream stdin = process.getOutputStream()) {
+                int read;
+                while ((read = source.read(buffer)) != -1) {
+                    stdin.write(buffer, 0, read);
+                    copied += read;
+                }
+                log.debug("Finished feeding {} bytes into FFmpeg stdin", copied);
+            } catch (IOException e) {
+                if (!process.isAlive()) {
+                    // FFmpeg exited early and closed the pipe, its exit code tells the story
+                    log.debug("FFmpeg closed stdin after {} bytes: {}", copied, e.getMessage());
+                } else {
+                    feedError.set(e);
+                    process.destroy();
+                }
+            }
+        }, "ffmpeg-stdin-" + process.pid());
+        feeder.setDaemon(true);
+        feeder.start();
+        return feeder;
+    }
+
+    private String formatSeconds(double seconds) {
+        return String.format(Locale.ROOT, "%.3f", seconds);
+    }
+}
@@ -0,0 +1,79 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.kibikalo.shared.dto.RenditionStats;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of one encoding job, stored next to its output so a redelivered
+ * request can pick up where a crashed worker stopped. Only records facts that
+ * survive the worker: objects in MinIO and the final result. Local files are
+ * gone after a crash, so "downloaded" or "encoded" are not resumable stages.
+ */
+@Data
+@NoArgsConstructor
+public class JobCheckpoint {
+
+    public enum Stage {
+        STARTED, // Some objects may be uploaded, see uploadedObjects
+        SEGMENTS_UPLOADED, // Every segment is uploaded, the manifest may not be
+        COMPLETED, // Manifest uploaded and result recorded, only the success event may be missing
+        PUBLISHED
+    }
+
+    private String audioId;
+    private String rawEtag; // A different raw object invalidates the checkpoint
+    private String outputKey; // Encoding settings the output was made with, see EncodingService
+    private Stage stage = Stage.STARTED;
+
+    // Object name (relative to the job prefix) -> size in bytes, recorded after a successful PUT
+    @JsonDeserialize(as = ConcurrentHashMap.class)
+    private Map<String, Long> uploadedObjects = new ConcurrentHashMap<>();
+
+    // Result of the encode, set together with COMPLETED
+    private Long durationMillis;
+    private List<RenditionStats> renditions;
+    private Long encodeWallMillis;
+    private Long encodeCpuMillis;
+    private AudioAnalysis analysis; // Without peaks, those are in the uploaded peaks file
+
+    @JsonIgnore
+    private long lastSavedNanos;
+
+    JobCheckpoint(String audioId, String rawEtag, String outputKey) {
+        this.audioId = audioId;
+        this.rawEtag = rawEtag;
+        this.outputKey = outputKey;
+    }
+
+    @JsonIgnore
+    public boolean isCompleted() {
+        return stage == Stage.COMPLETED || stage == Stage.PUBLISHED;
+    }
+
+    void complete(DashEncodingResult result) {
+        durationMillis = result.getDurationMillis();
+        renditions = result.getRenditions();
+        encodeWallMillis = result.getEncodeWallMillis();
+        encodeCpuMillis = result.getEncodeCpuMillis();
+        analysis = result.getAnalysis();
+        stage = Stage.COMPLETED;
+    }
+
+    DashEncodingResult toResult() {
+        return DashEncodingResult.success(
+                durationMillis,
+                renditions,
+                encodeWallMillis != null ? encodeWallMillis : 0,
+                encodeCpuMillis,
+                analysis
+        );
+    }
+}
@@ -0,0 +1,158 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Objects;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps {@link JobCheckpoint}s as small JSON objects in the processed bucket,
+ * outside the per-audio prefixes that players read from. Checkpoint writes are
+ * best effort: a job never fails because its checkpoint couldn't be saved, it
+ * just resumes from an older point.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobCheckpointStore {
+
+    private static final String CHECKPOINT_PREFIX = "_checkpoints/";
+
+    private final MinioClient minioClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.minio.bucket.processed}")
+    private String processedBucket;
+
+    @Value("${app.encoding.checkpoint.enabled}")
+    private boolean enabled;
+
+    @Value("${app.encoding.checkpoint.save-interval-ms}")
+    private long saveIntervalMillis; // Upload progress is saved at most this often
+
+    /**
+     * Returns the job's checkpoint if it was made for the same raw object and
+     * settings, otherwise a fresh one. Null when checkpointing is disabled.
+     */
+    public JobCheckpoint resume(String audioId, String rawEtag, String outputKey) {
+        if (!enabled) {
+            return null;
+        }
+        JobCheckpoint stored = load(audioId);
+        if (stored != null
+                && Objects.equals(stored.getRawEtag(), rawEtag)
+                && Objects.equals(stored.getOutputKey(), outputKey)) {
+            log.info(
+                    "Resuming audioId {} from checkpoint: stage {}, {} objects uploaded",
+                    audioId,
+                    stored.getStage(),
+                    stored.getUploadedObjects().size()
+            );
+            return stored;
+        }
+        if (stored != null) {
+            log.info("Discarding checkpoint of audioId {}, raw object or settings changed", audioId);
+        }
+        JobCheckpoint checkpoint = new JobCheckpoint(audioId, rawEtag, outputKey);
+        save(checkpoint);
+        return checkpoint;
+    }
+
+    public void save(JobCheckpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        synchronized (checkpoint) {
+            try {
+                byte[] json = objectMapper.writeValueAsBytes(checkpoint);
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(processedBucket)
+                                .object(objectName(checkpoint.getAudioId()))
+                                .stream(new ByteArrayInputStream(json), json.length, -1)
+                                .contentType("application/json")
+                                .build()
+                );
+                checkpoint.setLastSavedNanos(System.nanoTime());
+            } catch (Exception e) {
+                log.warn("Could not save checkpoint of audioId {}: {}", checkpoint.getAudioId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Saves unless the checkpoint was saved less than the save interval ago;
+     * used for per-object progress, where losing the last few entries is cheap.
+     */
+    public void saveThrottled(JobCheckpoint checkpoint) {
+        if (checkpoint == null) {
+            return;
+        }
+        synchronized (checkpoint) {
+            if (System.nanoTime() - checkpoint.getLastSavedNanos() < saveIntervalMillis * 1_000_000) {
+                return;
+            }
+            save(checkpoint);
+        }
+    }
+
+    /**
+     * Whether the checkpoint lists the object with this size and MinIO still has it.
+     */
+    public boolean isUploaded(JobCheckpoint checkpoint, String name, long size) {
+        if (checkpoint == null) {
+            return false;
+        }
+        Long recorded = checkpoint.getUploadedObjects().get(name);
+        if (recorded == null || recorded != size) {
+            return false;
+        }
+        try {
+            long stored = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(processedBucket)
+                            .object(checkpoint.getAudioId() + "/" + name)
+                            .build()
+            ).size();
+            return stored == size;
+        } catch (Exception e) {
+            log.debug("Checkpointed object {} of audioId {} not verified: {}", name, checkpoint.getAudioId(), e.getMessage());
+            return false;
+        }
+    }
+
+    private JobCheckpoint load(String audioId) {
+        try (InputStream stream = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(processedBucket)
+                        .object(objectName(audioId))
+                        .build()
+        )) {
+            return objectMapper.readValue(stream, JobCheckpoint.class);
+        } catch (ErrorResponseException e) {
+            if (!"NoSuchKey".equals(e.errorResponse().code())) {
+                log.warn("Could not read checkpoint of audioId {}: {}", audioId, e.getMessage());
+            }
+            return null;
+        } catch (Exception e) {
+            log.warn("Ignoring unreadable checkpoint of audioId {}: {}", audioId, e.getMessage());
+            return null;
+        }
+    }
+
+    private String objectName(String audioId) {
+        return CHECKPOINT_PREFIX + audioId + ".json";
+    }
+}
@@ -0,0 +1,154 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remembers which encoding requests (audioId + attempt) are queued, running or
+ * finished, so a redelivered request is acknowledged without another FFmpeg run.
+ * Lookups hit an in-memory map first; finished requests are also recorded as
+ * empty marker objects in the processed bucket so they survive restarts and
+ * partition moves. The map keeps the {@code maxCachedEntries} most recently
+ * used keys, older ones are looked up by their marker. In-flight state is memory only: after a crash the request
+ * has to run again, and resumes from its {@link JobCheckpoint}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobIdempotencyStore {
+
+    private static final String MARKER_PREFIX = "_idempotency/";
+
+    private final MinioClient minioClient;
+
+    @Value("${app.minio.bucket.processed}")
+    private String processedBucket;
+
+    @Value("${app.encoding.idempotency.enabled}")
+    private boolean enabled;
+
+    @Value("${app.encoding.idempotency.ttl-hours}")
+    private long ttlHours; // After this a redelivery is processed again
+
+    @Value("${app.encoding.idempotency.max-cached-entries}")
+    private int maxCachedEntries;
+
+    private final Map<String, Boolean> inFlight = new ConcurrentHashMap<>();
+    // Key -> when it finished, access-ordered so the least recently used key drops out
+    private final Map<String, Instant> finished = Collections.synchronizedMap(
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Instant> eldest) {
+                    return size() > maxCachedEntries;
+                }
+            }
+    );
+
+    /**
+     * Claims a request for this instance.
+     *
+     * @return false if the same request is already in flight here or finished within the TTL
+     */
+    public boolean tryClaim(EncodingRequestedEvent event) {
+        if (!enabled) {
+            return true;
+        }
+        String key = keyOf(event);
+        if (isFinished(key)) {
+            return false;
+        }
+        return inFlight.putIfAbsent(key, Boolean.TRUE) == null;
+    }
+
+    /**
+     * Records the request's outcome (success or failure) as published.
+     */
+    public void markFinished(EncodingRequestedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        String key = keyOf(event);
+        Instant now = Instant.now();
+        finished.put(key, now);
+        inFlight.remove(key);
+        try {
+            minioClient.putObject(
+                    PutObjectArgs.builder()
+                            .bucket(processedBucket)
+                            .object(MARKER_PREFIX + key)
+                            .stream(new ByteArrayInputStream(new byte[0]), 0, -1)
+                            .build()
+            );
+        } catch (Exception e) {
+            // Only costs a duplicate encode if the request is redelivered to another instance
+            log.warn("Could not persist idempotency marker {}: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * Drops the claim of a request that ended without publishing an outcome, so a
+     * redelivery runs it.
+     */
+    public void release(EncodingRequestedEvent event) {
+        if (enabled) {
+            inFlight.remove(keyOf(event));
+        }
+    }
+
+    private boolean isFinished(String key) {
+        Instant finishedAt = finished.get(key);
+        if (finishedAt != null) {
+            return !isExpired(finishedAt);
+        }
+        try {
+            StatObjectResponse marker = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(processedBucket)
+                            .object(MARKER_PREFIX + key)
+                            .build()
+            );
+            finishedAt = marker.lastModified().toInstant();
+            if (isExpired(finishedAt)) {
+                return false;
+            }
+            finished.put(key, finishedAt);
+            return true;
+        } catch (ErrorResponseException e) {
+            if (!"NoSuchKey".equals(e.errorResponse().code())) {
+                log.warn("Could not check idempotency marker {}: {}", key, e.getMessage());
+            }
+            return false;
+        } catch (Exception e) {
+            // Fail open: a duplicate encode is cheaper than a lost one
+            log.warn("Could not check idempotency marker {}: {}", key, e.getMessage());
+            return false;
+        }
+    }
+
+    private boolean isExpired(Instant finishedAt) {
+        return finishedAt.plus(Duration.ofHours(ttlHours)).isBefore(Instant.now());
+    }
+
+    // Events from producers without attempt numbers count as attempt 0
+    private String keyOf(EncodingRequestedEvent event) {
+        return event.getAudioId() + "/" + (event.getAttempt() != null ? event.getAttempt() : 0);
+    }
+}
@@ -0,0 +1,114 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Consumer group lag on the requested topic and its retry topics: records
+ * between the committed offset and the end of each partition. Offsets are only
+ * committed once a job is done, so this counts every request the whole group
+ * has not finished yet, queued and running ones included. Looked up through the
+ * admin client at most once per refresh interval.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class KafkaLagMonitor {
+
+    private static final long ADMIN_TIMEOUT_SECONDS = 5;
+
+    private final KafkaAdmin kafkaAdmin;
+
+    @Value("${spring.kafka.consumer.group-id}")
+    private String groupId;
+
+    @Value("${app.kafka.topic.encoding-requested}")
+    private String encodingRequestedTopic;
+
+    @Value("${app.encoding.backlog.lag-refresh-seconds}")
+    private long refreshSeconds;
+
+    private AdminClient adminClient;
+    private Long cachedLag; // Null until the first successful lookup
+    private Instant refreshedAt = Instant.MIN;
+
+    @PostConstruct
+    void init() {
+        adminClient = AdminClient.create(kafkaAdmin.getConfigurationProperties());
+    }
+
+    /**
+     * @return unfinished requests of the consumer group, or null if Kafka couldn't be asked yet
+     */
+    public synchronized Long getLag() {
+        Instant now = Instant.now();
+        if (refreshedAt.plus(Duration.ofSeconds(refreshSeconds)).isAfter(now)) {
+            return cachedLag;
+        }
+        refreshedAt = now; // Also after a failure, so an unreachable broker isn't asked on every scrape
+        try {
+            Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+            adminClient.listConsumerGroupOffsets(groupId)
+                    .partitionsToOffsetAndMetadata()
+                    .get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .forEach((partition, offset) -> {
+                        if (offset != null && isRequestTopic(partition.topic())) {
+                            committed.put(partition, offset);
+                        }
+                    });
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            committed.keySet().forEach(partition -> latest.put(partition, OffsetSpec.latest()));
+            Map<TopicPartition, Long> endOffsets = new HashMap<>();
+            for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> entry
+                    : adminClient.listOffsets(latest).all().get(ADMIN_TIMEOUT_SECONDS, TimeUnit.SECONDS).entrySet()) {
+                endOffsets.put(entry.getKey(), entry.getValue().offset());
+            }
+            cachedLag = sumLag(committed, endOffsets);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Could not read consumer lag of group {}: {}", groupId, e.getMessage());
+        }
+        return cachedLag;
+    }
+
+    // Partitions the group never committed on are missing from both maps and count as no lag
+    static long sumLag(Map<TopicPartition, OffsetAndMetadata> committed, Map<TopicPartition, Long> endOffsets) {
+        long lag = 0;
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : committed.entrySet()) {
+            Long end = endOffsets.get(entry.getKey());
+            if (end != null) {
+                lag += Math.max(0, end - entry.getValue().offset());
+            }
+        }
+        return lag;
+    }
+
+    // The retry topics hold requests too, the DLT doesn't come back on its own
+    private boolean isRequestTopic(String topic) {
+        return topic.equals(encodingRequestedTopic)
+                || (topic.startsWith(encodingRequestedTopic + "-") && !topic.endsWith("-dlt"));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        adminClient.close(Duration.ofSeconds(ADMIN_TIMEOUT_SECONDS));
+    }
+}
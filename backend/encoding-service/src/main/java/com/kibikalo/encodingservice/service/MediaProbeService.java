@@ -0,0 +1,120 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MediaProbeService {
+
+    private static final long PROBE_TIMEOUT_SECONDS = 60;
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.ffprobe.path}")
+    private String ffprobePath;
+
+    /**
+     * Probes the first audio stream of a local file or URL (e.g. a presigned
+     * MinIO link, ffprobe only fetches the byte ranges it needs).
+     */
+    public SourceProbe probe(String input) throws IOException {
+        List<String> command = List.of(
+                ffprobePath,
+                "-v", "error",
+                "-print_format", "json",
+                "-show_format",
+                "-show_streams",
+                "-select_streams", "a:0",
+                input
+        );
+        ProcessBuilder processBuilder = new ProcessBuilder(command);
+        processBuilder.redirectError(ProcessBuilder.Redirect.DISCARD);
+
+        Process process = processBuilder.start();
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+        process.onExit()
+                .orTimeout(PROBE_TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .exceptionally(ex -> {
+                    timedOut.set(true);
+                    process.destroyForcibly();
+                    return null;
+                });
+        byte[] output = process.getInputStream().readAllBytes();
+        try {
+            process.waitFor();
+            if (timedOut.get()) {
+                throw new IOException("ffprobe timed out after " + PROBE_TIMEOUT_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for ffprobe", e);
+        }
+        if (process.exitValue() != 0) {
+            throw new IOException("ffprobe exited with code " + process.exitValue());
+        }
+
+        JsonNode root = objectMapper.readTree(output);
+        JsonNode stream = root.path("streams").path(0);
+        JsonNode format = root.path("format");
+        Long bitsPerSecond = parseLong(stream.path("bit_rate"), format.path("bit_rate"));
+        Long sampleRate = parseLong(stream.path("sample_rate"));
+        SourceProbe probe = SourceProbe.builder()
+                .durationMillis(parseSecondsToMillis(format.path("duration"), stream.path("duration")))
+                .bitrateKbps(bitsPerSecond != null ? (int) (bitsPerSecond / 1000) : null)
+                .channels(stream.path("channels").isInt() ? stream.path("channels").asInt() : null)
+                .sampleRate(sampleRate != null ? sampleRate.intValue() : null)
+                .codecName(stream.path("codec_name").isTextual() ? stream.path("codec_name").asText() : null)
+                .build();
+        log.info(
+                "Probed source: duration={} ms, codec={}, bitrate={} kbps, channels={}, sampleRate={} Hz",
+                probe.getDurationMillis(),
+                probe.getCodecName(),
+                probe.getBitrateKbps(),
+                probe.getChannels(),
+                probe.getSampleRate()
+        );
+        return probe;
+    }
+
+    private Long parseLong(JsonNode... candidates) {
+        for (JsonNode node : candidates) {
+            if (node.isMissingNode() || node.isNull()) {
+                continue;
+            }
+            try {
+                return Long.parseLong(node.asText());
+            } catch (NumberFormatException e) {
+                // "N/A" and friends, try the next candidate
+            }
+        }
+        return null;
+    }
+
+    // ffprobe prints numbers as strings; the container value is usually the more reliable one
+    private Long parseSecondsToMillis(JsonNode... candidates) {
+        for (JsonNode node : candidates) {
+            if (node.isMissingNode() || node.isNull()) {
+                continue;
+            }
+            try {
+                return Math.round(Double.parseDouble(node.asText()) * 1000);
+            } catch (NumberFormatException e) {
+                // "N/A" and friends, try the next candidate
+            }
+        }
+        return null;
+    }
+}
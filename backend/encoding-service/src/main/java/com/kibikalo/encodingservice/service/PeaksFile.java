@@ -0,0 +1,77 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes waveform peaks at several zoom levels into one compact binary file
+ * that a player fetches next to the manifest. Layout, big-endian:
+ * <pre>
+ * "PKS1"  u32 sampleRate  u16 levelCount  u16 reserved
+ * levelCount x (u32 samplesPerPeak  u32 peakCount)
+ * levelCount x peakCount bytes, finest level first
+ * </pre>
+ * Each peak is the maximum linear amplitude of its window scaled to 0..255;
+ * every level holds the maxima of {@code zoomFactor} peaks of the level before.
+ */
+final class PeaksFile {
+
+    static final String FILE_NAME = "peaks.bin";
+    private static final byte[] MAGIC = "PKS1".getBytes(StandardCharsets.US_ASCII);
+
+    private PeaksFile() {
+    }
+
+    static void write(Path file, AudioAnalysis analysis, int levels, int zoomFactor) throws IOException {
+        byte[][] data = buildLevels(analysis.getPeaks(), levels, zoomFactor);
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            write(stream, analysis.getPeaksSampleRate(), analysis.getSamplesPerPeak(), data, zoomFactor);
+        }
+    }
+
+    static void write(OutputStream stream, int sampleRate, int samplesPerPeak, byte[][] levels, int zoomFactor)
+            throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.write(MAGIC);
+        out.writeInt(sampleRate);
+        out.writeShort(levels.length);
+        out.writeShort(0);
+        long windowSamples = samplesPerPeak;
+        for (byte[] level : levels) {
+            out.writeInt((int) windowSamples);
+            out.writeInt(level.length);
+            windowSamples *= zoomFactor;
+        }
+        for (byte[] level : levels) {
+            out.write(level);
+        }
+        out.flush();
+    }
+
+    // Coarser levels stop early once a single peak covers the whole track
+    static byte[][] buildLevels(byte[] basePeaks, int levels, int zoomFactor) {
+        int count = 1;
+        for (int length = basePeaks.length; count < levels && length > 1; count++) {
+            length = (length + zoomFactor - 1) / zoomFactor;
+        }
+        byte[][] result = new byte[count][];
+        result[0] = basePeaks;
+        for (int level = 1; level < count; level++) {
+            byte[] finer = result[level - 1];
+            byte[] coarser = new byte[(finer.length + zoomFactor - 1) / zoomFactor];
+            for (int i = 0; i < finer.length; i++) {
+                int peak = Byte.toUnsignedInt(finer[i]);
+                if (peak > Byte.toUnsignedInt(coarser[i / zoomFactor])) {
+                    coarser[i / zoomFactor] = (byte) peak;
+                }
+            }
+            result[level] = coarser;
+        }
+        return result;
+    }
+}
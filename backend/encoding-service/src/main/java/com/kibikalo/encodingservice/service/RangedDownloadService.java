@@ -0,0 +1,242 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Downloads raw objects to local files. Large objects are split into byte
+ * ranges fetched over parallel connections, each written at its offset into
+ * the preallocated file, so a single TCP stream no longer caps throughput.
+ * Every range is requested with the object's ETag, a replaced object fails the
+ * download instead of producing a mixed file. A failed download deletes what it
+ * wrote.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RangedDownloadService {
+
+    private final MinioClient minioClient;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.encoding.download.part-size-mb}")
+    private long partSizeMegabytes;
+
+    @Value("${app.encoding.download.parallelism}")
+    private int parallelism; // Concurrent ranged GETs per download
+
+    @Value("${app.encoding.download.min-parallel-size-mb}")
+    private long minParallelSizeMegabytes; // Smaller objects use one plain GET
+
+    @Value("${app.encoding.download.max-attempts}")
+    private int maxAttempts; // Per part, a failed part is fetched again from its start
+
+    @Value("${app.encoding.download.retry-backoff-ms}")
+    private long retryBackoffMillis; // Doubled after each failed attempt
+
+    @Value("${app.encoding.download.buffer-bytes}")
+    private int bufferBytes; // Read buffer per part
+
+    // Ranged GETs are blocking I/O, so one virtual thread per worker is cheap
+    private ExecutorService downloadExecutor;
+    private DistributionSummary throughputSummary;
+
+    @PostConstruct
+    void init() {
+        downloadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        throughputSummary = DistributionSummary.builder("encoding.download.throughput")
+                .description("Per-job download throughput of raw objects from MinIO")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param size object size from statObject
+     * @param etag object ETag from the same statObject, may be null to skip the check
+     */
+    public void download(String bucket, String objectName, long size, String etag, Path destination)
+            throws IOException {
+        long startNanos = System.nanoTime();
+        long partSize = Math.max(1, partSizeMegabytes) * 1024 * 1024;
+        int partCount = (int) ((size + partSize - 1) / partSize);
+        try {
+            if (size < minParallelSizeMegabytes * 1024 * 1024 || partCount < 2 || parallelism < 2) {
+                downloadWhole(bucket, objectName, destination);
+            } else {
+                downloadRanges(bucket, objectName, size, etag, destination, partSize, partCount);
+            }
+        } catch (IOException e) {
+            // A partial file must not be mistaken for the input, and may be large
+            Files.deleteIfExists(destination);
+            throw e;
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+        if (elapsedNanos > 0) {
+            throughputSummary.record(size * 1e9 / elapsedNanos);
+        }
+        log.info(
+                "Downloaded {} ({} bytes) in {} ms",
+                objectName,
+                size,
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos)
+        );
+    }
+
+    private void downloadWhole(String bucket, String objectName, Path destination) throws IOException {
+        try (
+                InputStream stream = minioClient.getObject(
+                        GetObjectArgs.builder()
+                                .bucket(bucket)
+                                .object(objectName)
+                                .build()
+                )
+        ) {
+            Files.copy(stream, destination, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to download " + objectName + " from MinIO: " + e.getMessage(), e);
+        }
+    }
+
+    private void downloadRanges(
+            String bucket,
+            String objectName,
+            long size,
+            String etag,
+            Path destination,
+            long partSize,
+            int partCount
+    ) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+                destination,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            // Preallocate by writing the last byte, parts then only fill in their range
+            channel.write(ByteBuffer.wrap(new byte[1]), size - 1);
+
+            // Workers take the next part in order, so reads stay roughly sequential on the server
+            AtomicInteger nextPart = new AtomicInteger();
+            int workers = Math.min(parallelism, partCount);
+            List<Future<?>> futures = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                futures.add(downloadExecutor.submit(() -> {
+                    int part;
+                    while ((part = nextPart.getAndIncrement()) < partCount) {
+                        long offset = part * partSize;
+                        downloadPart(bucket, objectName, etag, channel, offset, Math.min(partSize, size - offset));
+                    }
+                    return null;
+                }));
+            }
+            log.debug("Downloading {} in {} parts over {} connections", objectName, partCount, workers);
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException io ? io : new IOException(cause.getMessage(), cause);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while downloading " + objectName, e);
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    private void downloadPart(
+            String bucket,
+            String objectName,
+            String etag,
+            FileChannel channel,
+            long offset,
+            long length
+    ) throws IOException, InterruptedException {
+        long backoff = retryBackoffMillis;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                copyRange(bucket, objectName, etag, channel, offset, length);
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts) {
+                    throw new IOException(
+                            "Failed to download bytes " + offset + "-" + (offset + length - 1) + " of " + objectName
+                                    + " after " + attempt + " attempt(s): " + e.getMessage(),
+                            e
+                    );
+                }
+                log.debug("Retrying bytes {}+{} of {}: {}", offset, length, objectName, e.getMessage());
+                Thread.sleep(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private void copyRange(
+            String bucket,
+            String objectName,
+            String etag,
+            FileChannel channel,
+            long offset,
+            long length
+    ) throws Exception {
+        GetObjectArgs.Builder args = GetObjectArgs.builder()
+                .bucket(bucket)
+                .object(objectName)
+                .offset(offset)
+                .length(length);
+        if (etag != null) {
+            args.matchETag(etag);
+        }
+        try (InputStream stream = minioClient.getObject(args.build())) {
+            ByteBuffer buffer = ByteBuffer.allocate(bufferBytes);
+            long position = offset;
+            int read;
+            while ((read = stream.read(buffer.array())) != -1) {
+                buffer.limit(read);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position); // Positional, safe to share the channel
+                }
+                buffer.clear();
+            }
+            if (position != offset + length) {
+                throw new IOException("Range ended after " + (position - offset) + " of " + length + " bytes");
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        downloadExecutor.shutdownNow();
+    }
+}
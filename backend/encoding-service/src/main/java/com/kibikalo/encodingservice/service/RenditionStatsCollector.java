@@ -0,0 +1,128 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import com.kibikalo.shared.dto.RenditionStats;
+
+/**
+ * Measures what FFmpeg actually wrote for each representation, from the
+ * segment files in a finished output directory. In single-file packaging the
+ * segment count comes from the file's sidx box.
+ */
+final class RenditionStatsCollector {
+
+    private static final Pattern MEDIA_SEGMENT = Pattern.compile("chunk-stream(\\d+)-\\d+\\.m4s");
+    private static final Pattern INIT_SEGMENT = Pattern.compile("init-stream(\\d+)\\.m4s");
+    private static final Pattern SINGLE_FILE = Pattern.compile("single-stream(\\d+)\\.m4s");
+    private static final int MAX_BOXES_BEFORE_SIDX = 8;
+
+    private RenditionStatsCollector() {
+    }
+
+    static List<RenditionStats> collect(Path outputDirectory, List<Integer> bitratesKbps, Long durationMillis)
+            throws IOException {
+        return collect(outputDirectory, Map.of(), bitratesKbps, durationMillis);
+    }
+
+    /**
+     * @param remoteFiles    segments that are part of the output but not on disk (name -> size),
+     *                       e.g. restored from a checkpoint
+     * @param bitratesKbps   requested ladder, representation N was encoded at entry N
+     * @param durationMillis encoded duration, the average bitrate is null without it
+     */
+    static List<RenditionStats> collect(
+            Path outputDirectory,
+            Map<String, Long> remoteFiles,
+            List<Integer> bitratesKbps,
+            Long durationMillis
+    ) throws IOException {
+        int representations = bitratesKbps.size();
+        long[] bytes = new long[representations];
+        int[] segments = new int[representations];
+        Map<String, Long> files = new HashMap<>(remoteFiles);
+        try (Stream<Path> listing = Files.list(outputDirectory)) {
+            for (Path file : (Iterable<Path>) listing::iterator) {
+                String name = file.getFileName().toString();
+                files.put(name, Files.size(file));
+                Matcher single = SINGLE_FILE.matcher(name);
+                if (single.matches() && Integer.parseInt(single.group(1)) < representations) {
+                    segments[Integer.parseInt(single.group(1))] = countSidxReferences(file);
+                }
+            }
+        }
+        files.forEach((name, size) -> {
+            Matcher media = MEDIA_SEGMENT.matcher(name);
+            Matcher init = INIT_SEGMENT.matcher(name);
+            Matcher single = SINGLE_FILE.matcher(name);
+            int representation;
+            if (media.matches()) {
+                representation = Integer.parseInt(media.group(1));
+                if (representation < representations) {
+                    segments[representation]++;
+                }
+            } else if (single.matches()) {
+                representation = Integer.parseInt(single.group(1));
+            } else if (init.matches()) {
+                representation = Integer.parseInt(init.group(1));
+            } else {
+                return;
+            }
+            if (representation < representations) {
+                bytes[representation] += size;
+            }
+        });
+
+        List<RenditionStats> stats = new ArrayList<>(representations);
+        for (int i = 0; i < representations; i++) {
+            Integer averageKbps = durationMillis != null && durationMillis > 0
+                    ? (int) Math.round(bytes[i] * 8.0 / durationMillis) // bits per ms == kbit/s
+                    : null;
+            stats.add(new RenditionStats(i, bitratesKbps.get(i), averageKbps, bytes[i], segments[i]));
+        }
+        return stats;
+    }
+
+    // Walks the top-level boxes (ftyp, moov, sidx) and reads reference_count from the global sidx
+    static int countSidxReferences(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long offset = 0;
+            ByteBuffer header = ByteBuffer.allocate(16);
+            for (int i = 0; i < MAX_BOXES_BEFORE_SIDX && offset + 8 <= channel.size(); i++) {
+                header.clear();
+                channel.read(header, offset);
+                long boxSize = Integer.toUnsignedLong(header.getInt(0));
+                String boxType = new String(header.array(), 4, 4, StandardCharsets.US_ASCII);
+                if ("sidx".equals(boxType)) {
+                    // version(1) flags(3) reference_ID(4) timescale(4), times are 32 or 64 bit by version,
+                    // then reserved(2) and reference_count(2)
+                    ByteBuffer body = ByteBuffer.allocate(32);
+                    channel.read(body, offset + 8);
+                    int version = body.get(0);
+                    int countOffset = version == 0 ? 12 + 8 + 2 : 12 + 16 + 2;
+                    return Short.toUnsignedInt(body.getShort(countOffset));
+                }
+                if (boxSize == 1) {
+                    boxSize = header.getLong(8); // 64-bit largesize
+                }
+                if (boxSize < 8) {
+                    break;
+                }
+                offset += boxSize;
+            }
+        }
+        return 0; // No global sidx (not a single-file output)
+    }
+}
@@ -0,0 +1,113 @@
+package com.kibikalo.encodingservice.service;
+
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.minio.MinioClient;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SegmentUploadService {
+
+    private final MinioClient minioClient;
+    private final MeterRegistry meterRegistry;
+    private final JobCheckpointStore checkpointStore;
+
+    @Value("${app.minio.bucket.processed}")
+    private String processedBucket;
+
+    @Value("${app.encoding.upload.pipelined}")
+    private boolean pipelined; // Upload segments while FFmpeg is still running
+
+    @Value("${app.encoding.upload.poll-interval-ms}")
+    private long pollIntervalMillis;
+
+    @Value("${app.encoding.upload.parallelism}")
+    private int parallelism; // Max concurrent PUTs per job
+
+    @Value("${app.encoding.upload.max-attempts}")
+    private int maxAttempts;
+
+    @Value("${app.encoding.upload.retry-backoff-ms}")
+    private long retryBackoffMillis;
+
+    // Uploads are blocking I/O, so one virtual thread per object is cheap
+    private ExecutorService uploadExecutor;
+    private DistributionSummary throughputSummary;
+    private Counter retryCounter;
+
+    @PostConstruct
+    void init() {
+        uploadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        throughputSummary = DistributionSummary.builder("encoding.upload.throughput")
+                .description("Per-job upload throughput of encoded output to MinIO")
+                .baseUnit("bytes/s")
+                .register(meterRegistry);
+        retryCounter = Counter.builder("encoding.upload.retries")
+                .description("Object uploads retried after a failed attempt")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens an upload session for one job's output directory. In pipelined mode the
+     * session starts watching the directory right away, otherwise everything is
+     * uploaded by {@link SegmentUploadSession#finish()}.
+     *
+     * @param excludedFile    file inside the output directory that must never be uploaded
+     *                        (the downloaded input), may be null
+     * @param progressive     also publish the dynamic manifest while encoding, needs pipelined mode
+     * @param onFirstManifest called once the first dynamic manifest is uploaded, may be null
+     * @param checkpoint      records uploads and skips verified ones, may be null
+     */
+    public SegmentUploadSession startSession(
+            String audioId,
+            Path outputDirectory,
+            String manifestName,
+            Path excludedFile,
+            boolean progressive,
+            Runnable onFirstManifest,
+            JobCheckpoint checkpoint
+    ) {
+        SegmentUploadSession session = new SegmentUploadSession(
+                minioClient,
+                processedBucket,
+                audioId + "/", // Objects are stored relative to the bucket root
+                outputDirectory,
+                manifestName,
+                excludedFile,
+                pollIntervalMillis,
+                uploadExecutor,
+                parallelism,
+                maxAttempts,
+                retryBackoffMillis,
+                throughputSummary,
+                retryCounter,
+                progressive && pipelined,
+                onFirstManifest,
+                checkpointStore,
+                checkpoint
+        );
+        if (pipelined) {
+            session.startWatching();
+            log.info("Started pipelined segment upload for audioId {}", audioId);
+        }
+        return session;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        uploadExecutor.shutdown();
+    }
+}
@@ -0,0 +1,392 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.minio.MinioClient;
+import io.minio.UploadObjectArgs;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uploads one job's DASH output to MinIO. While FFmpeg runs, a watcher thread
+ * pushes every segment that is known to be complete; {@link #finish()} uploads
+ * whatever is left and the manifest last, so players never see a manifest that
+ * points at missing segments. Single-file (SegmentBase) outputs are
+ * still being written until FFmpeg exits, so they are only uploaded by finish().
+ * <p>
+ * Objects are uploaded in parallel (at most {@code parallelism} at a time), each
+ * retried on its own. The first object that runs out of attempts fails the job.
+ * <p>
+ * In progressive mode the watcher also republishes FFmpeg's dynamic manifest
+ * whenever it changes, after every segment found so far is uploaded. The
+ * manifest is sent with no-cache so players and proxies always refetch it.
+ * <p>
+ * With a {@link JobCheckpoint}, every uploaded segment is recorded, and segments
+ * a previous attempt already stored (same size, verified in MinIO) are skipped.
+ */
+@Slf4j
+public class SegmentUploadSession implements AutoCloseable {
+
+    private static final Map<String, String> NO_CACHE = Map.of("Cache-Control", "no-cache");
+
+    // FFmpeg writes each representation's segments in order, so segment N is
+    // complete as soon as N+1 (or, for the init segment, segment 1) exists.
+    private static final Pattern MEDIA_SEGMENT = Pattern.compile("chunk-stream(\\d+)-(\\d+)\\.m4s");
+    private static final Pattern INIT_SEGMENT = Pattern.compile("init-stream(\\d+)\\.m4s");
+
+    private final MinioClient minioClient;
+    private final String bucket;
+    private final String objectPrefix;
+    private final Path outputDirectory;
+    private final String manifestName;
+    private final Path excludedFile;
+    private final long pollIntervalMillis;
+    private final ExecutorService uploadExecutor;
+    private final Semaphore uploadPermits;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final DistributionSummary throughputSummary;
+    private final Counter retryCounter;
+    private final boolean progressive;
+    private final Runnable onFirstManifest;
+    private final JobCheckpointStore checkpointStore;
+    private final JobCheckpoint checkpoint; // Null when checkpointing is disabled
+
+    // Names handed to the executor; only touched by the watcher, then by finish() after join()
+    private final Set<String> submitted = new HashSet<>();
+    private final List<Future<?>> inFlight = new ArrayList<>();
+    private final AtomicReference<IOException> failure = new AtomicReference<>();
+    private final AtomicLong uploadedBytes = new AtomicLong();
+    private final AtomicLong skippedObjects = new AtomicLong();
+    // Time with at least one upload in flight, so pipelined jobs aren't charged for encode gaps
+    private int activeUploads = 0;
+    private long busySinceNanos;
+    private long busyNanos = 0;
+    private volatile boolean watching = false;
+    private Thread watcher;
+    private FileTime publishedManifestTime; // Watcher only
+
+    SegmentUploadSession(
+            MinioClient minioClient,
+            String bucket,
+            String objectPrefix,
+            Path outputDirectory,
+            String manifestName,
+            Path excludedFile,
+            long pollIntervalMillis,
+            ExecutorService uploadExecutor,
+            int parallelism,
+            int maxAttempts,
+            long retryBackoffMillis,
+            DistributionSummary throughputSummary,
+            Counter retryCounter,
+            boolean progressive,
+            Runnable onFirstManifest,
+            JobCheckpointStore checkpointStore,
+            JobCheckpoint checkpoint
+    ) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+        this.objectPrefix = objectPrefix;
+        this.outputDirectory = outputDirectory;
+        this.manifestName = manifestName;
+        this.excludedFile = excludedFile;
+        this.pollIntervalMillis = pollIntervalMillis;
+        this.uploadExecutor = uploadExecutor;
+        this.uploadPermits = new Semaphore(Math.max(1, parallelism));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.throughputSummary = throughputSummary;
+        this.retryCounter = retryCounter;
+        this.progressive = progressive;
+        this.onFirstManifest = onFirstManifest;
+        this.checkpointStore = checkpointStore;
+        this.checkpoint = checkpoint;
+    }
+
+    void startWatching() {
+        watching = true;
+        watcher = new Thread(this::watchLoop, "segment-upload-" + outputDirectory.getFileName());
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    private void watchLoop() {
+        while (watching && failure.get() == null) {
+            try {
+                submitPending(false);
+                if (progressive) {
+                    publishManifestIfChanged();
+                }
+                Thread.sleep(pollIntervalMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("Pipelined upload failed for {}: {}", outputDirectory, e.getMessage(), e);
+                failure.compareAndSet(null, e);
+                return;
+            }
+        }
+    }
+
+    private void publishManifestIfChanged() throws IOException {
+        Path manifest = outputDirectory.resolve(manifestName);
+        if (!Files.isRegularFile(manifest)) {
+            return;
+        }
+        FileTime modified = Files.getLastModifiedTime(manifest);
+        if (modified.equals(publishedManifestTime)) {
+            return;
+        }
+        // The manifest must not get ahead of the segments we already know about
+        awaitInFlight();
+        throwIfFailed();
+        uploadWithRetry(manifest);
+        boolean first = publishedManifestTime == null;
+        publishedManifestTime = modified;
+        if (first && onFirstManifest != null) {
+            onFirstManifest.run();
+        }
+    }
+
+    /**
+     * Stops watching, uploads the remaining files and then the manifest.
+     * Call only after FFmpeg exited successfully.
+     */
+    public void finish() throws IOException {
+        stopWatching();
+        throwIfFailed();
+        submitPending(true);
+        awaitInFlight();
+        throwIfFailed();
+        if (checkpoint != null) {
+            checkpoint.setStage(JobCheckpoint.Stage.SEGMENTS_UPLOADED);
+            checkpointStore.save(checkpoint);
+        }
+
+        Path manifest = outputDirectory.resolve(manifestName);
+        if (!Files.isRegularFile(manifest)) {
+            throw new IOException("Manifest " + manifestName + " not found in " + outputDirectory);
+        }
+        uploadWithRetry(manifest);
+        if (checkpoint != null) {
+            checkpoint.getUploadedObjects().put(manifestName, Files.size(manifest));
+        }
+        reportThroughput();
+    }
+
+    @Override
+    public void close() {
+        stopWatching();
+    }
+
+    private void stopWatching() {
+        watching = false;
+        if (watcher != null) {
+            // No interrupt: it could abort an in-flight upload, the loop exits within one poll
+            try {
+                watcher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            watcher = null;
+        }
+    }
+
+    private void submitPending(boolean encodingDone) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(outputDirectory)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(path -> !path.equals(excludedFile))
+                    .collect(Collectors.toList());
+        }
+        Set<String> present = files.stream()
+                .map(path -> path.getFileName().toString())
+                .collect(Collectors.toSet());
+
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            if (submitted.contains(name) || name.equals(manifestName) || name.endsWith(".tmp")) {
+                continue;
+            }
+            if (encodingDone || isComplete(name, present)) {
+                submit(file);
+            }
+        }
+    }
+
+    private void submit(Path file) throws IOException {
+        throwIfFailed(); // Fail fast, don't queue more work behind a broken upload
+        try {
+            uploadPermits.acquire(); // Bounds concurrency and applies backpressure to the caller
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for an upload slot", e);
+        }
+        submitted.add(file.getFileName().toString());
+        inFlight.add(uploadExecutor.submit(() -> {
+            try {
+                if (failure.get() == null) {
+                    uploadSegment(file);
+                }
+            } catch (IOException e) {
+                if (failure.compareAndSet(null, e)) {
+                    log.error("Giving up on {}: {}", file.getFileName(), e.getMessage());
+                }
+            } finally {
+                uploadPermits.release();
+            }
+        }));
+    }
+
+    private void uploadSegment(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        long size = Files.size(file);
+        if (checkpointStore.isUploaded(checkpoint, name, size)) {
+            skippedObjects.incrementAndGet(); // Uploaded by an earlier attempt of this job
+            return;
+        }
+        uploadWithRetry(file);
+        if (checkpoint != null) {
+            checkpoint.getUploadedObjects().put(name, size);
+            checkpointStore.saveThrottled(checkpoint);
+        }
+    }
+
+    private void awaitInFlight() throws IOException {
+        for (Future<?> future : inFlight) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while waiting for segment uploads", e);
+            } catch (ExecutionException e) {
+                failure.compareAndSet(null, new IOException("Segment upload crashed: " + e.getCause(), e.getCause()));
+            }
+        }
+        inFlight.clear();
+    }
+
+    private void throwIfFailed() throws IOException {
+        IOException e = failure.get();
+        if (e != null) {
+            throw e;
+        }
+    }
+
+    private boolean isComplete(String name, Set<String> present) {
+        Matcher media = MEDIA_SEGMENT.matcher(name);
+        if (media.matches()) {
+            int next = Integer.parseInt(media.group(2)) + 1;
+            return present.contains(mediaSegmentName(media.group(1), next));
+        }
+        Matcher init = INIT_SEGMENT.matcher(name);
+        if (init.matches()) {
+            return present.contains(mediaSegmentName(init.group(1), 1));
+        }
+        return false; // Unknown files are only uploaded once encoding is done
+    }
+
+    private String mediaSegmentName(String representationId, int number) {
+        return String.format("chunk-stream%s-%05d.m4s", representationId, number);
+    }
+
+    private void uploadWithRetry(Path file) throws IOException {
+        String objectName = objectPrefix + file.getFileName().toString();
+        long backoff = retryBackoffMillis;
+        uploadStarted();
+        try {
+            uploadAttempts(file, objectName, backoff);
+        } finally {
+            uploadEnded();
+        }
+    }
+
+    private void uploadAttempts(Path file, String objectName, long backoff) throws IOException {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                UploadObjectArgs.Builder args = UploadObjectArgs.builder()
+                        .bucket(bucket)
+                        .object(objectName)
+                        .filename(file.toAbsolutePath().toString());
+                if (progressive && file.getFileName().toString().equals(manifestName)) {
+                    args.headers(NO_CACHE); // Replaced in place, possibly many times
+                }
+                minioClient.uploadObject(args.build());
+                uploadedBytes.addAndGet(Files.size(file));
+                log.debug("Uploaded {} to bucket {}", objectName, bucket);
+                return;
+            } catch (Exception e) {
+                if (attempt >= maxAttempts || failure.get() != null) {
+                    throw new IOException(
+                            "Failed to upload " + file.getFileName() + " to MinIO after " + attempt
+                                    + " attempt(s): " + e.getMessage(),
+                            e
+                    );
+                }
+                log.warn("Upload of {} failed (attempt {}/{}), retrying in {} ms: {}",
+                        objectName, attempt, maxAttempts, backoff, e.getMessage());
+                retryCounter.increment();
+                sleepQuietly(backoff);
+                backoff *= 2;
+            }
+        }
+    }
+
+    private synchronized void uploadStarted() {
+        if (activeUploads++ == 0) {
+            busySinceNanos = System.nanoTime();
+        }
+    }
+
+    private synchronized void uploadEnded() {
+        if (--activeUploads == 0) {
+            busyNanos += System.nanoTime() - busySinceNanos;
+        }
+    }
+
+    private void sleepQuietly(long millis) throws IOException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during upload retry backoff", e);
+        }
+    }
+
+    private synchronized void reportThroughput() {
+        long elapsedMillis = Math.max(1, busyNanos / 1_000_000);
+        long bytes = uploadedBytes.get();
+        double bytesPerSecond = bytes * 1000.0 / elapsedMillis;
+        throughputSummary.record(bytesPerSecond);
+        log.info(
+                "Uploaded {} objects ({} bytes, {} skipped from checkpoint) from {} in {} ms of upload time, {} KiB/s",
+                submitted.size() + 1 - skippedObjects.get(), // + manifest
+                bytes,
+                skippedObjects.get(),
+                outputDirectory.getFileName(),
+                elapsedMillis,
+                Math.round(bytesPerSecond / 1024)
+        );
+    }
+}
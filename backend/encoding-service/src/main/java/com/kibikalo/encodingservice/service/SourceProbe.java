@@ -0,0 +1,17 @@
+package com.kibikalo.encodingservice.service;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * What ffprobe reports about a raw upload before it is encoded.
+ */
+@Getter
+@Builder
+public class SourceProbe {
+    private final Long durationMillis;
+    private final Integer bitrateKbps; // Stream bit rate, or the container's when the stream has none
+    private final Integer channels;
+    private final Integer sampleRate;
+    private final String codecName; // ffprobe codec_name, e.g. "mp3", "flac", "pcm_s16le"
+}
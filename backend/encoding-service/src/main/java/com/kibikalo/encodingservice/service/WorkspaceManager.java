@@ -0,0 +1,249 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hands out scratch directories for encoding jobs against a byte quota. A job
+ * reserves an estimate derived from its raw object size before it writes
+ * anything and waits while the quota is used up, so concurrent long jobs queue
+ * for disk instead of filling it and all failing. Small jobs can be placed on
+ * an optional tmpfs root with its own quota.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class WorkspaceManager {
+
+    static final String DIRECTORY_PREFIX = "encode-out-";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.encoding.workspace.root}")
+    private String rootConfig;
+
+    @Value("${app.encoding.workspace.quota-mb}")
+    private long quotaMegabytes; // 0 = free space of the root at startup, minus min-free-mb
+
+    @Value("${app.encoding.workspace.min-free-mb}")
+    private long minFreeMegabytes;
+
+    @Value("${app.encoding.workspace.reservation-factor}")
+    private double reservationFactor; // Raw size multiple covering the input copy and the output
+
+    @Value("${app.encoding.workspace.min-reservation-mb}")
+    private long minReservationMegabytes;
+
+    @Value("${app.encoding.workspace.reserve-timeout-seconds}")
+    private long reserveTimeoutSeconds;
+
+    @Value("${app.encoding.workspace.tmpfs.root}")
+    private String tmpfsRootConfig; // Empty = no tmpfs
+
+    @Value("${app.encoding.workspace.tmpfs.quota-mb}")
+    private long tmpfsQuotaMegabytes;
+
+    @Value("${app.encoding.workspace.tmpfs.max-job-mb}")
+    private long tmpfsMaxJobMegabytes; // Larger reservations always go to the disk root
+
+    private Pool disk;
+    private Pool tmpfs; // Null when not configured
+
+    @PostConstruct
+    void init() throws IOException {
+        Path root = Files.createDirectories(Path.of(rootConfig));
+        sweepOrphans(root);
+        long quota = quotaMegabytes > 0
+                ? megabytes(quotaMegabytes)
+                : Math.max(0, Files.getFileStore(root).getUsableSpace() - megabytes(minFreeMegabytes));
+        disk = new Pool("disk", root, quota);
+        registerGauges(disk);
+
+        if (StringUtils.hasText(tmpfsRootConfig)) {
+            Path tmpfsRoot = Files.createDirectories(Path.of(tmpfsRootConfig));
+            sweepOrphans(tmpfsRoot);
+            tmpfs = new Pool("tmpfs", tmpfsRoot, megabytes(tmpfsQuotaMegabytes));
+            registerGauges(tmpfs);
+        }
+        log.info(
+                "Encoding workspace at {} with {} MiB quota{}",
+                root,
+                disk.getCapacityBytes() / (1024 * 1024),
+                tmpfs != null ? ", tmpfs at " + tmpfs.getRoot() + " with " + tmpfsQuotaMegabytes + " MiB" : ""
+        );
+    }
+
+    /**
+     * Reserves space for a job and creates its directory, waiting up to the
+     * configured timeout for other jobs to release theirs.
+     *
+     * @param rawSizeBytes size of the raw object from statObject
+     * @throws WorkspaceUnavailableException if no space freed up in time; nothing was reserved
+     */
+    public Workspace acquire(String audioId, long rawSizeBytes) throws IOException, InterruptedException {
+        long bytes = Math.max(megabytes(minReservationMegabytes), (long) Math.ceil(rawSizeBytes * reservationFactor));
+        Pool pool;
+        if (tmpfs != null && bytes <= megabytes(tmpfsMaxJobMegabytes) && tmpfs.tryReserve(bytes)) {
+            pool = tmpfs;
+        } else if (disk.reserve(bytes, TimeUnit.SECONDS.toMillis(reserveTimeoutSeconds))) {
+            pool = disk;
+        } else {
+            throw new WorkspaceUnavailableException(String.format(
+                    "No workspace capacity for %d bytes within %d s (%d of %d bytes reserved)",
+                    bytes,
+                    reserveTimeoutSeconds,
+                    disk.getReservedBytes(),
+                    disk.getCapacityBytes()
+            ));
+        }
+
+        try {
+            Path directory = Files.createTempDirectory(pool.getRoot(), DIRECTORY_PREFIX + audioId + "-");
+            log.debug("Reserved {} bytes of {} workspace for {} at {}", bytes, pool.getName(), audioId, directory);
+            return new Workspace(directory, pool, bytes);
+        } catch (IOException e) {
+            pool.release(bytes);
+            throw e;
+        }
+    }
+
+    // Directories left behind by a crash; the root belongs to this instance, so none are in use yet
+    private void sweepOrphans(Path root) throws IOException {
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                if (Files.isDirectory(entry) && entry.getFileName().toString().startsWith(DIRECTORY_PREFIX)) {
+                    log.info("Removing orphaned workspace {}", entry);
+                    deleteRecursively(entry);
+                }
+            }
+        }
+    }
+
+    private void deleteRecursively(Path directory) {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    log.warn("Failed to delete {}: {}", path, e.getMessage());
+                }
+            });
+        } catch (IOException e) {
+            log.warn("Failed to clean up workspace {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void registerGauges(Pool pool) {
+        Gauge.builder("encoding.workspace.reserved", pool, Pool::getReservedBytes)
+                .description("Scratch space reserved by running encoding jobs")
+                .baseUnit("bytes")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+        Gauge.builder("encoding.workspace.capacity", pool, Pool::getCapacityBytes)
+                .description("Scratch space quota")
+                .baseUnit("bytes")
+                .tag("pool", pool.getName())
+                .register(meterRegistry);
+    }
+
+    private static long megabytes(long megabytes) {
+        return megabytes * 1024 * 1024;
+    }
+
+    /**
+     * A job's scratch directory; closing it returns the reservation. Deleting the
+     * directory's contents is up to the job.
+     */
+    public static final class Workspace implements AutoCloseable {
+        @Getter
+        private final Path directory;
+        private final Pool pool;
+        private final long bytes;
+        private boolean closed = false;
+
+        private Workspace(Path directory, Pool pool, long bytes) {
+            this.directory = directory;
+            this.pool = pool;
+            this.bytes = bytes;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                pool.release(bytes);
+            }
+        }
+    }
+
+    /**
+     * The quota stayed used up for the whole reserve timeout. Says nothing about
+     * the job itself, so it should run again later rather than fail.
+     */
+    public static class WorkspaceUnavailableException extends IOException {
+        public WorkspaceUnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class Pool {
+        @Getter
+        private final String name;
+        @Getter
+        private final Path root;
+        @Getter
+        private final long capacityBytes;
+        private long reservedBytes = 0;
+
+        private Pool(String name, Path root, long capacityBytes) {
+            this.name = name;
+            this.root = root;
+            this.capacityBytes = capacityBytes;
+        }
+
+        synchronized long getReservedBytes() {
+            return reservedBytes;
+        }
+
+        synchronized boolean tryReserve(long bytes) {
+            // A job larger than the whole quota is let in alone rather than never
+            if (reservedBytes + bytes <= capacityBytes || reservedBytes == 0) {
+                reservedBytes += bytes;
+                return true;
+            }
+            return false;
+        }
+
+        synchronized boolean reserve(long bytes, long timeoutMillis) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (!tryReserve(bytes)) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                wait(remaining);
+            }
+            return true;
+        }
+
+        synchronized void release(long bytes) {
+            reservedBytes -= bytes;
+            notifyAll();
+        }
+    }
+}
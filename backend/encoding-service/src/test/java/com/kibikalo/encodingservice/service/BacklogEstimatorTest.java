@@ -0,0 +1,65 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BacklogEstimatorTest {
+
+    @Test
+    void drainSecondsShouldSpreadWorkOverSlots() {
+        // Given: 2 h queued, two jobs with 10 min left, 4 slots at 50x
+        List<Double> running = List.of(600.0, 600.0);
+
+        // When
+        double drain = BacklogEstimator.drainSeconds(7200, running, 4, 50.0);
+
+        // Then
+        assertEquals(8400 / 200.0, drain, 0.001);
+    }
+
+    @Test
+    void drainSecondsShouldNotBeatLongestRunningJob() {
+        // Given: one long job alone on an 8-slot instance
+        List<Double> running = List.of(3600.0);
+
+        // When
+        double drain = BacklogEstimator.drainSeconds(0, running, 8, 20.0);
+
+        // Then
+        assertEquals(180.0, drain, 0.001);
+    }
+
+    @Test
+    void drainSecondsShouldBeZeroWhenIdle() {
+        // When
+        double drain = BacklogEstimator.drainSeconds(0, List.of(), 2, 20.0);
+
+        // Then
+        assertEquals(0.0, drain, 0.001);
+    }
+
+    @Test
+    void groupLagShouldSumEndMinusCommittedPerPartition() {
+        // Given: partition 1 is fully consumed, the retry topic has nothing committed
+        TopicPartition p0 = new TopicPartition("encoding.requested", 0);
+        TopicPartition p1 = new TopicPartition("encoding.requested", 1);
+        TopicPartition retry = new TopicPartition("encoding.requested-retry-0", 0);
+        Map<TopicPartition, OffsetAndMetadata> committed = Map.of(
+                p0, new OffsetAndMetadata(40),
+                p1, new OffsetAndMetadata(100)
+        );
+        Map<TopicPartition, Long> endOffsets = Map.of(p0, 55L, p1, 100L, retry, 3L);
+
+        // When
+        long lag = KafkaLagMonitor.sumLag(committed, endOffsets);
+
+        // Then
+        assertEquals(15, lag);
+    }
+}
@@ -0,0 +1,83 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitrateLadderSelectorTest {
+
+    private static final List<Integer> LADDER = List.of(64, 96, 128);
+
+    private BitrateLadderSelector selector;
+
+    @BeforeEach
+    void setUp() {
+        selector = new BitrateLadderSelector();
+        ReflectionTestUtils.setField(selector, "adaptive", true);
+        ReflectionTestUtils.setField(selector, "monoMaxKbps", 96);
+        ReflectionTestUtils.setField(selector, "narrowbandSampleRate", 24000);
+        ReflectionTestUtils.setField(selector, "narrowbandMaxKbps", 48);
+    }
+
+    @Test
+    void selectShouldKeepFullLadderWhenProbeIsMissing() {
+        assertEquals(LADDER, selector.select(LADDER, null));
+    }
+
+    @Test
+    void selectShouldKeepFullLadderForLosslessSource() {
+        // Given
+        SourceProbe probe = SourceProbe.builder()
+                .codecName("flac").bitrateKbps(900).channels(2).sampleRate(44100).build();
+
+        // When / Then
+        assertEquals(LADDER, selector.select(LADDER, probe));
+    }
+
+    @Test
+    void selectShouldDropRungsAboveLossySourceBitrate() {
+        // Given
+        SourceProbe probe = SourceProbe.builder()
+                .codecName("mp3").bitrateKbps(100).channels(2).sampleRate(44100).build();
+
+        // When / Then
+        assertEquals(List.of(64, 96), selector.select(LADDER, probe));
+    }
+
+    @Test
+    void selectShouldCapSingleRungWhenSourceIsBelowLadder() {
+        // Given
+        SourceProbe probe = SourceProbe.builder()
+                .codecName("aac").bitrateKbps(32).channels(2).sampleRate(44100).build();
+
+        // When / Then
+        assertEquals(List.of(32), selector.select(LADDER, probe));
+    }
+
+    @Test
+    void selectShouldCapMonoAndNarrowbandSources() {
+        // Given
+        SourceProbe mono = SourceProbe.builder()
+                .codecName("pcm_s16le").bitrateKbps(705).channels(1).sampleRate(44100).build();
+        SourceProbe speech = SourceProbe.builder()
+                .codecName("pcm_s16le").bitrateKbps(256).channels(1).sampleRate(16000).build();
+
+        // When / Then
+        assertEquals(List.of(64, 96), selector.select(LADDER, mono));
+        assertEquals(List.of(48), selector.select(LADDER, speech));
+    }
+
+    @Test
+    void selectShouldKeepFullLadderWhenDisabled() {
+        // Given
+        ReflectionTestUtils.setField(selector, "adaptive", false);
+        SourceProbe probe = SourceProbe.builder().codecName("mp3").bitrateKbps(64).build();
+
+        // When / Then
+        assertEquals(LADDER, selector.select(LADDER, probe));
+    }
+}
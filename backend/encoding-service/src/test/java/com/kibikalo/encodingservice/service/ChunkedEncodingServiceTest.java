@@ -0,0 +1,216 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class ChunkedEncodingServiceTest {
+
+    private static final int TIMESCALE = 48000;
+
+    @TempDir
+    Path tempDir;
+
+    private FFmpegService ffmpegService;
+    private JobCheckpointStore checkpointStore;
+    private ChunkedEncodingService service;
+    private Path outputDirectory;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        ffmpegService = mock(FFmpegService.class);
+        checkpointStore = mock(JobCheckpointStore.class);
+        service = new ChunkedEncodingService(ffmpegService, checkpointStore);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        ReflectionTestUtils.setField(service, "minDurationSeconds", 4L);
+        ReflectionTestUtils.setField(service, "chunkDurationSeconds", 4L);
+        ReflectionTestUtils.setField(service, "preRollSegments", 1);
+        ReflectionTestUtils.setField(service, "configuredParallelism", 2);
+        ReflectionTestUtils.setField(service, "configuredSlots", 1);
+        ReflectionTestUtils.setField(service, "ffmpegThreads", 1);
+        service.init();
+        outputDirectory = Files.createDirectory(tempDir.resolve("out"));
+    }
+
+    @Test
+    void failedChunkShouldWaitForRunningChunksBeforeDeletingTheirDirectories() throws Exception {
+        // Given: chunk 0 fails while chunk 1 is still encoding, and only stops once interrupted
+        CountDownLatch secondChunkStarted = new CountDownLatch(1);
+        AtomicBoolean secondChunkEnded = new AtomicBoolean(false);
+        when(ffmpegService.runDashEncoding(any())).thenAnswer(invocation -> {
+            DashEncodingSpec chunkSpec = invocation.getArgument(0);
+            if (chunkSpec.getJobTag().endsWith("-chunk-000")) {
+                secondChunkStarted.await(5, TimeUnit.SECONDS);
+                return DashEncodingResult.failure();
+            }
+            secondChunkStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.sleep(200); // Still writing when the cancel arrives
+                secondChunkEnded.set(true);
+            }
+            return DashEncodingResult.failure();
+        });
+
+        // When
+        DashEncodingResult result = service.encodeInChunks(spec(), 8000, null);
+
+        // Then
+        assertFalse(result.isSuccess());
+        assertTrue(secondChunkEnded.get());
+        assertFalse(Files.exists(outputDirectory.resolve("chunk-001")));
+    }
+
+    @Test
+    void stitchedSegmentsShouldBeNumberedAndTimedContinuouslyAcrossChunks() throws Exception {
+        // Given: 12 s in three 4 s chunks of 2 s segments, FFmpeg writes real tfdt values
+        List<DashEncodingSpec> chunkSpecs = new ArrayList<>();
+        when(ffmpegService.runDashEncoding(any())).thenAnswer(invocation -> {
+            DashEncodingSpec chunkSpec = invocation.getArgument(0);
+            synchronized (chunkSpecs) {
+                chunkSpecs.add(chunkSpec);
+            }
+            writeFakeChunk(chunkSpec);
+            return DashEncodingResult.success(chunkSpec.getExpectedDurationMillis(), List.of(), 0, null);
+        });
+
+        // When
+        DashEncodingResult result = service.encodeInChunks(spec(), 12000, null);
+
+        // Then: later chunks start one segment early, and only the pre-roll segment is dropped
+        assertTrue(result.isSuccess());
+        assertTrue(chunkSpecs.stream().anyMatch(c -> c.getStartSeconds() == 2.0 && c.getDurationSeconds() == 6.0));
+        assertTrue(chunkSpecs.stream().anyMatch(c -> c.getStartSeconds() == 6.0 && c.getDurationSeconds() == 6.0));
+        for (int number = 1; number <= 6; number++) {
+            Path segment = outputDirectory.resolve(String.format("chunk-stream0-%05d.m4s", number));
+            assertTrue(Files.exists(segment), "missing segment " + number);
+            assertEquals((number - 1) * 2L * TIMESCALE, readTfdt(segment), "tfdt of segment " + number);
+        }
+        assertFalse(Files.exists(outputDirectory.resolve("chunk-stream0-00007.m4s")));
+        assertTrue(Files.exists(outputDirectory.resolve("init-stream0.m4s")));
+        assertTrue(Files.readString(outputDirectory.resolve("manifest.mpd")).contains("mediaPresentationDuration=\"PT12S\""));
+    }
+
+    @Test
+    void chunksWhoseSegmentsAreCheckpointedShouldNotBeEncodedAgain() throws Exception {
+        // Given: the middle chunk's segments (final numbers 3 and 4) are in MinIO, and so is chunk 0's
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        for (int number = 1; number <= 4; number++) {
+            checkpoint.getUploadedObjects().put(String.format("chunk-stream0-%05d.m4s", number), 36L);
+        }
+        when(checkpointStore.isUploaded(eq(checkpoint), anyString(), eq(36L))).thenReturn(true);
+        List<DashEncodingSpec> chunkSpecs = new ArrayList<>();
+        when(ffmpegService.runDashEncoding(any())).thenAnswer(invocation -> {
+            DashEncodingSpec chunkSpec = invocation.getArgument(0);
+            synchronized (chunkSpecs) {
+                chunkSpecs.add(chunkSpec);
+            }
+            writeFakeChunk(chunkSpec);
+            return DashEncodingResult.success(chunkSpec.getExpectedDurationMillis(), List.of(), 0, null);
+        });
+
+        // When
+        DashEncodingResult result = service.encodeInChunks(spec(), 12000, checkpoint);
+
+        // Then: chunk 0 still runs (init segments and manifest), the middle one is skipped
+        assertTrue(result.isSuccess());
+        assertEquals(2, chunkSpecs.size());
+        assertTrue(chunkSpecs.stream().noneMatch(c -> c.getJobTag().endsWith("-chunk-001")));
+        assertFalse(Files.exists(outputDirectory.resolve("chunk-001")));
+        for (int number : new int[]{1, 2, 5, 6}) {
+            Path segment = outputDirectory.resolve(String.format("chunk-stream0-%05d.m4s", number));
+            assertEquals((number - 1) * 2L * TIMESCALE, readTfdt(segment), "tfdt of segment " + number);
+        }
+        assertFalse(Files.exists(outputDirectory.resolve("chunk-stream0-00003.m4s")));
+        assertFalse(Files.exists(outputDirectory.resolve("chunk-stream0-00004.m4s")));
+    }
+
+    @Test
+    void partiallyCheckpointedChunkShouldBeEncodedAgain() throws Exception {
+        // Given: only one of the middle chunk's two segments made it to MinIO
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        checkpoint.getUploadedObjects().put("chunk-stream0-00003.m4s", 36L);
+        when(checkpointStore.isUploaded(eq(checkpoint), anyString(), eq(36L))).thenReturn(true);
+        when(ffmpegService.runDashEncoding(any())).thenAnswer(invocation -> {
+            DashEncodingSpec chunkSpec = invocation.getArgument(0);
+            writeFakeChunk(chunkSpec);
+            return DashEncodingResult.success(chunkSpec.getExpectedDurationMillis(), List.of(), 0, null);
+        });
+
+        // When
+        DashEncodingResult result = service.encodeInChunks(spec(), 12000, checkpoint);
+
+        // Then
+        assertTrue(result.isSuccess());
+        verify(ffmpegService, times(3)).runDashEncoding(any());
+        assertTrue(Files.exists(outputDirectory.resolve("chunk-stream0-00003.m4s")));
+    }
+
+    // One moof > traf > tfdt per segment, decode time on the real timeline like -output_ts_offset gives
+    private static void writeFakeChunk(DashEncodingSpec chunkSpec) throws IOException {
+        Path directory = chunkSpec.getOutputDirectory();
+        double start = chunkSpec.getStartSeconds();
+        int segments = (int) Math.ceil(chunkSpec.getDurationSeconds() / chunkSpec.getSegmentDuration());
+        Files.write(directory.resolve("init-stream0.m4s"), new byte[]{0});
+        Files.writeString(
+                directory.resolve("manifest.mpd"),
+                "<MPD mediaPresentationDuration=\"PT4S\"></MPD>",
+                StandardCharsets.UTF_8
+        );
+        for (int number = 1; number <= segments; number++) {
+            long decodeTime = Math.round((start + (number - 1) * chunkSpec.getSegmentDuration()) * TIMESCALE);
+            ByteBuffer segment = ByteBuffer.allocate(36);
+            segment.putInt(36).put("moof".getBytes(StandardCharsets.US_ASCII));
+            segment.putInt(28).put("traf".getBytes(StandardCharsets.US_ASCII));
+            segment.putInt(20).put("tfdt".getBytes(StandardCharsets.US_ASCII)).putInt(1 << 24).putLong(decodeTime);
+            Files.write(directory.resolve(String.format("chunk-stream0-%05d.m4s", number)), segment.array());
+        }
+    }
+
+    private static long readTfdt(Path segment) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(segment));
+        while (buffer.remaining() >= 8) {
+            int size = buffer.getInt();
+            String type = new String(new byte[]{buffer.get(), buffer.get(), buffer.get(), buffer.get()}, StandardCharsets.US_ASCII);
+            if (type.equals("tfdt")) {
+                int version = buffer.getInt() >>> 24;
+                return version == 1 ? buffer.getLong() : Integer.toUnsignedLong(buffer.getInt());
+            }
+            if (!type.equals("moof") && !type.equals("traf")) {
+                buffer.position(buffer.position() + size - 8); // Skip, only containers are entered
+            }
+        }
+        throw new AssertionError("No tfdt in " + segment);
+    }
+
+    private DashEncodingSpec spec() {
+        return DashEncodingSpec.builder()
+                .inputFile(tempDir.resolve("input.wav"))
+                .outputDirectory(outputDirectory)
+                .manifestName("manifest.mpd")
+                .bitratesKbps(List.of(64))
+                .segmentDuration(2)
+                .codec("libopus")
+                .jobTag("job")
+                .build();
+    }
+}
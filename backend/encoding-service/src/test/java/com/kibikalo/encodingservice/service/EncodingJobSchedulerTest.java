@@ -0,0 +1,109 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EncodingJobSchedulerTest {
+
+    private static final String TOPIC = "encoding.requested";
+
+    @Test
+    void beginDrainShouldPauseTheRequestedTopicAndItsRetryTopics() {
+        // Given
+        MessageListenerContainer main = container(TOPIC);
+        MessageListenerContainer retry = container(TOPIC + "-retry-0");
+        MessageListenerContainer other = container("encoding.requested.audit");
+        KafkaListenerEndpointRegistry registry = mock(KafkaListenerEndpointRegistry.class);
+        when(registry.getListenerContainers()).thenReturn(List.of(main, retry, other));
+        EncodingJobScheduler scheduler = scheduler(registry);
+
+        // When
+        scheduler.beginDrain();
+
+        // Then
+        verify(main).pause();
+        verify(retry).pause();
+        verify(other, never()).pause();
+    }
+
+    @Test
+    void jobWithoutWorkspaceShouldBeQueuedAgainAndOnlyThenAcknowledged() throws Exception {
+        // Given: no workspace on the first run, one on the second
+        EncodingService encodingService = mock(EncodingService.class);
+        EncodingRequestedEvent event = new EncodingRequestedEvent("audio-1", "audio-1/song.mp3", 60, "uploader", null, 1);
+        when(encodingService.processEncodingRequest(event)).thenReturn(false, true);
+        EncodingJobScheduler scheduler = scheduler(encodingService, mock(KafkaListenerEndpointRegistry.class));
+        CountDownLatch acknowledged = new CountDownLatch(1);
+
+        // When
+        scheduler.submit(event, acknowledged::countDown);
+
+        // Then
+        assertTrue(acknowledged.await(5, TimeUnit.SECONDS));
+        verify(encodingService, times(2)).processEncodingRequest(event);
+        scheduler.shutdown();
+    }
+
+    @Test
+    void jobWithoutWorkspaceShouldBeLeftForRedeliveryWhenDraining() throws Exception {
+        // Given
+        EncodingService encodingService = mock(EncodingService.class);
+        EncodingRequestedEvent event = new EncodingRequestedEvent("audio-1", "audio-1/song.mp3", 60, "uploader", null, 1);
+        EncodingJobScheduler scheduler = scheduler(encodingService, mock(KafkaListenerEndpointRegistry.class));
+        CountDownLatch ran = new CountDownLatch(1);
+        when(encodingService.processEncodingRequest(event)).thenAnswer(invocation -> {
+            scheduler.beginDrain(); // Shutdown starts while the job waits for workspace
+            ran.countDown();
+            return false;
+        });
+        Runnable onFinished = mock(Runnable.class);
+
+        // When
+        scheduler.submit(event, onFinished);
+
+        // Then: never acknowledged, never run again
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        assertTrue(scheduler.awaitRunningJobs(Duration.ofSeconds(5)));
+        Thread.sleep(100);
+        verify(encodingService, times(1)).processEncodingRequest(event);
+        verifyNoInteractions(onFinished);
+        scheduler.shutdown();
+    }
+
+    private static EncodingJobScheduler scheduler(KafkaListenerEndpointRegistry registry) {
+        return scheduler(mock(EncodingService.class), registry);
+    }
+
+    private static EncodingJobScheduler scheduler(EncodingService encodingService, KafkaListenerEndpointRegistry registry) {
+        EncodingJobScheduler scheduler = new EncodingJobScheduler(encodingService, registry);
+        ReflectionTestUtils.setField(scheduler, "encodingRequestedTopic", TOPIC);
+        ReflectionTestUtils.setField(scheduler, "configuredSlots", 1);
+        ReflectionTestUtils.setField(scheduler, "ffmpegThreads", 1);
+        ReflectionTestUtils.setField(scheduler, "queueCapacity", 10);
+        ReflectionTestUtils.setField(scheduler, "uploaderWeightsConfig", "");
+        ReflectionTestUtils.setField(scheduler, "agingFactor", 1.0);
+        ReflectionTestUtils.setField(scheduler, "unknownDurationSeconds", 300);
+        ReflectionTestUtils.setField(scheduler, "workspaceRetrySeconds", 0L);
+        scheduler.init();
+        return scheduler;
+    }
+
+    private static MessageListenerContainer container(String topic) {
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        when(container.getContainerProperties()).thenReturn(new ContainerProperties(topic));
+        return container;
+    }
+}
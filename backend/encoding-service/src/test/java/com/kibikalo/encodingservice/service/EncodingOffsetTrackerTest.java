@@ -0,0 +1,104 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodingOffsetTrackerTest {
+
+    private static final String TOPIC = "encoding.requested";
+
+    @Test
+    void completeShouldWaitForEarlierOffsetsOfThePartition() {
+        // Given
+        EncodingOffsetTracker tracker = new EncodingOffsetTracker();
+        List<Long> acknowledged = new ArrayList<>();
+        Runnable first = tracker.track(TOPIC, 0, 10, () -> acknowledged.add(10L));
+        Runnable second = tracker.track(TOPIC, 0, 11, () -> acknowledged.add(11L));
+        Runnable third = tracker.track(TOPIC, 0, 12, () -> acknowledged.add(12L));
+
+        // When
+        third.run();
+        second.run();
+
+        // Then
+        assertTrue(acknowledged.isEmpty());
+        assertEquals(3, tracker.getPendingCount());
+
+        // When
+        first.run();
+
+        // Then
+        assertEquals(List.of(12L), acknowledged);
+        assertEquals(0, tracker.getPendingCount());
+    }
+
+    @Test
+    void completeShouldTrackPartitionsIndependently() {
+        // Given
+        EncodingOffsetTracker tracker = new EncodingOffsetTracker();
+        List<String> acknowledged = new ArrayList<>();
+        tracker.track(TOPIC, 0, 5, () -> acknowledged.add("p0-5"));
+        Runnable otherPartition = tracker.track(TOPIC, 1, 7, () -> acknowledged.add("p1-7"));
+
+        // When
+        otherPartition.run();
+        otherPartition.run();
+
+        // Then
+        assertEquals(List.of("p1-7"), acknowledged);
+        assertEquals(1, tracker.getPendingCount());
+    }
+
+    @Test
+    void forgetShouldDropRevokedPartitionAndIgnoreItsLateCompletions() {
+        // Given
+        EncodingOffsetTracker tracker = new EncodingOffsetTracker();
+        List<Long> acknowledged = new ArrayList<>();
+        Runnable stale = tracker.track(TOPIC, 0, 10, () -> acknowledged.add(-10L));
+        tracker.track(TOPIC, 1, 3, () -> acknowledged.add(3L));
+
+        // When
+        tracker.forget(List.of(new TopicPartition(TOPIC, 0)));
+
+        // Then
+        assertEquals(1, tracker.getPendingCount());
+
+        // When
+        Runnable redelivered = tracker.track(TOPIC, 0, 10, () -> acknowledged.add(10L));
+        stale.run();
+
+        // Then
+        assertTrue(acknowledged.isEmpty());
+        assertEquals(2, tracker.getPendingCount());
+
+        // When
+        redelivered.run();
+
+        // Then
+        assertEquals(List.of(10L), acknowledged);
+        assertEquals(1, tracker.getPendingCount());
+    }
+
+    @Test
+    void trackShouldNotCountARetriedDeliveryTwice() {
+        // Given
+        EncodingOffsetTracker tracker = new EncodingOffsetTracker();
+        List<Long> acknowledged = new ArrayList<>();
+        Runnable first = tracker.track(TOPIC, 0, 4, () -> acknowledged.add(4L));
+        tracker.track(TOPIC, 0, 5, () -> acknowledged.add(-5L)).run(); // Scheduling failed
+
+        // When
+        Runnable retried = tracker.track(TOPIC, 0, 5, () -> acknowledged.add(5L));
+        first.run();
+        retried.run();
+
+        // Then
+        assertEquals(List.of(4L, 5L), acknowledged);
+        assertEquals(0, tracker.getPendingCount());
+    }
+}
@@ -0,0 +1,170 @@
+package com.kibikalo.encodingservice.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+import com.kibikalo.shared.events.EncodingSucceededEvent;
+
+import io.minio.MinioClient;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class EncodingServiceTest {
+
+    private static final String AUDIO_ID = "audio-1";
+
+    @TempDir
+    Path tempDir;
+
+    @InjectMocks
+    private EncodingService encodingService;
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private FFmpegService ffmpegService;
+
+    @Mock
+    private SegmentUploadService segmentUploadService;
+
+    @Mock
+    private MediaProbeService mediaProbeService;
+
+    @Mock
+    private ChunkedEncodingService chunkedEncodingService;
+
+    @Mock
+    private BitrateLadderSelector bitrateLadderSelector;
+
+    @Mock
+    private JobCheckpointStore checkpointStore;
+
+    @Mock
+    private WorkspaceManager workspaceManager;
+
+    @Mock
+    private JobIdempotencyStore idempotencyStore;
+
+    @Mock
+    private RangedDownloadService rangedDownloadService;
+
+    @Mock
+    private KafkaTemplate<String, Object> kafkaTemplate;
+
+    private final EncodingRequestedEvent event =
+            new EncodingRequestedEvent(AUDIO_ID, AUDIO_ID + "/song.mp3", 60, "uploader", null, 1);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(encodingService, "rawBucket", "raw-audio");
+        ReflectionTestUtils.setField(encodingService, "processedBucket", "processed-audio");
+        ReflectionTestUtils.setField(encodingService, "successTopic", "encoding.succeeded");
+        ReflectionTestUtils.setField(encodingService, "failedTopic", "encoding.failed");
+        ReflectionTestUtils.setField(encodingService, "streamableTopic", "encoding.streamable");
+        ReflectionTestUtils.setField(encodingService, "bitratesConfig", "64,128");
+        ReflectionTestUtils.setField(encodingService, "segmentDuration", 4);
+        ReflectionTestUtils.setField(encodingService, "targetCodec", "libopus");
+
+        StatObjectResponse rawStats = mock(StatObjectResponse.class);
+        lenient().when(rawStats.etag()).thenReturn("etag-1"); // Not reached by jobs deferred for workspace
+        when(rawStats.size()).thenReturn(1_000_000L);
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(rawStats);
+        WorkspaceManager.Workspace workspace = mock(WorkspaceManager.Workspace.class);
+        lenient().when(workspace.getDirectory()).thenReturn(Files.createDirectory(tempDir.resolve("workspace")));
+        lenient().when(workspaceManager.acquire(eq(AUDIO_ID), anyLong())).thenReturn(workspace);
+        lenient().when(bitrateLadderSelector.select(any(), any())).thenReturn(List.of(64, 128));
+    }
+
+    @Test
+    void completedCheckpointShouldRepublishWithoutEncoding() {
+        // Given: the previous attempt uploaded everything, then crashed before publishing
+        JobCheckpoint checkpoint = completedCheckpoint();
+        when(checkpointStore.resume(AUDIO_ID, "etag-1", "libopus|4|[64, 128]|single|segments")).thenReturn(checkpoint);
+        when(checkpointStore.isUploaded(checkpoint, "manifest.mpd", 500L)).thenReturn(true);
+
+        // When
+        encodingService.processEncodingRequest(event);
+
+        // Then
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq("encoding.succeeded"), eq(AUDIO_ID), published.capture());
+        EncodingSucceededEvent succeeded = (EncodingSucceededEvent) published.getValue();
+        assertEquals(60_000L, succeeded.getDurationMillis());
+        assertEquals(AUDIO_ID + "/manifest.mpd", succeeded.getManifestPath());
+        assertEquals(AUDIO_ID + "/" + PeaksFile.FILE_NAME, succeeded.getPeaksPath());
+        verifyNoInteractions(ffmpegService, rangedDownloadService, segmentUploadService);
+        assertEquals(JobCheckpoint.Stage.PUBLISHED, checkpoint.getStage());
+        verify(checkpointStore).save(checkpoint);
+        verify(idempotencyStore).markFinished(event);
+    }
+
+    @Test
+    void completedCheckpointWithoutStoredManifestShouldEncodeAgain() throws Exception {
+        // Given: the checkpoint claims completion, but the manifest is not in MinIO
+        JobCheckpoint checkpoint = completedCheckpoint();
+        when(checkpointStore.resume(eq(AUDIO_ID), eq("etag-1"), anyString())).thenReturn(checkpoint);
+        when(checkpointStore.isUploaded(checkpoint, "manifest.mpd", 500L)).thenReturn(false);
+        SegmentUploadSession session = mock(SegmentUploadSession.class);
+        when(segmentUploadService.startSession(eq(AUDIO_ID), any(), eq("manifest.mpd"), any(), eq(false), any(), eq(checkpoint)))
+                .thenReturn(session);
+        when(ffmpegService.runDashEncoding(any())).thenReturn(DashEncodingResult.success(59_980L, List.of(), 10, null));
+
+        // When
+        encodingService.processEncodingRequest(event);
+
+        // Then: the new result replaces the checkpointed one
+        verify(ffmpegService).runDashEncoding(any());
+        verify(session).finish();
+        ArgumentCaptor<Object> published = ArgumentCaptor.forClass(Object.class);
+        verify(kafkaTemplate).send(eq("encoding.succeeded"), eq(AUDIO_ID), published.capture());
+        assertEquals(59_980L, ((EncodingSucceededEvent) published.getValue()).getDurationMillis());
+        assertEquals(59_980L, checkpoint.getDurationMillis());
+        assertEquals(JobCheckpoint.Stage.PUBLISHED, checkpoint.getStage());
+    }
+
+    @Test
+    void jobWithoutWorkspaceShouldBeDeferredWithoutFailingTheTrack() throws Exception {
+        // Given
+        when(workspaceManager.acquire(eq(AUDIO_ID), anyLong()))
+                .thenThrow(new WorkspaceManager.WorkspaceUnavailableException("No workspace capacity"));
+
+        // When
+        boolean finished = encodingService.processEncodingRequest(event);
+
+        // Then: nothing published, the request can run again
+        assertFalse(finished);
+        verifyNoInteractions(kafkaTemplate, ffmpegService);
+        verify(idempotencyStore, never()).markFinished(any());
+    }
+
+    private static JobCheckpoint completedCheckpoint() {
+        JobCheckpoint checkpoint = new JobCheckpoint(AUDIO_ID, "etag-1", "libopus|4|[64, 128]|single|segments");
+        checkpoint.getUploadedObjects().put("chunk-stream0-00001.m4s", 1000L);
+        checkpoint.getUploadedObjects().put(PeaksFile.FILE_NAME, 300L);
+        checkpoint.getUploadedObjects().put("manifest.mpd", 500L);
+        checkpoint.complete(DashEncodingResult.success(60_000L, List.of(), 1234, 5678L));
+        return checkpoint;
+    }
+}
@@ -0,0 +1,165 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+import com.kibikalo.shared.model.EncodingPriority;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncodingWorkQueueTest {
+
+    private final MutableClock clock = new MutableClock();
+
+    @Test
+    void pollShouldServeShortestJobFirst() {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 0, 600, clock);
+        queue.add(request("long", 7200, "u1", null));
+        queue.add(request("short", 30, "u1", null));
+        queue.add(request("medium", 600, "u1", null));
+
+        // When / Then
+        assertEquals("short", queue.poll().getAudioId());
+        assertEquals("medium", queue.poll().getAudioId());
+        assertEquals("long", queue.poll().getAudioId());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void pollShouldServeHighPriorityLaneFirst() {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 0, 600, clock);
+        queue.add(request("normal", 10, "u1", EncodingPriority.NORMAL));
+        queue.add(request("urgent", 7200, "u2", EncodingPriority.HIGH));
+
+        // When / Then
+        assertEquals("urgent", queue.poll().getAudioId());
+        assertEquals("normal", queue.poll().getAudioId());
+    }
+
+    @Test
+    void pollShouldShareCapacityBetweenUploaders() {
+        // Given: a batch of long uploads queued before a single short one
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 0, 600, clock);
+        queue.add(request("batch-1", 3600, "batch", null));
+        queue.add(request("batch-2", 3600, "batch", null));
+        queue.add(request("batch-3", 3600, "batch", null));
+        assertEquals("batch-1", queue.poll().getAudioId());
+        queue.add(request("clip", 3600, "other", null));
+
+        // When / Then: the other uploader goes before the batch continues
+        assertEquals("clip", queue.poll().getAudioId());
+        assertEquals("batch-2", queue.poll().getAudioId());
+    }
+
+    @Test
+    void pollShouldHonourUploaderWeights() {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of("heavy", 3), 0, 600, clock);
+        for (int i = 0; i < 4; i++) {
+            queue.add(request("heavy-" + i, 100, "heavy", null));
+            queue.add(request("light-" + i, 100, "light", null));
+        }
+
+        // When
+        int heavyServed = 0;
+        for (int i = 0; i < 4; i++) {
+            if (queue.poll().getAudioId().startsWith("heavy")) {
+                heavyServed++;
+            }
+        }
+
+        // Then
+        assertEquals(3, heavyServed);
+    }
+
+    @Test
+    void pollShouldAgeLongWaitingJobs() {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 1.0, 600, clock);
+        queue.add(request("long", 1000, "u1", null));
+        clock.advance(Duration.ofSeconds(990));
+        queue.add(request("short", 20, "u1", null));
+
+        // When / Then: 1000 - 990 waited beats 20 - 0 waited
+        assertEquals("long", queue.poll().getAudioId());
+    }
+
+    @Test
+    void pendingDurationShouldTrackQueuedJobs() {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 0, 600, clock);
+        queue.add(request("a", 100, "u1", null));
+        queue.add(request("b", null, "u1", null));
+
+        // When
+        queue.poll();
+
+        // Then
+        assertEquals(1, queue.size());
+        assertEquals(600, queue.getPendingDurationSeconds());
+    }
+
+    @Test
+    void meanDurationShouldCoverEveryAddedJob() {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 0, 600, clock);
+        assertEquals(600.0, queue.getMeanDurationSeconds(), 0.001); // Nothing seen yet
+
+        // When
+        queue.add(request("a", 100, "u1", null));
+        queue.add(request("b", 300, "u1", null));
+        queue.poll();
+
+        // Then: taken jobs still count
+        assertEquals(200.0, queue.getMeanDurationSeconds(), 0.001);
+    }
+
+    @Test
+    void takeShouldReturnNullOnceClosed() throws InterruptedException {
+        // Given
+        EncodingWorkQueue queue = new EncodingWorkQueue(Map.of(), 0, 600, clock);
+
+        // When
+        queue.close();
+
+        // Then
+        assertNull(queue.take());
+    }
+
+    private EncodingRequestedEvent request(String audioId, Integer durationSeconds, String uploaderId,
+                                           EncodingPriority priority) {
+        return new EncodingRequestedEvent(audioId, audioId + "/raw.mp3", durationSeconds, uploaderId, priority, 1);
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2025-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
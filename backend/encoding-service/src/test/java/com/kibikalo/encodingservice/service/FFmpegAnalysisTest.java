@@ -0,0 +1,128 @@
+package com.kibikalo.encodingservice.service;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.kibikalo.shared.dto.SilenceRange;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FFmpegAnalysisTest {
+
+    @Test
+    void acceptShouldCollectPeakLevels() {
+        // Given
+        FFmpegAnalysis analysis = new FFmpegAnalysis(16000, 160);
+
+        // When
+        assertTrue(analysis.accept("[Parsed_ametadata_6 @ 0x5581] frame:0    pts:0       pts_time:0"));
+        assertTrue(analysis.accept("[Parsed_ametadata_6 @ 0x5581] lavfi.astats.Overall.Peak_level=0.000000"));
+        assertTrue(analysis.accept("[Parsed_ametadata_6 @ 0x5581] lavfi.astats.Overall.Peak_level=-6.020600"));
+        assertTrue(analysis.accept("[Parsed_ametadata_6 @ 0x5581] lavfi.astats.Overall.Peak_level=-inf"));
+        AudioAnalysis result = analysis.toAnalysis(30L);
+
+        // Then
+        assertArrayEquals(new byte[] { (byte) 255, (byte) 127, 0 }, result.getPeaks());
+        assertEquals(16000, result.getPeaksSampleRate());
+        assertEquals(160, result.getSamplesPerPeak());
+    }
+
+    @Test
+    void acceptShouldCollectSilencesAndCloseOpenOneAtTheEnd() {
+        // Given
+        FFmpegAnalysis analysis = new FFmpegAnalysis(16000, 160);
+
+        // When
+        analysis.accept("[silencedetect @ 0x55] silence_start: 1.5");
+        analysis.accept("[silencedetect @ 0x55] silence_end: 4.25 | silence_duration: 2.75");
+        analysis.accept("[silencedetect @ 0x55] silence_start: 58");
+        AudioAnalysis result = analysis.toAnalysis(60_000L);
+
+        // Then
+        assertEquals(2, result.getSilences().size());
+        assertEquals(1500, result.getSilences().get(0).getStartMillis());
+        assertEquals(4250, result.getSilences().get(0).getEndMillis());
+        assertEquals(58_000, result.getSilences().get(1).getStartMillis());
+        assertEquals(60_000, result.getSilences().get(1).getEndMillis());
+    }
+
+    @Test
+    void acceptShouldParseLoudnessSummary() {
+        // Given
+        FFmpegAnalysis analysis = new FFmpegAnalysis(16000, 160);
+
+        // When
+        assertFalse(analysis.accept("Input #0, mp3, from 'pipe:0':"));
+        analysis.accept("[Parsed_ebur128_1 @ 0x55] Summary:");
+        analysis.accept("");
+        analysis.accept("  Integrated loudness:");
+        analysis.accept("    I:         -16.4 LUFS");
+        analysis.accept("    Threshold: -26.7 LUFS");
+        analysis.accept("  Loudness range:");
+        analysis.accept("    LRA:         5.3 LU");
+        analysis.accept("    LRA low:   -20.9 LUFS");
+        AudioAnalysis result = analysis.toAnalysis(null);
+
+        // Then
+        assertEquals(-16.4, result.getIntegratedLoudnessLufs(), 0.001);
+        assertEquals(5.3, result.getLoudnessRangeLu(), 0.001);
+        assertTrue(result.getSilences().isEmpty());
+    }
+
+    @Test
+    void acceptShouldLeaveLoudnessSummaryForOtherLines() {
+        // Given
+        FFmpegAnalysis analysis = new FFmpegAnalysis(16000, 160);
+        analysis.accept("[Parsed_ebur128_1 @ 0x55] Summary:");
+        analysis.accept("    I:         -16.4 LUFS");
+
+        // When
+        boolean consumed = analysis.accept("[out#0/dash @ 0x55] Error writing trailer: Broken pipe");
+
+        // Then
+        assertFalse(consumed);
+        assertFalse(analysis.accept("    LRA:         5.3 LU"));
+        assertNull(analysis.toAnalysis(null).getLoudnessRangeLu());
+    }
+
+    @Test
+    void acceptShouldLeaveLoudnessSummaryAfterItsLastField() {
+        // Given
+        FFmpegAnalysis analysis = new FFmpegAnalysis(16000, 160);
+        analysis.accept("[Parsed_ebur128_1 @ 0x55] Summary:");
+        analysis.accept("    LRA:         5.3 LU");
+
+        // When
+        boolean consumed = analysis.accept("    LRA high:  -15.6 LUFS");
+
+        // Then
+        assertTrue(consumed);
+        assertFalse(analysis.accept("    Threshold: -26.7 LUFS"));
+    }
+
+    @Test
+    void mergeShouldOffsetChunksAndJoinSilenceAcrossBoundary() {
+        // Given
+        AudioAnalysis first = new AudioAnalysis(
+                -20.0, 4.0, List.of(new SilenceRange(100L, 10_000L)), 16000, 160, new byte[] { 1, 2 }
+        );
+        AudioAnalysis second = new AudioAnalysis(
+                -20.0, 6.0, List.of(new SilenceRange(0L, 2_000L), new SilenceRange(5_000L, 6_000L)), 16000, 160, new byte[] { 3 }
+        );
+
+        // When
+        AudioAnalysis merged = AudioAnalysis.merge(
+                List.of(first, second), List.of(0L, 10_000L), List.of(10_000L, 8_000L)
+        );
+
+        // Then
+        assertArrayEquals(new byte[] { 1, 2, 3 }, merged.getPeaks());
+        assertEquals(2, merged.getSilences().size());
+        assertEquals(100, merged.getSilences().get(0).getStartMillis());
+        assertEquals(12_000, merged.getSilences().get(0).getEndMillis());
+        assertEquals(15_000, merged.getSilences().get(1).getStartMillis());
+        assertEquals(-20.0, merged.getIntegratedLoudnessLufs(), 0.001);
+        assertNull(merged.getLoudnessRangeLu());
+    }
+}
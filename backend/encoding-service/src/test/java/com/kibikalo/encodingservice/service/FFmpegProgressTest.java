@@ -0,0 +1,72 @@
+package com.kibikalo.encodingservice.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FFmpegProgressTest {
+
+    @Test
+    void acceptShouldParseProgressBlock() {
+        // Given
+        FFmpegProgress progress = new FFmpegProgress("job", 20_000L, 0);
+
+        // When
+        assertFalse(progress.accept("bitrate= 192.4kbits/s"));
+        assertFalse(progress.accept("out_time_us=5000000"));
+        assertFalse(progress.accept("speed=41.7x"));
+        boolean blockEnded = progress.accept("progress=continue");
+
+        // Then
+        assertTrue(blockEnded);
+        assertEquals(5000, progress.getOutTimeMillis());
+        assertEquals(41.7, progress.getSpeed(), 0.001);
+        assertEquals(192.4, progress.getBitrateKbps(), 0.001);
+        assertEquals(25.0, progress.getPercentDone(), 0.001);
+        assertFalse(progress.isEnded());
+    }
+
+    @Test
+    void acceptShouldIgnoreUnavailableValues() {
+        // Given
+        FFmpegProgress progress = new FFmpegProgress("job", null, 0);
+
+        // When
+        progress.accept("out_time_us=N/A");
+        progress.accept("speed=N/A");
+        progress.accept("bitrate=N/A");
+
+        // Then
+        assertEquals(0, progress.getOutTimeMillis());
+        assertTrue(Double.isNaN(progress.getSpeed()));
+        assertTrue(Double.isNaN(progress.getBitrateKbps()));
+        assertTrue(Double.isNaN(progress.getPercentDone()));
+    }
+
+    @Test
+    void acceptShouldRemoveChunkTimelineOffset() {
+        // Given
+        FFmpegProgress progress = new FFmpegProgress("job-chunk-001", 300_000L, 300_000);
+
+        // When
+        progress.accept("out_time_us=450000000");
+
+        // Then
+        assertEquals(150_000, progress.getOutTimeMillis());
+        assertEquals(50.0, progress.getPercentDone(), 0.001);
+    }
+
+    @Test
+    void percentDoneShouldBeCompleteOnEnd() {
+        // Given
+        FFmpegProgress progress = new FFmpegProgress("job", 60_000L, 0);
+
+        // When
+        progress.accept("out_time_us=59980000");
+        progress.accept("progress=end");
+
+        // Then
+        assertTrue(progress.isEnded());
+        assertEquals(100.0, progress.getPercentDone(), 0.001);
+    }
+}
@@ -0,0 +1,161 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import okhttp3.Headers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobCheckpointStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private MinioClient minioClient;
+
+    private JobCheckpointStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new JobCheckpointStore(minioClient, objectMapper);
+        ReflectionTestUtils.setField(store, "processedBucket", "processed-audio");
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "saveIntervalMillis", 60_000L);
+    }
+
+    @Test
+    void resumeShouldReturnStoredCheckpointForSameRawObjectAndSettings() throws Exception {
+        // Given
+        JobCheckpoint stored = new JobCheckpoint("audio-1", "etag-1", "libopus|4|[64]|single|segments");
+        stored.setStage(JobCheckpoint.Stage.SEGMENTS_UPLOADED);
+        stored.getUploadedObjects().put("chunk-stream0-00001.m4s", 1000L);
+        storeReturns(stored);
+
+        // When
+        JobCheckpoint resumed = store.resume("audio-1", "etag-1", "libopus|4|[64]|single|segments");
+
+        // Then
+        assertEquals(JobCheckpoint.Stage.SEGMENTS_UPLOADED, resumed.getStage());
+        assertEquals(1000L, resumed.getUploadedObjects().get("chunk-stream0-00001.m4s"));
+        verify(minioClient, never()).putObject(any());
+    }
+
+    @Test
+    void resumeShouldStartOverWhenRawObjectChanged() throws Exception {
+        // Given
+        JobCheckpoint stored = new JobCheckpoint("audio-1", "etag-old", "key");
+        stored.getUploadedObjects().put("chunk-stream0-00001.m4s", 1000L);
+        storeReturns(stored);
+
+        // When
+        JobCheckpoint resumed = store.resume("audio-1", "etag-new", "key");
+
+        // Then: a fresh checkpoint, saved over the stale one
+        assertEquals("etag-new", resumed.getRawEtag());
+        assertEquals(JobCheckpoint.Stage.STARTED, resumed.getStage());
+        assertTrue(resumed.getUploadedObjects().isEmpty());
+        verify(minioClient).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void resumeShouldStartOverWhenSettingsChanged() throws Exception {
+        // Given
+        storeReturns(new JobCheckpoint("audio-1", "etag-1", "libopus|4|[64]|single|segments"));
+
+        // When
+        JobCheckpoint resumed = store.resume("audio-1", "etag-1", "libopus|4|[64,128]|single|segments");
+
+        // Then
+        assertEquals("libopus|4|[64,128]|single|segments", resumed.getOutputKey());
+        assertEquals(JobCheckpoint.Stage.STARTED, resumed.getStage());
+    }
+
+    @Test
+    void resumeShouldReturnNullWhenDisabled() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(store, "enabled", false);
+
+        // When
+        JobCheckpoint resumed = store.resume("audio-1", "etag-1", "key");
+
+        // Then
+        assertNull(resumed);
+        verifyNoInteractions(minioClient);
+    }
+
+    @Test
+    void isUploadedShouldRequireRecordedAndStoredSizeToMatch() throws Exception {
+        // Given
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        checkpoint.getUploadedObjects().put("chunk-stream0-00001.m4s", 1000L);
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(1000L);
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(stat);
+
+        // When / Then
+        assertTrue(store.isUploaded(checkpoint, "chunk-stream0-00001.m4s", 1000L));
+        assertFalse(store.isUploaded(checkpoint, "chunk-stream0-00001.m4s", 999L)); // Re-encoded differently
+        assertFalse(store.isUploaded(checkpoint, "chunk-stream0-00002.m4s", 1000L)); // Never recorded
+        verify(minioClient, times(1)).statObject(any(StatObjectArgs.class));
+    }
+
+    @Test
+    void isUploadedShouldBeFalseWhenObjectIsGoneOrDifferent() throws Exception {
+        // Given
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        checkpoint.getUploadedObjects().put("a.m4s", 1000L);
+        checkpoint.getUploadedObjects().put("b.m4s", 1000L);
+        StatObjectResponse truncated = mock(StatObjectResponse.class);
+        when(truncated.size()).thenReturn(10L);
+        when(minioClient.statObject(any(StatObjectArgs.class)))
+                .thenReturn(truncated)
+                .thenThrow(new RuntimeException("NoSuchKey"));
+
+        // When / Then
+        assertFalse(store.isUploaded(checkpoint, "a.m4s", 1000L));
+        assertFalse(store.isUploaded(checkpoint, "b.m4s", 1000L));
+    }
+
+    @Test
+    void saveThrottledShouldSkipSavesWithinTheInterval() throws Exception {
+        // Given
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        store.save(checkpoint);
+
+        // When
+        checkpoint.getUploadedObjects().put("chunk-stream0-00001.m4s", 1000L);
+        store.saveThrottled(checkpoint);
+
+        // Then
+        verify(minioClient, times(1)).putObject(any(PutObjectArgs.class));
+    }
+
+    private void storeReturns(JobCheckpoint checkpoint) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(checkpoint);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of(),
+                "processed-audio",
+                null,
+                "_checkpoints/" + checkpoint.getAudioId() + ".json",
+                new ByteArrayInputStream(json)
+        ));
+    }
+}
@@ -0,0 +1,91 @@
+package com.kibikalo.encodingservice.service;
+
+import java.time.ZonedDateTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class JobIdempotencyStoreTest {
+
+    @Mock
+    private MinioClient minioClient;
+
+    private JobIdempotencyStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new JobIdempotencyStore(minioClient);
+        ReflectionTestUtils.setField(store, "processedBucket", "processed-audio");
+        ReflectionTestUtils.setField(store, "enabled", true);
+        ReflectionTestUtils.setField(store, "ttlHours", 24L);
+        ReflectionTestUtils.setField(store, "maxCachedEntries", 2);
+    }
+
+    @Test
+    void finishedRequestShouldNotBeClaimedAgain() throws Exception {
+        // Given
+        EncodingRequestedEvent event = event("audio-1");
+        assertTrue(store.tryClaim(event));
+        assertFalse(store.tryClaim(event)); // Still in flight
+
+        // When
+        store.markFinished(event);
+
+        // Then
+        assertFalse(store.tryClaim(event));
+        verify(minioClient).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void releasedRequestShouldBeClaimable() throws Exception {
+        // Given
+        EncodingRequestedEvent event = event("audio-1");
+        store.tryClaim(event);
+
+        // When
+        store.release(event);
+
+        // Then
+        assertTrue(store.tryClaim(event));
+    }
+
+    @Test
+    void leastRecentlyUsedKeyShouldFallBackToItsMarker() throws Exception {
+        // Given: a and b cached, a used again, then c pushes out the least recently used one
+        store.markFinished(event("a"));
+        store.markFinished(event("b"));
+        assertFalse(store.tryClaim(event("a")));
+        store.markFinished(event("c"));
+        StatObjectResponse marker = mock(StatObjectResponse.class);
+        when(marker.lastModified()).thenReturn(ZonedDateTime.now());
+        when(minioClient.statObject(any(StatObjectArgs.class))).thenReturn(marker);
+
+        // When / Then: a and c answer from memory, b from MinIO
+        assertFalse(store.tryClaim(event("a")));
+        assertFalse(store.tryClaim(event("c")));
+        assertFalse(store.tryClaim(event("b")));
+        verify(minioClient, times(1)).statObject(any(StatObjectArgs.class));
+        verify(minioClient).statObject(argThat((StatObjectArgs args) -> args.object().equals("_idempotency/b/1")));
+    }
+
+    private static EncodingRequestedEvent event(String audioId) {
+        return new EncodingRequestedEvent(audioId, audioId + "/song.mp3", 60, "uploader", null, 1);
+    }
+}
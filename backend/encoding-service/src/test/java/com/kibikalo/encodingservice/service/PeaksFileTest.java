@@ -0,0 +1,64 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeaksFileTest {
+
+    @Test
+    void buildLevelsShouldKeepMaximumOfEachWindow() {
+        // Given
+        byte[] base = { 10, (byte) 200, 30, 40, 50 };
+
+        // When
+        byte[][] levels = PeaksFile.buildLevels(base, 4, 2);
+
+        // Then
+        assertEquals(4, levels.length);
+        assertArrayEquals(base, levels[0]);
+        assertArrayEquals(new byte[] { (byte) 200, 40, 50 }, levels[1]);
+        assertArrayEquals(new byte[] { (byte) 200, 50 }, levels[2]);
+        assertArrayEquals(new byte[] { (byte) 200 }, levels[3]);
+    }
+
+    @Test
+    void buildLevelsShouldStopOnceOnePeakCoversTheTrack() {
+        // Given
+        byte[] base = { 1, 2, 3 };
+
+        // When
+        byte[][] levels = PeaksFile.buildLevels(base, 6, 4);
+
+        // Then
+        assertEquals(2, levels.length);
+        assertArrayEquals(new byte[] { 3 }, levels[1]);
+    }
+
+    @Test
+    void writeShouldProduceHeaderLevelTableAndData() throws IOException {
+        // Given
+        byte[][] levels = PeaksFile.buildLevels(new byte[] { 5, 6, 7, 8 }, 2, 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        PeaksFile.write(out, 16000, 160, levels, 4);
+
+        // Then
+        ByteBuffer file = ByteBuffer.wrap(out.toByteArray());
+        assertEquals(12 + 2 * 8 + 4 + 1, file.remaining());
+        assertEquals("PKS1", new String(out.toByteArray(), 0, 4));
+        assertEquals(16000, file.getInt(4));
+        assertEquals(2, file.getShort(8));
+        assertEquals(160, file.getInt(12));
+        assertEquals(4, file.getInt(16));
+        assertEquals(640, file.getInt(20));
+        assertEquals(1, file.getInt(24));
+        assertEquals(5, file.get(28));
+        assertEquals(8, file.get(32));
+    }
+}
@@ -0,0 +1,157 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import okhttp3.Headers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class RangedDownloadServiceTest {
+
+    private static final int MB = 1024 * 1024;
+    private static final String ETAG = "etag-1";
+
+    @TempDir
+    Path tempDir;
+
+    private final MinioClient minioClient = mock(MinioClient.class);
+    private final byte[] object = new byte[5 * MB + 123];
+    private RangedDownloadService service;
+    private Path destination;
+
+    @BeforeEach
+    void setUp() {
+        new Random(42).nextBytes(object);
+        service = new RangedDownloadService(minioClient, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "partSizeMegabytes", 1L);
+        ReflectionTestUtils.setField(service, "parallelism", 3);
+        ReflectionTestUtils.setField(service, "minParallelSizeMegabytes", 2L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 3);
+        ReflectionTestUtils.setField(service, "retryBackoffMillis", 1L);
+        ReflectionTestUtils.setField(service, "bufferBytes", 8192);
+        service.init();
+        destination = tempDir.resolve("raw.mp3");
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void largeObjectShouldBeFetchedInPartsPinnedToItsEtag() throws Exception {
+        // Given
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> serve(invocation.getArgument(0)));
+
+        // When
+        service.download("raw-audio", "audio-1/raw.mp3", object.length, ETAG, destination);
+
+        // Then: six ranges, the last one short, together the whole object
+        ArgumentCaptor<GetObjectArgs> requests = ArgumentCaptor.forClass(GetObjectArgs.class);
+        verify(minioClient, times(6)).getObject(requests.capture());
+        List<GetObjectArgs> ranges = requests.getAllValues().stream()
+                .sorted((a, b) -> Long.compare(a.offset(), b.offset()))
+                .toList();
+        for (int part = 0; part < 6; part++) {
+            assertEquals((long) part * MB, ranges.get(part).offset());
+            assertEquals(ETAG, ranges.get(part).matchETag());
+        }
+        assertEquals(123L, ranges.get(5).length());
+        assertArrayEquals(object, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void smallObjectShouldUseOnePlainGet() throws Exception {
+        // Given
+        byte[] small = Arrays.copyOf(object, MB);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(response(small));
+
+        // When
+        service.download("raw-audio", "audio-1/raw.mp3", small.length, ETAG, destination);
+
+        // Then
+        ArgumentCaptor<GetObjectArgs> request = ArgumentCaptor.forClass(GetObjectArgs.class);
+        verify(minioClient).getObject(request.capture());
+        assertNull(request.getValue().offset());
+        assertArrayEquals(small, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void failedPartShouldBeFetchedAgainWithTheSameEtag() throws Exception {
+        // Given: the third part's first attempt drops the connection
+        AtomicBoolean failedOnce = new AtomicBoolean(false);
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            if (args.offset() == 2L * MB && failedOnce.compareAndSet(false, true)) {
+                throw new IOException("Connection reset");
+            }
+            return serve(args);
+        });
+
+        // When
+        service.download("raw-audio", "audio-1/raw.mp3", object.length, ETAG, destination);
+
+        // Then
+        ArgumentCaptor<GetObjectArgs> requests = ArgumentCaptor.forClass(GetObjectArgs.class);
+        verify(minioClient, times(7)).getObject(requests.capture());
+        List<GetObjectArgs> thirdPart = requests.getAllValues().stream()
+                .filter(args -> args.offset() == 2L * MB)
+                .toList();
+        assertEquals(2, thirdPart.size());
+        thirdPart.forEach(args -> assertEquals(ETAG, args.matchETag()));
+        assertArrayEquals(object, Files.readAllBytes(destination));
+    }
+
+    @Test
+    void shortRangeShouldFailTheDownloadAndDeleteThePartialFile() throws Exception {
+        // Given: the second part always ends early
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            if (args.offset() == MB) {
+                return response(Arrays.copyOfRange(object, MB, MB + 100));
+            }
+            return serve(args);
+        });
+
+        // When
+        IOException error = assertThrows(
+                IOException.class,
+                () -> service.download("raw-audio", "audio-1/raw.mp3", object.length, ETAG, destination)
+        );
+
+        // Then
+        assertTrue(error.getMessage().contains("after 3 attempt(s)"));
+        assertTrue(error.getMessage().contains("Range ended after 100 of " + MB + " bytes"));
+        assertFalse(Files.exists(destination));
+    }
+
+    private GetObjectResponse serve(GetObjectArgs args) {
+        int from = Math.toIntExact(args.offset());
+        int to = Math.toIntExact(from + args.length());
+        return response(Arrays.copyOfRange(object, from, to));
+    }
+
+    private static GetObjectResponse response(byte[] body) {
+        return new GetObjectResponse(Headers.of(), "raw-audio", null, "audio-1/raw.mp3", new ByteArrayInputStream(body));
+    }
+}
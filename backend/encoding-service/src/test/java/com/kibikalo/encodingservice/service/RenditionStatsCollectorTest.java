@@ -0,0 +1,90 @@
+package com.kibikalo.encodingservice.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.kibikalo.shared.dto.RenditionStats;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenditionStatsCollectorTest {
+
+    @TempDir
+    Path outputDirectory;
+
+    @Test
+    void collectShouldSumSegmentFilesPerRepresentation() throws IOException {
+        // Given
+        write("init-stream0.m4s", 100);
+        write("chunk-stream0-00001.m4s", 1000);
+        write("chunk-stream0-00002.m4s", 1000);
+        write("init-stream1.m4s", 100);
+        write("chunk-stream1-00001.m4s", 2000);
+        write("manifest.mpd", 50);
+
+        // When
+        List<RenditionStats> stats = RenditionStatsCollector.collect(
+                outputDirectory,
+                Map.of("chunk-stream1-00002.m4s", 2000L), // Uploaded by an earlier attempt
+                List.of(64, 128),
+                1000L
+        );
+
+        // Then
+        assertEquals(2100, stats.get(0).getTotalBytes());
+        assertEquals(2, stats.get(0).getSegmentCount());
+        assertEquals(17, stats.get(0).getAverageBitrateKbps()); // 2100 bytes * 8 / 1000 ms
+        assertEquals(4100, stats.get(1).getTotalBytes());
+        assertEquals(2, stats.get(1).getSegmentCount());
+    }
+
+    @Test
+    void collectShouldCountSidxReferencesOfSingleFiles() throws IOException {
+        // Given
+        Path file = outputDirectory.resolve("single-stream0.m4s");
+        ByteBuffer content = ByteBuffer.allocate(16 + 40);
+        box(content, 16, "ftyp").putLong(0);
+        box(content, 40, "sidx")
+                .putInt(0) // version 0, flags
+                .putInt(1) // reference_ID
+                .putInt(48000) // timescale
+                .putInt(0) // earliest_presentation_time
+                .putInt(0) // first_offset
+                .putShort((short) 0) // reserved
+                .putShort((short) 150) // reference_count
+                .putInt(0);
+        Files.write(file, content.array());
+
+        // When
+        List<RenditionStats> stats = RenditionStatsCollector.collect(outputDirectory, List.of(64), 600_000L);
+
+        // Then
+        assertEquals(150, stats.get(0).getSegmentCount());
+        assertEquals(56, stats.get(0).getTotalBytes());
+    }
+
+    @Test
+    void countSidxReferencesShouldReturnZeroWithoutSidx() throws IOException {
+        // Given
+        Path file = write("single-stream0.m4s", 64);
+
+        // When / Then
+        assertEquals(0, RenditionStatsCollector.countSidxReferences(file));
+    }
+
+    private Path write(String name, int size) throws IOException {
+        return Files.write(outputDirectory.resolve(name), new byte[size]);
+    }
+
+    private ByteBuffer box(ByteBuffer buffer, int size, String type) {
+        return buffer.putInt(size).put(type.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,119 @@
+package com.kibikalo.encodingservice.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.minio.MinioClient;
+import io.minio.UploadObjectArgs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SegmentUploadSessionTest {
+
+    @TempDir
+    Path outputDirectory;
+
+    private final ExecutorService uploadExecutor = Executors.newFixedThreadPool(2);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @AfterEach
+    void tearDown() {
+        uploadExecutor.shutdownNow();
+    }
+
+    @Test
+    void finishShouldSkipSegmentsAnEarlierAttemptUploadedAndRecordTheRest() throws Exception {
+        // Given: segment 1 was uploaded before the crash with the same size, segment 2 was not
+        Files.write(outputDirectory.resolve("init-stream0.m4s"), new byte[10]);
+        Files.write(outputDirectory.resolve("chunk-stream0-00001.m4s"), new byte[100]);
+        Files.write(outputDirectory.resolve("chunk-stream0-00002.m4s"), new byte[200]);
+        Files.writeString(outputDirectory.resolve("manifest.mpd"), "<MPD/>");
+        MinioClient minioClient = mock(MinioClient.class);
+        JobCheckpointStore checkpointStore = mock(JobCheckpointStore.class);
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        checkpoint.getUploadedObjects().put("chunk-stream0-00001.m4s", 100L);
+        when(checkpointStore.isUploaded(eq(checkpoint), any(), anyLong())).thenAnswer(invocation ->
+                Long.valueOf(100L).equals(checkpoint.getUploadedObjects().get(invocation.<String>getArgument(1)))
+                        && invocation.<Long>getArgument(2) == 100L
+        );
+
+        // When
+        try (SegmentUploadSession session = session(minioClient, checkpointStore, checkpoint)) {
+            session.finish();
+        }
+
+        // Then
+        ArgumentCaptor<UploadObjectArgs> uploads = ArgumentCaptor.forClass(UploadObjectArgs.class);
+        verify(minioClient, times(3)).uploadObject(uploads.capture());
+        List<String> objects = uploads.getAllValues().stream().map(UploadObjectArgs::object).toList();
+        assertFalse(objects.contains("audio-1/chunk-stream0-00001.m4s"));
+        assertTrue(objects.contains("audio-1/chunk-stream0-00002.m4s"));
+        assertEquals("audio-1/manifest.mpd", objects.get(objects.size() - 1)); // Manifest last
+        assertEquals(200L, checkpoint.getUploadedObjects().get("chunk-stream0-00002.m4s"));
+        assertEquals(10L, checkpoint.getUploadedObjects().get("init-stream0.m4s"));
+        assertTrue(checkpoint.getUploadedObjects().containsKey("manifest.mpd"));
+        assertEquals(JobCheckpoint.Stage.SEGMENTS_UPLOADED, checkpoint.getStage());
+    }
+
+    @Test
+    void finishShouldUploadSegmentWhoseSizeChangedSinceTheCheckpoint() throws Exception {
+        // Given: same name, but this attempt produced a different segment
+        Files.write(outputDirectory.resolve("chunk-stream0-00001.m4s"), new byte[120]);
+        Files.writeString(outputDirectory.resolve("manifest.mpd"), "<MPD/>");
+        MinioClient minioClient = mock(MinioClient.class);
+        JobCheckpointStore checkpointStore = mock(JobCheckpointStore.class);
+        JobCheckpoint checkpoint = new JobCheckpoint("audio-1", "etag-1", "key");
+        checkpoint.getUploadedObjects().put("chunk-stream0-00001.m4s", 100L);
+        when(checkpointStore.isUploaded(checkpoint, "chunk-stream0-00001.m4s", 120L)).thenReturn(false);
+
+        // When
+        try (SegmentUploadSession session = session(minioClient, checkpointStore, checkpoint)) {
+            session.finish();
+        }
+
+        // Then
+        verify(minioClient, times(2)).uploadObject(any(UploadObjectArgs.class));
+        assertEquals(120L, checkpoint.getUploadedObjects().get("chunk-stream0-00001.m4s"));
+    }
+
+    private SegmentUploadSession session(
+            MinioClient minioClient,
+            JobCheckpointStore checkpointStore,
+            JobCheckpoint checkpoint
+    ) {
+        return new SegmentUploadSession(
+                minioClient,
+                "processed-audio",
+                "audio-1/",
+                outputDirectory,
+                "manifest.mpd",
+                null,
+                10,
+                uploadExecutor,
+                2,
+                1,
+                0,
+                DistributionSummary.builder("test.throughput").register(meterRegistry),
+                Counter.builder("test.retries").register(meterRegistry),
+                false,
+                null,
+                checkpointStore,
+                checkpoint
+        );
+    }
+}
@@ -0,0 +1,151 @@
+package com.kibikalo.encodingservice.service;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkspaceManagerTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private WorkspaceManager manager;
+    private Path diskRoot;
+    private Path tmpfsRoot;
+
+    @BeforeEach
+    void setUp() {
+        diskRoot = tempDir.resolve("disk");
+        tmpfsRoot = tempDir.resolve("tmpfs");
+        manager = new WorkspaceManager(meterRegistry);
+        ReflectionTestUtils.setField(manager, "rootConfig", diskRoot.toString());
+        ReflectionTestUtils.setField(manager, "quotaMegabytes", 10L);
+        ReflectionTestUtils.setField(manager, "minFreeMegabytes", 0L);
+        ReflectionTestUtils.setField(manager, "reservationFactor", 2.0);
+        ReflectionTestUtils.setField(manager, "minReservationMegabytes", 1L);
+        ReflectionTestUtils.setField(manager, "reserveTimeoutSeconds", 0L);
+        ReflectionTestUtils.setField(manager, "tmpfsRootConfig", "");
+        ReflectionTestUtils.setField(manager, "tmpfsQuotaMegabytes", 4L);
+        ReflectionTestUtils.setField(manager, "tmpfsMaxJobMegabytes", 2L);
+    }
+
+    @Test
+    void acquireShouldFailWithoutReservingWhenTheQuotaStaysUsedUp() throws Exception {
+        // Given: 4 MiB raw reserves 8 MiB of the 10 MiB quota
+        manager.init();
+        WorkspaceManager.Workspace first = manager.acquire("first", 4 * MB);
+
+        // When / Then: 4 MiB more doesn't fit
+        assertThrows(WorkspaceManager.WorkspaceUnavailableException.class, () -> manager.acquire("second", 2 * MB));
+        assertEquals(8.0 * MB, reservedGauge("disk"));
+
+        // And once the first job is done, it does
+        first.close();
+        try (WorkspaceManager.Workspace second = manager.acquire("second", 2 * MB)) {
+            assertTrue(Files.isDirectory(second.getDirectory()));
+            assertEquals(4.0 * MB, reservedGauge("disk"));
+        }
+        assertEquals(0.0, reservedGauge("disk"));
+    }
+
+    @Test
+    void acquireShouldWaitForAReleaseWithinTheTimeout() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(manager, "reserveTimeoutSeconds", 5L);
+        manager.init();
+        WorkspaceManager.Workspace first = manager.acquire("first", 4 * MB);
+
+        // When
+        CompletableFuture<WorkspaceManager.Workspace> second = CompletableFuture.supplyAsync(() -> {
+            try {
+                return manager.acquire("second", 2 * MB);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        Thread.sleep(200);
+        assertFalse(second.isDone());
+        first.close();
+
+        // Then
+        assertNotNull(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void jobLargerThanTheQuotaShouldBeAdmittedAlone() throws Exception {
+        // Given
+        manager.init();
+
+        // When
+        try (WorkspaceManager.Workspace huge = manager.acquire("huge", 50 * MB)) {
+            // Then: admitted, but nothing else fits next to it
+            assertEquals(100.0 * MB, reservedGauge("disk"));
+            assertThrows(WorkspaceManager.WorkspaceUnavailableException.class, () -> manager.acquire("small", MB));
+        }
+    }
+
+    @Test
+    void smallJobsShouldGoToTmpfsAndLargeOnesToDisk() throws Exception {
+        // Given
+        ReflectionTestUtils.setField(manager, "tmpfsRootConfig", tmpfsRoot.toString());
+        manager.init();
+
+        // When
+        WorkspaceManager.Workspace small = manager.acquire("small", MB / 2);
+        WorkspaceManager.Workspace large = manager.acquire("large", 2 * MB); // 4 MiB > max-job 2 MiB
+
+        // Then
+        assertEquals(tmpfsRoot, small.getDirectory().getParent());
+        assertEquals(diskRoot, large.getDirectory().getParent());
+        assertEquals(1.0 * MB, reservedGauge("tmpfs"));
+        assertEquals(4.0 * MB, reservedGauge("disk"));
+    }
+
+    @Test
+    void smallJobShouldFallBackToDiskWhenTmpfsIsFull() throws Exception {
+        // Given: four 1 MiB jobs fill the 4 MiB tmpfs quota
+        ReflectionTestUtils.setField(manager, "tmpfsRootConfig", tmpfsRoot.toString());
+        manager.init();
+        for (int i = 0; i < 4; i++) {
+            assertEquals(tmpfsRoot, manager.acquire("small-" + i, MB / 2).getDirectory().getParent());
+        }
+
+        // When
+        WorkspaceManager.Workspace fifth = manager.acquire("small-4", MB / 2);
+
+        // Then
+        assertEquals(diskRoot, fifth.getDirectory().getParent());
+    }
+
+    @Test
+    void initShouldRemoveOrphanedWorkspacesOnly() throws Exception {
+        // Given: a crashed job's directory and something else in the root
+        Path orphan = Files.createDirectories(diskRoot.resolve(WorkspaceManager.DIRECTORY_PREFIX + "audio-1-123"));
+        Files.write(orphan.resolve("segment.m4s"), new byte[10]);
+        Path unrelated = Files.createDirectories(diskRoot.resolve("keep"));
+
+        // When
+        manager.init();
+
+        // Then
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(unrelated));
+    }
+
+    private double reservedGauge(String pool) {
+        return meterRegistry.get("encoding.workspace.reserved").tag("pool", pool).gauge().value();
+    }
+}
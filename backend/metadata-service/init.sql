@@ -1,5 +1,7 @@
 -- Drop table if it exists (for easy restarts during dev)
 DROP TABLE IF EXISTS audio_bitrates; -- Drop dependent table first if using @ElementCollection default
+DROP TABLE IF EXISTS audio_renditions;
+DROP TABLE IF EXISTS audio_silences;
 DROP TABLE IF EXISTS audio_metadata;
 
 -- Create the audio_metadata table
@@ -10,12 +12,26 @@ CREATE TABLE audio_metadata (
                                 status VARCHAR(50) NOT NULL,
                                 manifest_path VARCHAR(1024),
                                 duration_millis BIGINT,
+                                uploader_id VARCHAR(255),
+                                priority VARCHAR(20),
     -- New Columns --
                                 segment_base_path VARCHAR(1024),
                                 codec VARCHAR(50),
                                 encoding_timestamp TIMESTAMP WITH TIME ZONE,
                                 raw_file_size BIGINT,
                                 raw_file_format VARCHAR(100),
+                                encode_wall_millis BIGINT,
+                                encode_cpu_millis BIGINT,
+                                source_codec VARCHAR(50),
+                                source_bitrate_kbps INTEGER,
+                                source_channels INTEGER,
+                                source_sample_rate INTEGER,
+                                peaks_path VARCHAR(1024),
+                                integrated_loudness_lufs DOUBLE PRECISION,
+                                loudness_range_lu DOUBLE PRECISION,
+                                content_hash VARCHAR(64) UNIQUE, -- Only on the row owning the encoded output
+                                canonical_audio_id VARCHAR(255), -- Set on duplicates of that row
+                                encoding_attempts INTEGER NOT NULL DEFAULT 0,
     -- ------------- --
                                 created_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP,
                                 updated_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT CURRENT_TIMESTAMP
@@ -27,6 +43,23 @@ CREATE TABLE audio_bitrates (
                                 bitrate_kbps INTEGER
 );
 
+-- Measured output per representation (AudioRendition embeddable)
+CREATE TABLE audio_renditions (
+                                audio_id VARCHAR(255) NOT NULL REFERENCES audio_metadata(id) ON DELETE CASCADE,
+                                representation_id INTEGER,
+                                target_bitrate_kbps INTEGER,
+                                average_bitrate_kbps INTEGER,
+                                total_bytes BIGINT,
+                                segment_count INTEGER
+);
+
+-- Silent ranges found during encoding (AudioSilence embeddable)
+CREATE TABLE audio_silences (
+                                audio_id VARCHAR(255) NOT NULL REFERENCES audio_metadata(id) ON DELETE CASCADE,
+                                start_millis BIGINT,
+                                end_millis BIGINT
+);
+
 -- Optional: Function to update updated_at timestamp automatically
 CREATE OR REPLACE FUNCTION update_updated_at_column()
 RETURNS TRIGGER AS $$
@@ -43,3 +76,4 @@ CREATE TRIGGER update_audio_metadata_updated_at
 
 -- Optional: Indexes
 CREATE INDEX idx_audio_metadata_status ON audio_metadata(status);
+CREATE INDEX idx_audio_metadata_canonical ON audio_metadata(canonical_audio_id);
@@ -1,10 +1,17 @@
 package com.kibikalo.metadataservice;
 
+import com.kibikalo.metadataservice.exception.InvalidEventException;
 import com.kibikalo.metadataservice.model.AudioMetadata;
+import com.kibikalo.metadataservice.model.AudioRendition;
+import com.kibikalo.metadataservice.model.AudioSilence;
 import com.kibikalo.metadataservice.repo.AudioMetadataRepository;
+import com.kibikalo.metadataservice.service.RawObjectCleaner;
+import com.kibikalo.shared.dto.RenditionStats;
+import com.kibikalo.shared.dto.SilenceRange;
 import com.kibikalo.shared.events.AudioUploadedEvent;
 import com.kibikalo.shared.events.EncodingFailedEvent;
 import com.kibikalo.shared.events.EncodingRequestedEvent;
+import com.kibikalo.shared.events.EncodingStreamableEvent;
 import com.kibikalo.shared.events.EncodingSucceededEvent;
 import com.kibikalo.shared.model.AudioStatus;
 import org.springframework.beans.factory.annotation.Value;
@@ -14,6 +21,10 @@ import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
@@ -24,6 +35,7 @@ public class AudioEventListener {
 
     private final AudioMetadataRepository metadataRepository;
     private final KafkaTemplate<String, EncodingRequestedEvent> kafkaTemplate;
+    private final RawObjectCleaner rawObjectCleaner;
 
     @Value("${app.kafka.topic.encoding-requested}")
     private String encodingRequestedTopic;
@@ -32,6 +44,7 @@ public class AudioEventListener {
     private static final String UPLOAD_TOPIC = "audio.uploaded";
     private static final String ENCODING_SUCCEEDED_TOPIC = "encoding.succeeded";
     private static final String ENCODING_FAILED_TOPIC = "encoding.failed";
+    private static final String ENCODING_STREAMABLE_TOPIC = "encoding.streamable";
 
     @KafkaListener(
             topics = UPLOAD_TOPIC,
@@ -52,11 +65,11 @@ public class AudioEventListener {
         // Basic validation
         if (event.getAudioId() == null || event.getRawFilePath() == null) {
             log.error("Received invalid AudioUploadedEvent: {}", event);
-            // Consider sending to a Dead Letter Queue (DLQ)
-            return;
+            throw new InvalidEventException("AudioUploadedEvent without audioId or rawFilePath");
         }
 
-        // Check if metadata already exists (handle potential duplicate messages)
+        // Fast path for redelivered events; a concurrent duplicate that gets past this
+        // fails on the primary key in saveAndFlush below, before anything is published
         if (metadataRepository.existsById(event.getAudioId())) {
             log.warn(
                     "Metadata for audioId: {} already exists. Ignoring duplicate event.",
@@ -72,29 +85,31 @@ public class AudioEventListener {
                     event.getOriginalFileName(),
                     event.getRawFilePath()
             );
-            metadataRepository.save(metadata);
+            metadata.setUploaderId(event.getUploaderId());
+            metadata.setPriority(event.getPriority());
+            if (event.getDurationSeconds() != null) {
+                metadata.setDurationMillis(event.getDurationSeconds() * 1000L);
+            }
+
+            // Identical content was uploaded before: share its output instead of encoding again
+            Optional<AudioMetadata> canonical = event.getContentHash() != null
+                    ? metadataRepository.findByContentHash(event.getContentHash())
+                    : Optional.empty();
+            if (canonical.isPresent()) {
+                linkDuplicate(metadata, canonical.get());
+                return;
+            }
+
+            // A concurrent upload of the same content fails the unique index here and is
+            // redelivered, by then it finds this row and becomes a duplicate
+            metadata.setContentHash(event.getContentHash());
+            metadataRepository.saveAndFlush(metadata);
             log.info(
                     "Saved initial metadata for audioId: {}",
                     event.getAudioId()
             );
 
-            // Create the event to trigger encoding
-            EncodingRequestedEvent encodingEvent = new EncodingRequestedEvent(
-                    event.getAudioId(),
-                    event.getRawFilePath()
-            );
-
-            // Publish EncodingRequestedEvent
-            kafkaTemplate.send(
-                    encodingRequestedTopic,
-                    event.getAudioId(), // Use audioId as key
-                    encodingEvent
-            );
-            log.info(
-                    "Published EncodingRequestedEvent for audioId: {} to topic: {}",
-                    event.getAudioId(),
-                    encodingRequestedTopic
-            );
+            requestEncoding(metadata);
 
         } catch (Exception e) {
             log.error(
@@ -103,9 +118,7 @@ public class AudioEventListener {
                     e.getMessage(),
                     e
             );
-            // Transactional should rollback DB changes.
-            // Consider retry mechanisms or DLQ for Kafka publish failures.
-            // Re-throwing might cause Kafka to redeliver (depending on config)
+            // Transactional rolls back DB changes, the record moves on to the retry topics
             throw new RuntimeException(
                     "Failed to process AudioUploadedEvent",
                     e
@@ -133,15 +146,62 @@ public class AudioEventListener {
             metadata.setEncodingTimestamp(event.getEncodingTimestamp());
             metadata.setRawFileSize(event.getRawFileSize());
             metadata.setRawFileFormat(event.getRawFileFormat());
+            metadata.setRenditions(toRenditions(event.getRenditions()));
+            metadata.setEncodeWallMillis(event.getEncodeWallMillis());
+            metadata.setEncodeCpuMillis(event.getEncodeCpuMillis());
+            metadata.setSourceCodec(event.getSourceCodec());
+            metadata.setSourceBitrateKbps(event.getSourceBitrateKbps());
+            metadata.setSourceChannels(event.getSourceChannels());
+            metadata.setSourceSampleRate(event.getSourceSampleRate());
+            metadata.setPeaksPath(event.getPeaksPath());
+            metadata.setIntegratedLoudnessLufs(event.getIntegratedLoudnessLufs());
+            metadata.setLoudnessRangeLu(event.getLoudnessRangeLu());
+            metadata.setSilences(toSilences(event.getSilences()));
             metadata.setStatus(AudioStatus.AVAILABLE); // Set status to AVAILABLE
             metadataRepository.save(metadata);
             log.info("Metadata updated successfully for audioId: {}", event.getAudioId());
+
+            List<AudioMetadata> duplicates = metadataRepository.findByCanonicalAudioId(metadata.getId());
+            for (AudioMetadata duplicate : duplicates) {
+                copyEncodedOutput(metadata, duplicate);
+            }
+            metadataRepository.saveAll(duplicates);
         }, () -> {
             log.warn("Received EncodingSucceededEvent for unknown audioId: {}. Cannot update metadata.", event.getAudioId());
             // Consider creating metadata here if it makes sense for your flow, or DLQ
         });
     }
 
+    @KafkaListener(
+            topics = ENCODING_STREAMABLE_TOPIC,
+            groupId = "${spring.kafka.consumer.group-id}",
+            properties = {
+                    "spring.json.value.default.type=com.kibikalo.shared.events.EncodingStreamableEvent" }
+    )
+    @Transactional
+    public void handleEncodingStreamableEvent(@Payload EncodingStreamableEvent event) {
+        log.info("Received EncodingStreamableEvent for audioId: {}", event.getAudioId());
+
+        metadataRepository.findById(event.getAudioId()).ifPresentOrElse(metadata -> {
+            // Topics aren't ordered against each other, never step back from a final status
+            if (metadata.getStatus() != AudioStatus.PENDING_ENCODING
+                    && metadata.getStatus() != AudioStatus.ENCODING_IN_PROGRESS) {
+                log.info("Ignoring EncodingStreamableEvent for audioId {} in status {}",
+                        event.getAudioId(), metadata.getStatus());
+                return;
+            }
+            List<AudioMetadata> rows = new ArrayList<>(metadataRepository.findByCanonicalAudioId(metadata.getId()));
+            rows.add(metadata);
+            for (AudioMetadata row : rows) {
+                row.setManifestPath(event.getManifestPath());
+                row.setSegmentBasePath(event.getSegmentBasePath());
+                row.setStatus(AudioStatus.STREAMABLE_PARTIAL);
+            }
+            metadataRepository.saveAll(rows);
+            log.info("audioId {} is streamable while encoding continues", event.getAudioId());
+        }, () -> log.warn("Received EncodingStreamableEvent for unknown audioId: {}", event.getAudioId()));
+    }
+
     @KafkaListener(
             topics = ENCODING_FAILED_TOPIC,
             groupId = "${spring.kafka.consumer.group-id}",
@@ -153,15 +213,151 @@ public class AudioEventListener {
         log.warn("Received EncodingFailedEvent for audioId: {}. Reason: {}", event.getAudioId(), event.getErrorMessage());
 
         metadataRepository.findById(event.getAudioId()).ifPresentOrElse(metadata -> {
+            // A late failure of an older attempt (or a retried record) must not undo a success
+            if (metadata.getStatus() == AudioStatus.AVAILABLE || metadata.getStatus() == AudioStatus.DELETED) {
+                log.info("Ignoring EncodingFailedEvent for audioId {} in status {}",
+                        event.getAudioId(), metadata.getStatus());
+                return;
+            }
             log.info("Updating metadata for failed encoding: {}", event.getAudioId());
             metadata.setStatus(AudioStatus.FAILED_ENCODING); // Set status to FAILED_ENCODING
             // Optionally store error message if you add a field for it
             // metadata.setEncodingError(event.getErrorMessage());
             metadataRepository.save(metadata);
             log.info("Metadata status updated to FAILED_ENCODING for audioId: {}", event.getAudioId());
+
+            List<AudioMetadata> duplicates = metadataRepository.findByCanonicalAudioId(metadata.getId());
+            duplicates.forEach(duplicate -> duplicate.setStatus(AudioStatus.FAILED_ENCODING));
+            metadataRepository.saveAll(duplicates);
         }, () -> {
             log.warn("Received EncodingFailedEvent for unknown audioId: {}. Cannot update metadata.", event.getAudioId());
             // Consider creating metadata here or DLQ
         });
     }
+
+    private void linkDuplicate(AudioMetadata duplicate, AudioMetadata canonical) {
+        String duplicateRawPath = duplicate.getRawFilePath();
+        duplicate.setCanonicalAudioId(canonical.getId());
+        duplicate.setRawFilePath(canonical.getRawFilePath()); // Same bytes, only one copy is kept
+        AudioStatus canonicalStatus = canonical.getStatus();
+        // No usable output to share, give the content another encode on the canonical row
+        boolean reencode = canonicalStatus == AudioStatus.FAILED_ENCODING;
+        if (reencode) {
+            canonical.setStatus(AudioStatus.PENDING_ENCODING);
+            canonical.setEncodingAttempts(canonical.getEncodingAttempts() + 1);
+        } else if (canonicalStatus == AudioStatus.AVAILABLE) {
+            copyEncodedOutput(canonical, duplicate);
+        } else if (canonicalStatus == AudioStatus.STREAMABLE_PARTIAL) {
+            duplicate.setManifestPath(canonical.getManifestPath());
+            duplicate.setSegmentBasePath(canonical.getSegmentBasePath());
+            duplicate.setStatus(AudioStatus.STREAMABLE_PARTIAL);
+        } // Still encoding: stays PENDING_ENCODING until the canonical row's result arrives
+        metadataRepository.saveAndFlush(duplicate);
+        if (reencode) {
+            metadataRepository.save(canonical);
+            publishEncodingRequest(canonical);
+        }
+        if (!duplicateRawPath.equals(canonical.getRawFilePath())) {
+            rawObjectCleaner.deleteAfterCommit(duplicateRawPath);
+        }
+        log.info(
+                "audioId {} has the same content as {} ({}), linked without encoding",
+                duplicate.getId(),
+                canonical.getId(),
+                canonicalStatus
+        );
+    }
+
+    private void copyEncodedOutput(AudioMetadata source, AudioMetadata target) {
+        target.setManifestPath(source.getManifestPath());
+        target.setSegmentBasePath(source.getSegmentBasePath());
+        target.setDurationMillis(source.getDurationMillis());
+        target.setCodec(source.getCodec());
+        target.setBitratesKbps(new ArrayList<>(source.getBitratesKbps()));
+        target.setEncodingTimestamp(source.getEncodingTimestamp());
+        target.setSourceCodec(source.getSourceCodec());
+        target.setSourceBitrateKbps(source.getSourceBitrateKbps());
+        target.setSourceChannels(source.getSourceChannels());
+        target.setSourceSampleRate(source.getSourceSampleRate());
+        List<AudioRendition> renditions = new ArrayList<>();
+        for (AudioRendition rendition : source.getRenditions()) {
+            // Embeddables must not be shared between owners
+            renditions.add(new AudioRendition(
+                    rendition.getRepresentationId(),
+                    rendition.getTargetBitrateKbps(),
+                    rendition.getAverageBitrateKbps(),
+                    rendition.getTotalBytes(),
+                    rendition.getSegmentCount()
+            ));
+        }
+        target.setRenditions(renditions);
+        target.setPeaksPath(source.getPeaksPath());
+        target.setIntegratedLoudnessLufs(source.getIntegratedLoudnessLufs());
+        target.setLoudnessRangeLu(source.getLoudnessRangeLu());
+        List<AudioSilence> silences = new ArrayList<>();
+        for (AudioSilence silence : source.getSilences()) {
+            silences.add(new AudioSilence(silence.getStartMillis(), silence.getEndMillis()));
+        }
+        target.setSilences(silences);
+        target.setStatus(AudioStatus.AVAILABLE);
+    }
+
+    private void requestEncoding(AudioMetadata metadata) {
+        // A new attempt number, so encoding-service doesn't mistake this for a redelivery
+        metadata.setEncodingAttempts(metadata.getEncodingAttempts() + 1);
+        publishEncodingRequest(metadata);
+    }
+
+    private void publishEncodingRequest(AudioMetadata metadata) {
+        String audioId = metadata.getId();
+        // Create the event to trigger encoding
+        EncodingRequestedEvent encodingEvent = new EncodingRequestedEvent(
+                audioId,
+                metadata.getRawFilePath(),
+                metadata.getDurationMillis() != null ? (int) (metadata.getDurationMillis() / 1000) : null,
+                metadata.getUploaderId(),
+                metadata.getPriority(),
+                metadata.getEncodingAttempts()
+        );
+
+        // Publish EncodingRequestedEvent
+        kafkaTemplate.send(
+                encodingRequestedTopic,
+                audioId, // Use audioId as key
+                encodingEvent
+        );
+        log.info(
+                "Published EncodingRequestedEvent for audioId: {} to topic: {}",
+                audioId,
+                encodingRequestedTopic
+        );
+    }
+
+    private List<AudioRendition> toRenditions(List<RenditionStats> renditions) {
+        if (renditions == null) {
+            return new ArrayList<>(); // Events from older encoders don't carry them
+        }
+        List<AudioRendition> result = new ArrayList<>(renditions.size());
+        for (RenditionStats stats : renditions) {
+            result.add(new AudioRendition(
+                    stats.getRepresentationId(),
+                    stats.getTargetBitrateKbps(),
+                    stats.getAverageBitrateKbps(),
+                    stats.getTotalBytes(),
+                    stats.getSegmentCount()
+            ));
+        }
+        return result;
+    }
+
+    private List<AudioSilence> toSilences(List<SilenceRange> silences) {
+        if (silences == null) {
+            return new ArrayList<>(); // Analysis was off or didn't cover the whole track
+        }
+        List<AudioSilence> result = new ArrayList<>(silences.size());
+        for (SilenceRange silence : silences) {
+            result.add(new AudioSilence(silence.getStartMillis(), silence.getEndMillis()));
+        }
+        return result;
+    }
 }
@@ -0,0 +1,20 @@
+package com.kibikalo.metadataservice.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+
+import com.kibikalo.metadataservice.exception.InvalidEventException;
+import com.kibikalo.shared.kafka.RetryTopicConfigSupport;
+
+/**
+ * Retry topics with the shared defaults; invalid events can't succeed on a
+ * retry, so they go straight to the DLT.
+ */
+@Configuration
+public class KafkaRetryConfig extends RetryTopicConfigSupport {
+
+    @Override
+    protected void customize(RetryTopicConfigurationBuilder builder) {
+        builder.notRetryOn(InvalidEventException.class);
+    }
+}
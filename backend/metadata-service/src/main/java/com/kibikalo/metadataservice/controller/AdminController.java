@@ -0,0 +1,39 @@
+package com.kibikalo.metadataservice.controller;
+
+import java.util.concurrent.ExecutionException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.kibikalo.metadataservice.service.DltReplayService;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+@RestController
+@RequestMapping("/api/v1/admin")
+@RequiredArgsConstructor
+@Slf4j
+public class AdminController {
+
+    private final DltReplayService dltReplayService;
+
+    // e.g. POST /api/v1/admin/dlt/audio.uploaded-dlt/replay?max=100
+    @PostMapping("/dlt/{topic}/replay")
+    public ResponseEntity<DltReplayService.ReplayResult> replayDeadLetters(
+            @PathVariable("topic") String topic,
+            @RequestParam(value = "max", defaultValue = "1000") int maxRecords
+    ) throws InterruptedException, ExecutionException {
+        log.info("Received request to replay up to {} records from {}", maxRecords, topic);
+        if (!topic.endsWith(DltReplayService.DLT_SUFFIX) || maxRecords <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expected a <topic>-dlt topic and max > 0");
+        }
+        return ResponseEntity.ok(dltReplayService.replay(topic, maxRecords));
+    }
+}
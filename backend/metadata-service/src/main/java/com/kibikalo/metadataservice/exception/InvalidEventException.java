@@ -0,0 +1,11 @@
+package com.kibikalo.metadataservice.exception;
+
+/**
+ * An event that can never be processed, no matter how often it is retried.
+ * Sends the record straight to the dead-letter topic.
+ */
+public class InvalidEventException extends RuntimeException {
+  public InvalidEventException(String message) {
+    super(message);
+  }
+}
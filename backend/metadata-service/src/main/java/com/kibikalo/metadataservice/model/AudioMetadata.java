@@ -1,10 +1,12 @@
 package com.kibikalo.metadataservice.model;
 
 import com.kibikalo.shared.model.AudioStatus;
+import com.kibikalo.shared.model.EncodingPriority;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 import org.hibernate.annotations.UpdateTimestamp;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.List;
@@ -14,7 +16,7 @@ import java.util.List;
 @Getter
 @Setter
 @NoArgsConstructor
-public class AudioMetadata {
+public class AudioMetadata implements Persistable<String> {
 
     @Id
     @Column(nullable = false, updatable = false)
@@ -40,7 +42,12 @@ public class AudioMetadata {
 
     private Long rawFileSize;
 
-    private Long durationMillis;
+    private Long durationMillis; // Upload validator's estimate until encoding reports the exact value
+
+    private String uploaderId;
+
+    @Enumerated(EnumType.STRING)
+    private EncodingPriority priority;
 
     private String codec;
 
@@ -48,6 +55,33 @@ public class AudioMetadata {
     @CollectionTable(name = "audio_bitrates", joinColumns = @JoinColumn(name = "audio_id"))
     private List<Integer> bitratesKbps;
 
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "audio_renditions", joinColumns = @JoinColumn(name = "audio_id"))
+    private List<AudioRendition> renditions;
+
+    private Long encodeWallMillis;
+
+    private Long encodeCpuMillis;
+
+    private String sourceCodec;
+
+    private Integer sourceBitrateKbps;
+
+    private Integer sourceChannels;
+
+    private Integer sourceSampleRate;
+
+    @Column(length = 1024)
+    private String peaksPath; // Waveform peaks file next to the manifest
+
+    private Double integratedLoudnessLufs; // EBU R128, measured during encoding
+
+    private Double loudnessRangeLu;
+
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "audio_silences", joinColumns = @JoinColumn(name = "audio_id"))
+    private List<AudioSilence> silences;
+
     @CreationTimestamp
     @Column(nullable = false, updatable = false)
     private Instant createdAt;
@@ -58,6 +92,23 @@ public class AudioMetadata {
 
     private Instant encodingTimestamp;
 
+    // SHA-256 of the raw upload. Only the row that owns the encoded output carries it,
+    // so the unique index finds at most one row to share with.
+    @Column(length = 64, unique = true)
+    private String contentHash;
+
+    private String canonicalAudioId; // Set on duplicates, the row whose output they point at
+
+    @Column(nullable = false)
+    private int encodingAttempts = 0; // EncodingRequestedEvents published for this row
+
+    // Makes save() insert instead of merge, so a second row with the same id fails
+    // on the primary key instead of silently overwriting the first
+    @Transient
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private boolean newEntity = false;
+
     public AudioMetadata(
             String id,
             String originalFileName,
@@ -67,5 +118,17 @@ public class AudioMetadata {
         this.originalFileName = originalFileName;
         this.rawFilePath = rawFilePath;
         this.status = AudioStatus.PENDING_ENCODING;
+        this.newEntity = true;
+    }
+
+    @Override
+    public boolean isNew() {
+        return newEntity;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markNotNew() {
+        newEntity = false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package com.kibikalo.metadataservice.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioRendition {
+
+    private Integer representationId;
+
+    private Integer targetBitrateKbps;
+
+    private Integer averageBitrateKbps; // Measured, may differ a lot from the target for VBR codecs
+
+    private Long totalBytes;
+
+    private Integer segmentCount;
+}
@@ -0,0 +1,19 @@
+package com.kibikalo.metadataservice.model;
+
+import jakarta.persistence.Embeddable;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AudioSilence {
+
+    private Long startMillis;
+
+    private Long endMillis;
+}
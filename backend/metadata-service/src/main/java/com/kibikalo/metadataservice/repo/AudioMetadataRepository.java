@@ -3,5 +3,12 @@ package com.kibikalo.metadataservice.repo;
 import com.kibikalo.metadataservice.model.AudioMetadata;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface AudioMetadataRepository extends JpaRepository<AudioMetadata, String> {
-}
\ No newline at end of file
+
+    Optional<AudioMetadata> findByContentHash(String contentHash);
+
+    List<AudioMetadata> findByCanonicalAudioId(String canonicalAudioId);
+}
@@ -0,0 +1,125 @@
+package com.kibikalo.metadataservice.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.stereotype.Service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves records from a dead-letter topic back to the topic they came from, as
+ * raw bytes, so any service's DLT can be replayed once the cause is fixed.
+ * Progress is committed under its own consumer group: a record is replayed once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DltReplayService {
+
+    public static final String DLT_SUFFIX = "-dlt";
+    // Headers added by the retry/DLT machinery, a replayed record starts over without them
+    private static final List<String> RETRY_HEADER_PREFIXES = List.of("kafka_dlt-", "retry_topic-");
+
+    private final KafkaProperties kafkaProperties;
+
+    @Value("${app.kafka.dlt-replay.group-id}")
+    private String groupId;
+
+    @Value("${app.kafka.dlt-replay.poll-timeout-ms}")
+    private long pollTimeoutMillis; // An empty poll this long means the DLT is drained
+
+    public record ReplayResult(String dltTopic, String targetTopic, int replayed) {
+    }
+
+    /**
+     * @param dltTopic   must end with {@value #DLT_SUFFIX}
+     * @param maxRecords replays at most this many records
+     */
+    public synchronized ReplayResult replay(String dltTopic, int maxRecords) throws InterruptedException, ExecutionException {
+        if (!dltTopic.endsWith(DLT_SUFFIX)) {
+            throw new IllegalArgumentException("Not a dead-letter topic: " + dltTopic);
+        }
+        String targetTopic = dltTopic.substring(0, dltTopic.length() - DLT_SUFFIX.length());
+
+        Map<String, Object> consumerProperties = kafkaProperties.buildConsumerProperties(null);
+        consumerProperties.put(ConsumerConfig.GROUP_ID_CONFIG, groupId);
+        consumerProperties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        consumerProperties.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        int replayed = 0;
+        try (
+                KafkaConsumer<String, byte[]> consumer = new KafkaConsumer<>(
+                        consumerProperties, new StringDeserializer(), new ByteArrayDeserializer()
+                );
+                KafkaProducer<String, byte[]> producer = new KafkaProducer<>(
+                        kafkaProperties.buildProducerProperties(null), new StringSerializer(), new ByteArraySerializer()
+                )
+        ) {
+            // Assigned rather than subscribed, no group rebalance to wait for
+            List<TopicPartition> partitions = new ArrayList<>();
+            consumer.partitionsFor(dltTopic).forEach(info -> partitions.add(new TopicPartition(dltTopic, info.partition())));
+            consumer.assign(partitions);
+
+            while (replayed < maxRecords) {
+                ConsumerRecords<String, byte[]> records = consumer.poll(Duration.ofMillis(pollTimeoutMillis));
+                if (records.isEmpty()) {
+                    break;
+                }
+                Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+                List<Future<RecordMetadata>> sends = new ArrayList<>();
+                for (ConsumerRecord<String, byte[]> record : records) {
+                    if (replayed >= maxRecords) {
+                        break;
+                    }
+                    sends.add(producer.send(new ProducerRecord<>(
+                            targetTopic, null, record.key(), record.value(), replayHeaders(record)
+                    )));
+                    offsets.put(
+                            new TopicPartition(record.topic(), record.partition()),
+                            new OffsetAndMetadata(record.offset() + 1)
+                    );
+                    replayed++;
+                }
+                for (Future<RecordMetadata> send : sends) {
+                    send.get(); // Only commit what is safely back on the target topic
+                }
+                consumer.commitSync(offsets);
+            }
+        }
+        log.info("Replayed {} records from {} to {}", replayed, dltTopic, targetTopic);
+        return new ReplayResult(dltTopic, targetTopic, replayed);
+    }
+
+    private RecordHeaders replayHeaders(ConsumerRecord<String, byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header header : record.headers()) {
+            if (RETRY_HEADER_PREFIXES.stream().noneMatch(header.key()::startsWith)) {
+                headers.add(header);
+            }
+        }
+        return headers;
+    }
+}
@@ -40,7 +40,10 @@ public class MetadataService {
         return new AudioMetadataDto(
                 entity.getId(),
                 entity.getStatus(),
-                entity.getManifestPath()
+                entity.getManifestPath(),
+                entity.getPeaksPath(),
+                entity.getIntegratedLoudnessLufs(),
+                entity.getLoudnessRangeLu()
         );
     }
 }
\ No newline at end of file
@@ -0,0 +1,53 @@
+package com.kibikalo.metadataservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Removes raw uploads whose content is already stored under another audioId.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RawObjectCleaner {
+
+    private final MinioClient minioClient;
+
+    @Value("${app.minio.bucket.raw}")
+    private String rawBucket;
+
+    /**
+     * Deletes the object once the current transaction has committed, so a rolled
+     * back (and redelivered) event still finds it. Without a transaction it is
+     * deleted straight away.
+     */
+    public void deleteAfterCommit(String objectKey) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            delete(objectKey);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                delete(objectKey);
+            }
+        });
+    }
+
+    private void delete(String objectKey) {
+        try {
+            minioClient.removeObject(RemoveObjectArgs.builder().bucket(rawBucket).object(objectKey).build());
+            log.info("Deleted duplicate raw object {} from bucket {}", objectKey, rawBucket);
+        } catch (Exception e) {
+            // The row already points at the shared object, this one is only wasted space
+            log.warn("Failed to delete duplicate raw object {}: {}", objectKey, e.getMessage());
+        }
+    }
+}
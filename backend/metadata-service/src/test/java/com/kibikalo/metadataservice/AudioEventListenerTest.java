@@ -0,0 +1,201 @@
+package com.kibikalo.metadataservice;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kibikalo.metadataservice.model.AudioMetadata;
+import com.kibikalo.metadataservice.repo.AudioMetadataRepository;
+import com.kibikalo.metadataservice.service.RawObjectCleaner;
+import com.kibikalo.shared.events.AudioUploadedEvent;
+import com.kibikalo.shared.events.EncodingFailedEvent;
+import com.kibikalo.shared.events.EncodingRequestedEvent;
+import com.kibikalo.shared.model.AudioStatus;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AudioEventListenerTest {
+
+    private static final String HASH = "ab".repeat(32);
+
+    @InjectMocks
+    private AudioEventListener listener;
+
+    @Mock
+    private AudioMetadataRepository metadataRepository;
+
+    @Mock
+    private KafkaTemplate<String, EncodingRequestedEvent> kafkaTemplate;
+
+    @Mock
+    private RawObjectCleaner rawObjectCleaner;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(listener, "encodingRequestedTopic", "encoding.requested");
+    }
+
+    @Test
+    void newContentShouldBeStoredWithItsHashAndEncoded() {
+        // Given
+        when(metadataRepository.findByContentHash(HASH)).thenReturn(Optional.empty());
+
+        // When
+        listener.handleAudioUploadedEvent(uploaded("new-id"));
+
+        // Then
+        ArgumentCaptor<AudioMetadata> saved = ArgumentCaptor.forClass(AudioMetadata.class);
+        verify(metadataRepository).saveAndFlush(saved.capture());
+        assertEquals(HASH, saved.getValue().getContentHash());
+        assertNull(saved.getValue().getCanonicalAudioId());
+        verify(kafkaTemplate).send(eq("encoding.requested"), eq("new-id"), any(EncodingRequestedEvent.class));
+        verifyNoInteractions(rawObjectCleaner);
+    }
+
+    @Test
+    void duplicateOfAvailableContentShouldShareItsOutputAndDropItsRawObject() {
+        // Given
+        AudioMetadata canonical = canonical(AudioStatus.AVAILABLE);
+        when(metadataRepository.findByContentHash(HASH)).thenReturn(Optional.of(canonical));
+
+        // When
+        listener.handleAudioUploadedEvent(uploaded("dup-id"));
+
+        // Then
+        ArgumentCaptor<AudioMetadata> saved = ArgumentCaptor.forClass(AudioMetadata.class);
+        verify(metadataRepository).saveAndFlush(saved.capture());
+        AudioMetadata duplicate = saved.getValue();
+        assertEquals("canonical-id", duplicate.getCanonicalAudioId());
+        assertEquals(AudioStatus.AVAILABLE, duplicate.getStatus());
+        assertEquals("canonical-id/manifest.mpd", duplicate.getManifestPath());
+        assertEquals("canonical-id/song.mp3", duplicate.getRawFilePath());
+        assertNull(duplicate.getContentHash());
+        verify(rawObjectCleaner).deleteAfterCommit("dup-id/song.mp3");
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    void duplicateOfContentStillEncodingShouldWaitForItsResult() {
+        // Given
+        AudioMetadata canonical = canonical(AudioStatus.ENCODING_IN_PROGRESS);
+        when(metadataRepository.findByContentHash(HASH)).thenReturn(Optional.of(canonical));
+
+        // When
+        listener.handleAudioUploadedEvent(uploaded("dup-id"));
+
+        // Then
+        ArgumentCaptor<AudioMetadata> saved = ArgumentCaptor.forClass(AudioMetadata.class);
+        verify(metadataRepository).saveAndFlush(saved.capture());
+        assertEquals(AudioStatus.PENDING_ENCODING, saved.getValue().getStatus());
+        assertNull(saved.getValue().getManifestPath());
+        verify(rawObjectCleaner).deleteAfterCommit("dup-id/song.mp3");
+        verify(kafkaTemplate, never()).send(anyString(), anyString(), any());
+    }
+
+    @Test
+    void duplicateOfFailedContentShouldReencodeTheCanonicalRow() {
+        // Given
+        AudioMetadata canonical = canonical(AudioStatus.FAILED_ENCODING);
+        canonical.setEncodingAttempts(1);
+        when(metadataRepository.findByContentHash(HASH)).thenReturn(Optional.of(canonical));
+
+        // When
+        listener.handleAudioUploadedEvent(uploaded("dup-id"));
+
+        // Then: a new attempt for the canonical row, never one for the duplicate
+        assertEquals(AudioStatus.PENDING_ENCODING, canonical.getStatus());
+        assertEquals(2, canonical.getEncodingAttempts());
+        ArgumentCaptor<EncodingRequestedEvent> request = ArgumentCaptor.forClass(EncodingRequestedEvent.class);
+        verify(kafkaTemplate).send(eq("encoding.requested"), eq("canonical-id"), request.capture());
+        assertEquals("canonical-id/song.mp3", request.getValue().getRawFilePath());
+        verify(rawObjectCleaner).deleteAfterCommit("dup-id/song.mp3");
+    }
+
+    @Test
+    void redeliveredUploadShouldNotBeLinkedAgain() {
+        // Given
+        when(metadataRepository.existsById("dup-id")).thenReturn(true);
+
+        // When
+        listener.handleAudioUploadedEvent(uploaded("dup-id"));
+
+        // Then
+        verify(metadataRepository, never()).findByContentHash(anyString());
+        verifyNoInteractions(rawObjectCleaner, kafkaTemplate);
+    }
+
+    @Test
+    void lateFailureShouldNotOverwriteAvailableTrack() {
+        // Given
+        AudioMetadata metadata = canonical(AudioStatus.AVAILABLE);
+        when(metadataRepository.findById("canonical-id")).thenReturn(Optional.of(metadata));
+
+        // When
+        listener.handleEncodingFailedEvent(new EncodingFailedEvent("canonical-id", "FFmpeg encoding failed.", Instant.now()));
+
+        // Then
+        assertEquals(AudioStatus.AVAILABLE, metadata.getStatus());
+        verify(metadataRepository, never()).save(any());
+        verify(metadataRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void failureShouldMarkTrackAndItsDuplicatesFailed() {
+        // Given
+        AudioMetadata metadata = canonical(AudioStatus.ENCODING_IN_PROGRESS);
+        AudioMetadata duplicate = new AudioMetadata("dup-id", "song.mp3", "canonical-id/song.mp3");
+        duplicate.setStatus(AudioStatus.PENDING_ENCODING);
+        when(metadataRepository.findById("canonical-id")).thenReturn(Optional.of(metadata));
+        when(metadataRepository.findByCanonicalAudioId("canonical-id")).thenReturn(List.of(duplicate));
+
+        // When
+        listener.handleEncodingFailedEvent(new EncodingFailedEvent("canonical-id", "FFmpeg encoding failed.", Instant.now()));
+
+        // Then
+        assertEquals(AudioStatus.FAILED_ENCODING, metadata.getStatus());
+        assertEquals(AudioStatus.FAILED_ENCODING, duplicate.getStatus());
+        verify(metadataRepository).save(metadata);
+    }
+
+    private static AudioUploadedEvent uploaded(String audioId) {
+        return new AudioUploadedEvent(
+                audioId,
+                audioId + "/song.mp3",
+                "song.mp3",
+                Instant.now(),
+                HASH,
+                180,
+                "uploader",
+                null
+        );
+    }
+
+    private static AudioMetadata canonical(AudioStatus status) {
+        AudioMetadata canonical = new AudioMetadata("canonical-id", "song.mp3", "canonical-id/song.mp3");
+        canonical.setContentHash(HASH);
+        canonical.setStatus(status);
+        if (status == AudioStatus.AVAILABLE) {
+            canonical.setManifestPath("canonical-id/manifest.mpd");
+            canonical.setBitratesKbps(new ArrayList<>(List.of(64, 128)));
+            canonical.setRenditions(new ArrayList<>());
+            canonical.setSilences(new ArrayList<>());
+        }
+        return canonical;
+    }
+}
@@ -12,4 +12,7 @@ public class AudioMetadataDto {
     private String id;
     private AudioStatus status;
     private String manifestPath;
+    private String peaksPath; // Waveform peaks, served through streaming-service; null if not analysed
+    private Double integratedLoudnessLufs;
+    private Double loudnessRangeLu;
 }
@@ -0,0 +1,16 @@
+package com.kibikalo.shared.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenditionStats {
+    private Integer representationId; // $RepresentationID$ in the segment names
+    private Integer targetBitrateKbps; // Requested from the encoder
+    private Integer averageBitrateKbps; // Measured from the bytes actually written
+    private Long totalBytes; // Init segment + media segments
+    private Integer segmentCount; // Media segments only
+}
@@ -0,0 +1,13 @@
+package com.kibikalo.shared.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SilenceRange {
+    private Long startMillis;
+    private Long endMillis;
+}
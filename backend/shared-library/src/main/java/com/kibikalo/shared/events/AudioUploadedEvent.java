@@ -1,5 +1,6 @@
 package com.kibikalo.shared.events;
 
+import com.kibikalo.shared.model.EncodingPriority;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,5 +15,9 @@ public class AudioUploadedEvent {
     private String rawFilePath;
     private String originalFileName;
     private Instant uploadTimestamp;
+    private String contentHash; // Hex SHA-256 of the raw bytes, used to skip re-encoding duplicates
+    private Integer durationSeconds; // Measured by the upload validator
+    private String uploaderId; // Tenant the encoding scheduler shares capacity by, may be null
+    private EncodingPriority priority;
 }
 
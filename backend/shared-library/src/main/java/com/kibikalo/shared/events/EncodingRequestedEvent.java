@@ -1,5 +1,6 @@
 package com.kibikalo.shared.events;
 
+import com.kibikalo.shared.model.EncodingPriority;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -10,4 +11,8 @@ import lombok.NoArgsConstructor;
 public class EncodingRequestedEvent {
     private String audioId;
     private String rawFilePath;
+    private Integer durationSeconds; // Job size estimate for shortest-job-first, may be null
+    private String uploaderId; // Fairness key, null is treated as one anonymous uploader
+    private EncodingPriority priority; // Null is treated as NORMAL
+    private Integer attempt; // Counts encoding requests per audioId, redeliveries of one request share it
 }
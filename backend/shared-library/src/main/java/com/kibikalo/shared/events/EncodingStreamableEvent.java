@@ -0,0 +1,21 @@
+package com.kibikalo.shared.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Sent once per progressive encode, when the first manifest (dynamic) is in the
+ * processed bucket. EncodingSucceededEvent still follows when encoding ends.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EncodingStreamableEvent {
+    private String audioId;
+    private String manifestPath; // Same object that becomes the static manifest later
+    private String segmentBasePath;
+    private Instant streamableTimestamp;
+}
@@ -1,5 +1,7 @@
 package com.kibikalo.shared.events;
 
+import com.kibikalo.shared.dto.RenditionStats;
+import com.kibikalo.shared.dto.SilenceRange;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -15,9 +17,20 @@ public class EncodingSucceededEvent {
     private String manifestPath; // e.g., processed-audio/{audioId}/manifest.mpd
     private String segmentBasePath; // e.g., processed-audio/{audioId}/
     private Long durationMillis; // Extracted during encoding
-    private List<Integer> bitratesKbps; // e.g., [64, 128]
+    private List<Integer> bitratesKbps; // Ladder actually encoded, e.g., [64, 128]
     private String codec; // e.g., "aac"
     private Instant encodingTimestamp;
     private Long rawFileSize; // Size in bytes
     private String rawFileFormat; // Content type (e.g., "audio/wav")
+    private List<RenditionStats> renditions; // What was actually produced per bitrate
+    private Long encodeWallMillis; // FFmpeg wall time, summed over chunks' elapsed span
+    private Long encodeCpuMillis; // FFmpeg CPU time (user + system), summed over chunks
+    private String sourceCodec; // Probed from the raw upload, drives the ladder selection
+    private Integer sourceBitrateKbps;
+    private Integer sourceChannels;
+    private Integer sourceSampleRate;
+    private String peaksPath; // e.g., {audioId}/peaks.bin, null if analysis was off or incomplete
+    private Double integratedLoudnessLufs; // EBU R128
+    private Double loudnessRangeLu;
+    private List<SilenceRange> silences;
 }
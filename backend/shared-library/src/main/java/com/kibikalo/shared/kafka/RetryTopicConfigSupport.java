@@ -0,0 +1,69 @@
+package com.kibikalo.shared.kafka;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.retrytopic.RetryTopicConfiguration;
+import org.springframework.kafka.retrytopic.RetryTopicConfigurationBuilder;
+import org.springframework.kafka.support.serializer.DelegatingByTypeSerializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+/**
+ * Non-blocking retries for every listener of a service: a failed record moves
+ * to {@code <topic>-retry-N} with exponential backoff and finally to
+ * {@code <topic>-dlt}, so the main partition keeps flowing meanwhile. Records
+ * that can't be deserialized skip the retries. Backoff comes from
+ * {@code app.kafka.retry.*}; services extend this in a {@code @Configuration}
+ * and add their own rules in {@link #customize}.
+ */
+public abstract class RetryTopicConfigSupport {
+
+    @Value("${app.kafka.retry.attempts}")
+    private int attempts; // Including the first delivery
+
+    @Value("${app.kafka.retry.initial-delay-ms}")
+    private long initialDelayMillis;
+
+    @Value("${app.kafka.retry.multiplier}")
+    private double multiplier;
+
+    @Value("${app.kafka.retry.max-delay-ms}")
+    private long maxDelayMillis;
+
+    @Bean
+    public RetryTopicConfiguration retryTopicConfiguration(KafkaProperties kafkaProperties) {
+        RetryTopicConfigurationBuilder builder = RetryTopicConfigurationBuilder.newInstance()
+                .maxAttempts(attempts)
+                .exponentialBackoff(initialDelayMillis, multiplier, maxDelayMillis)
+                .suffixTopicsWithIndexValues();
+        customize(builder);
+        return builder.create(retryTemplate(kafkaProperties));
+    }
+
+    /**
+     * Service-specific rules, e.g. exceptions that go straight to the DLT.
+     */
+    protected void customize(RetryTopicConfigurationBuilder builder) {
+    }
+
+    // Poison records arrive as raw bytes (ErrorHandlingDeserializer) and must reach the DLT unchanged.
+    // Not a bean, that would replace the auto-configured KafkaTemplate the listeners publish with.
+    private KafkaTemplate<String, Object> retryTemplate(KafkaProperties kafkaProperties) {
+        Map<Class<?>, Serializer<?>> serializers = new LinkedHashMap<>();
+        serializers.put(byte[].class, new ByteArraySerializer());
+        serializers.put(Object.class, new JsonSerializer<>());
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                kafkaProperties.buildProducerProperties(null),
+                new StringSerializer(),
+                new DelegatingByTypeSerializer(serializers, true)
+        ));
+    }
+}
@@ -0,0 +1,6 @@
+package com.kibikalo.shared.model;
+
+public enum EncodingPriority {
+    NORMAL, // Shortest-job-first, shared fairly between uploaders
+    HIGH // Separate lane, always dispatched before NORMAL work
+}
@@ -50,6 +50,14 @@ public class StreamingController {
         }
     }
 
+    // Waveform peaks (see PeaksFile in encoding-service for the format), errors go to the handlers below
+    @GetMapping("/{audioId}/peaks.bin")
+    public ResponseEntity<Void> getPeaksRedirect(@PathVariable("audioId") String audioId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(URI.create(streamingService.getPeaksUrl(audioId)));
+        return new ResponseEntity<>(headers, HttpStatus.FOUND);
+    }
+
     // Optional: Centralized exception handling within controller
     // Or use @ControllerAdvice for global handling
 
@@ -35,27 +35,17 @@ public class StreamingService {
     public String getManifestUrl(String audioId) {
         log.info("Request received for manifest URL for audioId: {}", audioId);
 
-        AudioMetadataDto metadata;
-        try {
-            log.debug("Querying metadata service for audioId: {}", audioId);
-            metadata = metadataServiceClient.getMetadata(audioId);
-            log.debug("Received metadata: Status={}, Path={}", metadata.getStatus(), metadata.getManifestPath());
-        } catch (FeignException.NotFound e) {
-            log.warn("Metadata not found for audioId: {}", audioId);
-            throw new ResourceNotFoundException("Audio metadata not found for ID: " + audioId);
-        } catch (Exception e) {
-            log.error("Error calling metadata service for audioId {}: {}", audioId, e.getMessage(), e);
-            // Treat other errors as temporary unavailability
-            throw new ResourceNotReadyException("Could not retrieve metadata for ID: " + audioId);
-        }
+        AudioMetadataDto metadata = fetchMetadata(audioId);
 
-        if (metadata.getStatus() != AudioStatus.AVAILABLE) {
+        // A partial track plays from its dynamic manifest, which FFmpeg turns static at the end
+        if (metadata.getStatus() != AudioStatus.AVAILABLE
+                && metadata.getStatus() != AudioStatus.STREAMABLE_PARTIAL) {
             log.warn("AudioId {} is not available for streaming. Status: {}", audioId, metadata.getStatus());
             throw new ResourceNotReadyException("Audio is not yet available for streaming. Status: " + metadata.getStatus());
         }
 
         if (metadata.getManifestPath() == null || metadata.getManifestPath().isBlank()) {
-            log.error("AudioId {} is AVAILABLE but manifest path is missing!", audioId);
+            log.error("AudioId {} is {} but manifest path is missing!", audioId, metadata.getStatus());
             throw new ResourceNotReadyException("Manifest path missing for available audio: " + audioId);
         }
 
@@ -80,6 +70,46 @@ public class StreamingService {
 //        return directUrl;
     }
 
+    /**
+     * The waveform peaks file is written once encoding has finished, so only
+     * available tracks have one; the bucket policy doesn't expose it anonymously.
+     */
+    public String getPeaksUrl(String audioId) {
+        log.info("Request received for peaks URL for audioId: {}", audioId);
+
+        AudioMetadataDto metadata = fetchMetadata(audioId);
+        if (metadata.getStatus() != AudioStatus.AVAILABLE) {
+            throw new ResourceNotReadyException("Audio is not yet available. Status: " + metadata.getStatus());
+        }
+        if (metadata.getPeaksPath() == null || metadata.getPeaksPath().isBlank()) {
+            throw new ResourceNotFoundException("No waveform peaks for audio ID: " + audioId);
+        }
+
+        try {
+            return generatePresignedUrl(metadata.getPeaksPath());
+        } catch (Exception e) {
+            log.error("Failed to generate pre-signed URL for audioId {} path {}: {}",
+                    audioId, metadata.getPeaksPath(), e.getMessage(), e);
+            throw new RuntimeException("Failed to prepare peaks URL for ID: " + audioId);
+        }
+    }
+
+    private AudioMetadataDto fetchMetadata(String audioId) {
+        try {
+            log.debug("Querying metadata service for audioId: {}", audioId);
+            AudioMetadataDto metadata = metadataServiceClient.getMetadata(audioId);
+            log.debug("Received metadata: Status={}, Path={}", metadata.getStatus(), metadata.getManifestPath());
+            return metadata;
+        } catch (FeignException.NotFound e) {
+            log.warn("Metadata not found for audioId: {}", audioId);
+            throw new ResourceNotFoundException("Audio metadata not found for ID: " + audioId);
+        } catch (Exception e) {
+            log.error("Error calling metadata service for audioId {}: {}", audioId, e.getMessage(), e);
+            // Treat other errors as temporary unavailability
+            throw new ResourceNotReadyException("Could not retrieve metadata for ID: " + audioId);
+        }
+    }
+
     private String generatePresignedUrl(String objectName) throws Exception {
         log.debug("Generating pre-signed URL for object: {} in bucket: {}", objectName, processedBucket);
         return minioClient.getPresignedObjectUrl(
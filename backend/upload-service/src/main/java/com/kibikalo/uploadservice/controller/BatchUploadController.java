@@ -0,0 +1,65 @@
+package com.kibikalo.uploadservice.controller;
+
+import java.util.List;
+
+import com.kibikalo.shared.model.EncodingPriority;
+import com.kibikalo.uploadservice.service.BatchUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Bulk imports. Both endpoints answer 200 with one result per item, in request
+ * order; only a malformed batch as a whole is rejected.
+ * <p>
+ * The multipart endpoint is for small batches: the whole request counts against
+ * {@code spring.servlet.multipart.max-request-size}, the same limit a single
+ * upload has. Large imports put the files into the raw bucket first (e.g. with
+ * direct uploads or a MinIO client) and send a manifest to {@code /staged}.
+ */
+@RestController
+@RequestMapping("/api/v1/upload/batch")
+@RequiredArgsConstructor
+@Slf4j
+public class BatchUploadController {
+
+    private final BatchUploadService batchUploadService;
+
+    @PostMapping(consumes = "multipart/form-data")
+    public ResponseEntity<List<BatchUploadService.ItemResult>> uploadFiles(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestHeader(value = "X-Uploader-Id", required = false) String uploaderId, // Set by the gateway
+            @RequestHeader(value = "X-Upload-Priority", defaultValue = "NORMAL") EncodingPriority priority // Set by the gateway
+    ) {
+        log.info("Received batch upload request with {} files", files.size());
+        try {
+            return ResponseEntity.ok(batchUploadService.uploadFiles(files, uploaderId, priority));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    // Manifest of objects already in the raw bucket, e.g. [{"objectKey": "imports/2019/track.flac"}]
+    @PostMapping(path = "/staged", consumes = "application/json")
+    public ResponseEntity<List<BatchUploadService.ItemResult>> importStaged(
+            @RequestBody List<BatchUploadService.StagedItem> items,
+            @RequestHeader(value = "X-Uploader-Id", required = false) String uploaderId, // Set by the gateway
+            @RequestHeader(value = "X-Upload-Priority", defaultValue = "NORMAL") EncodingPriority priority // Set by the gateway
+    ) {
+        log.info("Received staged import request with {} items", items.size());
+        try {
+            return ResponseEntity.ok(batchUploadService.importStaged(items, uploaderId, priority));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+}
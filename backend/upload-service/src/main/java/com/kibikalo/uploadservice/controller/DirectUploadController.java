@@ -0,0 +1,64 @@
+package com.kibikalo.uploadservice.controller;
+
+import java.util.NoSuchElementException;
+
+import com.kibikalo.shared.model.EncodingPriority;
+import com.kibikalo.uploadservice.service.DirectUploadService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Direct-to-storage uploads: the client asks for a ticket, POSTs the file to
+ * MinIO with the ticket's form fields, then calls complete.
+ */
+@RestController
+@RequestMapping("/api/v1/upload/direct")
+@RequiredArgsConstructor
+@Slf4j
+public class DirectUploadController {
+
+    private final DirectUploadService directUploadService;
+
+    // e.g. POST /api/v1/upload/direct?fileName=track.mp3
+    @PostMapping
+    public ResponseEntity<DirectUploadService.DirectUploadTicket> createTicket(
+            @RequestParam("fileName") String fileName,
+            @RequestHeader(value = "X-Uploader-Id", required = false) String uploaderId, // Set by the gateway
+            @RequestHeader(value = "X-Upload-Priority", defaultValue = "NORMAL") EncodingPriority priority // Set by the gateway
+    ) {
+        try {
+            return ResponseEntity.ok(directUploadService.create(fileName, uploaderId, priority));
+        } catch (Exception e) {
+            log.error("Internal server error issuing a direct upload for {}", fileName, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PostMapping("/{audioId}/complete")
+    public ResponseEntity<String> complete(@PathVariable("audioId") String audioId) {
+        log.info("Received completion callback for direct upload {}", audioId);
+        try {
+            return ResponseEntity.ok(directUploadService.complete(audioId));
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
+        } catch (IllegalStateException e) {
+            log.warn("Completion of {} rejected: {}", audioId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Upload failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Internal server error completing direct upload {}", audioId, e);
+            return ResponseEntity.internalServerError()
+                    .body("Upload failed due to an internal error.");
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.kibikalo.uploadservice.controller;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.kibikalo.shared.model.EncodingPriority;
+import com.kibikalo.uploadservice.service.ResumableUpload;
+import com.kibikalo.uploadservice.service.ResumableUploadService;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+/**
+ * Resumable uploads following the tus 1.0 core protocol and creation extension:
+ * POST creates an upload, PATCH appends a chunk at Upload-Offset, HEAD returns
+ * the offset to resume from. The chunk that completes the upload answers with
+ * the new audioId in X-Audio-Id.
+ */
+@RestController
+@RequestMapping("/api/v1/upload/resumable")
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadController {
+
+    private static final String TUS_RESUMABLE = "Tus-Resumable";
+    private static final String TUS_VERSION = "1.0.0";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String AUDIO_ID = "X-Audio-Id";
+
+    private final ResumableUploadService resumableUploadService;
+
+    // Upload-Metadata carries "filename" and optionally "filetype", base64 encoded
+    @PostMapping
+    public ResponseEntity<String> createUpload(
+            @RequestHeader(UPLOAD_LENGTH) long length,
+            @RequestHeader(value = "Upload-Metadata", required = false) String uploadMetadata,
+            @RequestHeader(value = "X-Uploader-Id", required = false) String uploaderId, // Set by the gateway
+            @RequestHeader(value = "X-Upload-Priority", defaultValue = "NORMAL") EncodingPriority priority // Set by the gateway
+    ) {
+        try {
+            Map<String, String> metadata = parseMetadata(uploadMetadata);
+            ResumableUpload upload = resumableUploadService.create(
+                    length, metadata.get("filename"), metadata.get("filetype"), uploaderId, priority
+            );
+            URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .path("/{uploadId}")
+                    .buildAndExpand(upload.getUploadId())
+                    .toUri();
+            return ResponseEntity.created(location).header(TUS_RESUMABLE, TUS_VERSION).build();
+        } catch (IllegalArgumentException e) {
+            log.warn("Resumable upload rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().header(TUS_RESUMABLE, TUS_VERSION).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Internal server error creating resumable upload", e);
+            return ResponseEntity.internalServerError()
+                    .body("Upload failed due to an internal error.");
+        }
+    }
+
+    @RequestMapping(path = "/{uploadId}", method = RequestMethod.HEAD)
+    public ResponseEntity<Void> getOffset(@PathVariable("uploadId") String uploadId) {
+        try {
+            return resumableUploadService.find(uploadId)
+                    .map(upload -> ResponseEntity.ok()
+                            .header(TUS_RESUMABLE, TUS_VERSION)
+                            .header(UPLOAD_OFFSET, Long.toString(upload.getOffset()))
+                            .header(UPLOAD_LENGTH, Long.toString(upload.getLength()))
+                            .cacheControl(CacheControl.noStore()) // The offset changes with every chunk
+                            .<Void>build())
+                    .orElseGet(() -> ResponseEntity.notFound().header(TUS_RESUMABLE, TUS_VERSION).build());
+        } catch (Exception e) {
+            log.error("Internal server error reading resumable upload {}", uploadId, e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    @PatchMapping(path = "/{uploadId}", consumes = "application/offset+octet-stream")
+    public ResponseEntity<String> appendChunk(
+            @PathVariable("uploadId") String uploadId,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request
+    ) {
+        long chunkLength = request.getContentLengthLong();
+        if (chunkLength < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body("Content-Length is required.");
+        }
+        try (InputStream body = request.getInputStream()) {
+            ResumableUploadService.ChunkResult result = resumableUploadService.appendChunk(
+                    uploadId, offset, chunkLength, body
+            );
+            ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent()
+                    .header(TUS_RESUMABLE, TUS_VERSION)
+                    .header(UPLOAD_OFFSET, Long.toString(result.offset()));
+            if (result.audioId() != null) {
+                log.info("Resumable upload {} completed as audioId {}", uploadId, result.audioId());
+                response.header(AUDIO_ID, result.audioId());
+            }
+            return response.build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.notFound().header(TUS_RESUMABLE, TUS_VERSION).build();
+        } catch (IllegalStateException e) {
+            log.warn("Chunk for upload {} rejected: {}", uploadId, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).header(TUS_RESUMABLE, TUS_VERSION).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            log.warn("Chunk for upload {} rejected: {}", uploadId, e.getMessage());
+            return ResponseEntity.badRequest().header(TUS_RESUMABLE, TUS_VERSION).body(e.getMessage());
+        } catch (Exception e) {
+            log.error("Internal server error storing a chunk of upload {}", uploadId, e);
+            return ResponseEntity.internalServerError()
+                    .body("Upload failed due to an internal error.");
+        }
+    }
+
+    // Comma-separated "key base64value" pairs, a key may come without a value
+    private static Map<String, String> parseMetadata(String header) {
+        Map<String, String> metadata = new HashMap<>();
+        if (header == null || header.isBlank()) {
+            return metadata;
+        }
+        for (String pair : header.split(",")) {
+            String[] keyValue = pair.trim().split(" ", 2);
+            String value = keyValue.length > 1
+                    ? new String(Base64.getDecoder().decode(keyValue[1].trim()), StandardCharsets.UTF_8)
+                    : "";
+            metadata.put(keyValue[0], value);
+        }
+        return metadata;
+    }
+}
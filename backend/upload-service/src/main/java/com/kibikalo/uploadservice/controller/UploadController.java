@@ -1,10 +1,16 @@
 package com.kibikalo.uploadservice.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.kibikalo.shared.model.EncodingPriority;
 import com.kibikalo.uploadservice.service.UploadService;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -19,13 +25,17 @@ public class UploadController {
     private final UploadService uploadService;
 
     @PostMapping(consumes = "multipart/form-data")
-    public ResponseEntity<String> handleFileUpload(@RequestParam("file") MultipartFile file) {
+    public ResponseEntity<String> handleFileUpload(
+            @RequestParam("file") MultipartFile file,
+            @RequestHeader(value = "X-Uploader-Id", required = false) String uploaderId, // Set by the gateway
+            @RequestHeader(value = "X-Upload-Priority", defaultValue = "NORMAL") EncodingPriority priority // Set by the gateway
+    ) {
         log.info(
                 "Received file upload request: {}",
                 file.getOriginalFilename()
         );
         try {
-            String audioId = uploadService.uploadAudio(file);
+            String audioId = uploadService.uploadAudio(file, uploaderId, priority);
             // Return the generated audioId in the response body
             return ResponseEntity.ok(audioId);
         } catch (IllegalArgumentException e) {
@@ -37,4 +47,33 @@ public class UploadController {
                     .body("Upload failed due to an internal error.");
         }
     }
-}
\ No newline at end of file
+
+    // e.g. POST /api/v1/upload/stream?fileName=track.mp3 with the audio as the raw body.
+    // Skips the multipart layer's buffering: the body goes straight through validation, hashing and storage.
+    @PostMapping(path = "/stream", consumes = { "audio/*", MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    public ResponseEntity<String> handleStreamUpload(
+            HttpServletRequest request,
+            @RequestParam("fileName") String fileName,
+            @RequestHeader(value = "X-Uploader-Id", required = false) String uploaderId, // Set by the gateway
+            @RequestHeader(value = "X-Upload-Priority", defaultValue = "NORMAL") EncodingPriority priority // Set by the gateway
+    ) {
+        long size = request.getContentLengthLong();
+        log.info("Received streaming upload request: {} ({} bytes)", fileName, size);
+        if (size < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body("Content-Length is required.");
+        }
+        try (InputStream body = request.getInputStream()) {
+            String audioId = uploadService.uploadAudioStream(
+                    body, size, fileName, request.getContentType(), uploaderId, priority
+            );
+            return ResponseEntity.ok(audioId);
+        } catch (IllegalArgumentException e) {
+            log.warn("Upload failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            log.error("Internal server error during upload", e);
+            return ResponseEntity.internalServerError()
+                    .body("Upload failed due to an internal error.");
+        }
+    }
+}
@@ -1,8 +1,9 @@
 package com.kibikalo.uploadservice.service;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
@@ -19,6 +20,13 @@ import org.springframework.web.multipart.MultipartFile;
 
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Checks format and duration of an upload from a sparse copy that holds only
+ * its container metadata and head/tail windows (see {@link SparseAudioCopy}),
+ * so memory and temp disk per upload stay constant. VBR MP3s without a Xing
+ * header are the exception: their duration comes from a frame walk over the
+ * whole upload, re-read or counted on the fly by the caller.
+ */
 @Component
 @Slf4j
 public class AudioValidator {
@@ -37,12 +45,42 @@ public class AudioValidator {
 
         File tempFile = null;
         try {
-            // 1. Convert to temporary file for JAudioTagger
-            tempFile = convertMultiPartToFile(multipartFile);
+            // 1. Sparse temporary file for JAudioTagger, only the parts its parsers read
+            tempFile = createTempCopyFile(multipartFile.getOriginalFilename());
+            try (InputStream stream = multipartFile.getInputStream()) {
+                long copied = SparseAudioCopy.write(stream, multipartFile.getSize(), tempFile.toPath());
+                log.debug("Copied {} of {} bytes for validation", copied, multipartFile.getSize());
+            }
             log.debug("Created temporary file for validation: {}", tempFile.getAbsolutePath());
 
+            return validateSparseCopy(tempFile, multipartFile.getOriginalFilename(), () -> {
+                try (InputStream stream = multipartFile.getInputStream()) {
+                    return Mp3FrameScanner.scanDurationMillis(stream);
+                }
+            });
+        } catch (IOException e) {
+            log.error("Error during audio validation for file [{}]: {}", multipartFile.getOriginalFilename(), e.getMessage(), e);
+            return AudioValidationResult.failure("Error processing audio file during validation: " + e.getMessage());
+        } finally {
+            if (tempFile != null && tempFile.exists()) {
+                if (!tempFile.delete()) {
+                    log.warn("Could not delete temporary validation file: {}", tempFile.getAbsolutePath());
+                } else {
+                    log.debug("Deleted temporary validation file: {}", tempFile.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Validates a sparse copy the caller wrote with {@link SparseAudioCopy} and still owns.
+     *
+     * @param frameScan full MP3 frame walk, only run for VBR MP3s without a Xing header
+     */
+    AudioValidationResult validateSparseCopy(File sparseCopy, String fileName, DurationScan frameScan) {
+        try {
             // 2. Read audio file information
-            AudioFile audioFile = AudioFileIO.read(tempFile);
+            AudioFile audioFile = AudioFileIO.read(sparseCopy);
             AudioHeader header = audioFile.getAudioHeader();
 
             if (header == null) {
@@ -58,6 +96,11 @@ public class AudioValidator {
 
             // 4. Check Duration
             int durationSeconds = header.getTrackLength();
+            if ("MP3".equals(format) && needsFrameScan(sparseCopy)) {
+                // The header's duration assumes the first frame's bitrate throughout
+                durationSeconds = (int) (frameScan.scanMillis() / 1000);
+                log.info("VBR MP3 without Xing header, duration from frame scan");
+            }
             log.info("Detected duration: {} seconds", durationSeconds);
             if (durationSeconds < MIN_DURATION_SECONDS) {
                 return AudioValidationResult.failure("Audio duration (" + durationSeconds + "s) is less than minimum allowed (" + MIN_DURATION_SECONDS + "s).");
@@ -70,33 +113,45 @@ public class AudioValidator {
             return AudioValidationResult.success(format, durationSeconds);
 
         } catch (CannotReadException e) {
-            log.warn("JAudioTagger cannot read file [{}]: {}", multipartFile.getOriginalFilename(), e.getMessage());
+            log.warn("JAudioTagger cannot read file [{}]: {}", fileName, e.getMessage());
             return AudioValidationResult.failure("Cannot read audio file. It might be corrupted, not a supported audio format, or not an audio file at all.");
         } catch (IOException | TagException | ReadOnlyFileException | InvalidAudioFrameException e) {
-            log.error("Error during audio validation for file [{}]: {}", multipartFile.getOriginalFilename(), e.getMessage(), e);
+            log.error("Error during audio validation for file [{}]: {}", fileName, e.getMessage(), e);
             return AudioValidationResult.failure("Error processing audio file during validation: " + e.getMessage());
         } catch (Exception e) {
-            log.error("Unexpected error during audio validation for file [{}]: {}", multipartFile.getOriginalFilename(), e.getMessage(), e);
+            log.error("Unexpected error during audio validation for file [{}]: {}", fileName, e.getMessage(), e);
             return AudioValidationResult.failure("An unexpected error occurred during validation.");
-        } finally {
-            if (tempFile != null && tempFile.exists()) {
-                if (!tempFile.delete()) {
-                    log.warn("Could not delete temporary validation file: {}", tempFile.getAbsolutePath());
-                } else {
-                    log.debug("Deleted temporary validation file: {}", tempFile.getAbsolutePath());
-                }
-            }
         }
     }
 
-    private File convertMultiPartToFile(MultipartFile file) throws IOException {
-        String originalFilename = file.getOriginalFilename() != null ? file.getOriginalFilename() : "temp_audio";
+    /**
+     * Empty temp file named after the upload, JAudioTagger picks the parser by extension.
+     */
+    static File createTempCopyFile(String originalFilename) throws IOException {
+        String name = originalFilename != null ? originalFilename : "temp_audio";
         // Sanitize filename slightly for temp file creation
-        String safeSuffix = originalFilename.replaceAll("[^a-zA-Z0-9._-]", "_");
-        File convFile = File.createTempFile("validate_", "_" + safeSuffix);
-        try (FileOutputStream fos = new FileOutputStream(convFile)) {
-            fos.write(file.getBytes());
+        String safeSuffix = name.replaceAll("[^a-zA-Z0-9._-]", "_");
+        return File.createTempFile("validate_", "_" + safeSuffix);
+    }
+
+    // Looks at the frames right after the ID3v2 tag, which the sparse copy always contains
+    private boolean needsFrameScan(File file) throws IOException {
+        try (RandomAccessFile access = new RandomAccessFile(file, "r")) {
+            byte[] tagHeader = new byte[(int) Math.min(10, access.length())];
+            access.readFully(tagHeader);
+            long start = Mp3FrameScanner.id3v2Length(tagHeader);
+            if (start >= access.length()) {
+                return false;
+            }
+            byte[] head = new byte[(int) Math.min(SparseAudioCopy.HEAD_WINDOW_BYTES, access.length() - start)];
+            access.seek(start);
+            access.readFully(head);
+            return Mp3FrameScanner.needsFrameScan(head);
         }
-        return convFile;
     }
-}
\ No newline at end of file
+
+    @FunctionalInterface
+    interface DurationScan {
+        long scanMillis() throws IOException;
+    }
+}
@@ -0,0 +1,269 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.kibikalo.shared.events.AudioUploadedEvent;
+import com.kibikalo.shared.model.EncodingPriority;
+
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bulk imports: many files in one request, or a manifest of objects already
+ * staged in the raw bucket. Items are validated and stored in parallel on a
+ * bounded pool; the events of all items that passed leave in one producer
+ * flush. A failing item doesn't fail the batch, it gets its own result.
+ * Files whose event could not be published are deleted again, so an item is
+ * either on its way to encoding or can simply be sent once more.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchUploadService {
+
+    private final MinioClient minioClient;
+    private final UploadService uploadService;
+    private final StoredAudioInspector inspector;
+
+    @Value("${app.minio.bucket.raw}")
+    private String rawBucketName;
+
+    @Value("${app.upload.batch.parallelism}")
+    private int parallelism; // Items validated and stored at once, across all batches
+
+    @Value("${app.upload.batch.max-items}")
+    private int maxItems;
+
+    @Value("${app.upload.batch.publish-timeout-seconds}")
+    private long publishTimeoutSeconds;
+
+    @Value("${app.upload.batch.staged-full-read}")
+    private boolean stagedFullRead; // Hash staged objects (dedupe) instead of ranged reads only
+
+    private ExecutorService batchExecutor;
+
+    /**
+     * @param fileName defaults to the last segment of the key
+     */
+    public record StagedItem(String objectKey, String fileName) {
+    }
+
+    /**
+     * @param audioId      set once the item is stored and its event was at least handed to Kafka
+     * @param resubmittable nothing of the item was kept, sending it again is safe
+     */
+    public record ItemResult(
+            int index,
+            String name,
+            boolean success,
+            String audioId,
+            String error,
+            boolean resubmittable
+    ) {
+    }
+
+    @PostConstruct
+    void init() {
+        batchExecutor = Executors.newFixedThreadPool(parallelism);
+    }
+
+    public List<ItemResult> uploadFiles(List<MultipartFile> files, String uploaderId, EncodingPriority priority) {
+        checkBatchSize(files.size());
+        List<String> names = new ArrayList<>();
+        List<Callable<AudioUploadedEvent>> tasks = new ArrayList<>();
+        for (MultipartFile file : files) {
+            names.add(file.getOriginalFilename());
+            tasks.add(() -> {
+                try (InputStream inputStream = file.getInputStream()) {
+                    return uploadService.storeAudioStream(
+                            inputStream, file.getSize(), file.getOriginalFilename(), file.getContentType(),
+                            uploaderId, priority
+                    );
+                }
+            });
+        }
+        return run(names, tasks, true);
+    }
+
+    public List<ItemResult> importStaged(List<StagedItem> items, String uploaderId, EncodingPriority priority) {
+        checkBatchSize(items.size());
+        List<String> names = new ArrayList<>();
+        List<Callable<AudioUploadedEvent>> tasks = new ArrayList<>();
+        for (StagedItem item : items) {
+            names.add(item.objectKey());
+            tasks.add(() -> inspectStaged(item, uploaderId, priority));
+        }
+        return run(names, tasks, false);
+    }
+
+    private void checkBatchSize(int size) {
+        if (size == 0 || size > maxItems) {
+            throw new IllegalArgumentException("A batch must have between 1 and " + maxItems + " items, got " + size + ".");
+        }
+    }
+
+    private AudioUploadedEvent inspectStaged(StagedItem item, String uploaderId, EncodingPriority priority) throws Exception {
+        String objectKey = item.objectKey();
+        // Keys starting with "_" hold this service's own state (resumable chunks, direct upload records)
+        if (objectKey == null || objectKey.isBlank() || objectKey.startsWith("_")) {
+            throw new IllegalArgumentException("Not a staged object key: " + objectKey);
+        }
+        StatObjectResponse stat;
+        try {
+            stat = minioClient.statObject(
+                    StatObjectArgs.builder()
+                            .bucket(rawBucketName)
+                            .object(objectKey)
+                            .build()
+            );
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                throw new IllegalArgumentException("No staged object " + objectKey + " in bucket " + rawBucketName);
+            }
+            throw e;
+        }
+
+        String fileName = StringUtils.cleanPath(item.fileName() != null
+                ? item.fileName()
+                : objectKey.substring(objectKey.lastIndexOf('/') + 1));
+        StoredAudioInspector.Inspection inspection = stagedFullRead
+                ? inspector.inspect(objectKey, stat.size(), fileName)
+                : inspector.inspectRanged(objectKey, stat.size(), stat.etag(), fileName);
+        AudioValidationResult validationResult = inspection.validation();
+        if (!validationResult.isValid()) {
+            throw new IllegalArgumentException("Audio validation failed: " + validationResult.getMessage());
+        }
+        // Staged objects stay where they are, the event points at the key
+        return uploadService.newUploadedEvent(
+                UUID.randomUUID().toString(), objectKey, fileName, inspection.contentHash(),
+                validationResult.getDurationSeconds(), uploaderId, priority
+        );
+    }
+
+    /**
+     * @param storedHere the tasks wrote the raw objects, so they are removed if their event can't be published
+     */
+    private List<ItemResult> run(List<String> names, List<Callable<AudioUploadedEvent>> tasks, boolean storedHere) {
+        List<Future<AudioUploadedEvent>> futures = new ArrayList<>(tasks.size());
+        for (Callable<AudioUploadedEvent> task : tasks) {
+            futures.add(batchExecutor.submit(task));
+        }
+
+        AudioUploadedEvent[] events = new AudioUploadedEvent[tasks.size()];
+        String[] errors = new String[tasks.size()];
+        boolean[] resubmittable = new boolean[tasks.size()];
+        List<AudioUploadedEvent> stored = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                events[i] = futures.get(i).get();
+                stored.add(events[i]);
+            } catch (ExecutionException e) {
+                errors[i] = errorMessage(names.get(i), e.getCause());
+                resubmittable[i] = !(e.getCause() instanceof IllegalArgumentException); // Invalid stays invalid
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                futures.forEach(future -> future.cancel(true));
+                throw new IllegalStateException("Interrupted while processing a batch", e);
+            }
+        }
+
+        // One flush for the whole batch, then wait for the acknowledgements
+        List<CompletableFuture<SendResult<String, AudioUploadedEvent>>> sends = stored.isEmpty()
+                ? List.of()
+                : uploadService.publishAll(stored);
+        int send = 0;
+        int published = 0;
+        for (int i = 0; i < events.length; i++) {
+            if (events[i] == null) {
+                continue;
+            }
+            CompletableFuture<SendResult<String, AudioUploadedEvent>> sent = sends.get(send++);
+            AudioUploadedEvent event = events[i];
+            try {
+                sent.get(publishTimeoutSeconds, TimeUnit.SECONDS);
+                published++;
+            } catch (ExecutionException e) {
+                log.error("Stored {} as {} but could not publish its event: {}", names.get(i), event.getAudioId(), e.getMessage());
+                if (storedHere) {
+                    removeRawObject(event);
+                }
+                events[i] = null;
+                errors[i] = "The upload event could not be published, nothing was kept. Resubmit the item.";
+                resubmittable[i] = true;
+            } catch (TimeoutException | InterruptedException e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                // Still in flight and may yet arrive, so the object stays unless the send fails for good
+                log.warn("Event of {} ({}) not acknowledged in time", names.get(i), event.getAudioId());
+                if (storedHere) {
+                    sent.whenComplete((result, failure) -> {
+                        if (failure != null) {
+                            removeRawObject(event);
+                        }
+                    });
+                }
+                errors[i] = "Stored, but the upload event was not confirmed in time. Check the audioId before resubmitting.";
+            }
+        }
+
+        List<ItemResult> results = new ArrayList<>(events.length);
+        for (int i = 0; i < events.length; i++) {
+            String audioId = events[i] != null ? events[i].getAudioId() : null;
+            results.add(new ItemResult(i, names.get(i), errors[i] == null, audioId, errors[i], resubmittable[i]));
+        }
+        log.info("Batch of {} items: {} stored and published, {} failed", events.length, published, events.length - published);
+        return results;
+    }
+
+    private void removeRawObject(AudioUploadedEvent event) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(rawBucketName)
+                            .object(event.getRawFilePath())
+                            .build()
+            );
+        } catch (Exception e) {
+            log.warn("Could not delete unpublished upload {}: {}", event.getRawFilePath(), e.getMessage());
+        }
+    }
+
+    private String errorMessage(String name, Throwable cause) {
+        if (cause instanceof IllegalArgumentException) {
+            log.warn("Batch item {} rejected: {}", name, cause.getMessage());
+            return cause.getMessage();
+        }
+        log.error("Batch item {} failed", name, cause);
+        return "Upload failed due to an internal error.";
+    }
+
+    @PreDestroy
+    void shutdown() {
+        batchExecutor.shutdownNow();
+    }
+}
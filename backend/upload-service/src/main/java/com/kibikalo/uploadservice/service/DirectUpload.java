@@ -0,0 +1,25 @@
+package com.kibikalo.uploadservice.service;
+
+import java.time.Instant;
+
+import com.kibikalo.shared.model.EncodingPriority;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A presigned upload handed out to a client, persisted until its completion
+ * callback so the callback can only claim objects this service issued.
+ */
+@Data
+@NoArgsConstructor
+public class DirectUpload {
+
+    private String audioId;
+    private String stagedObjectName; // _direct/{audioId}/upload, where the client's POST goes
+    private String objectName; // {audioId}/{fileName} in the raw bucket, only written by this service
+    private String fileName;
+    private String uploaderId;
+    private EncodingPriority priority;
+    private Instant createdAt;
+}
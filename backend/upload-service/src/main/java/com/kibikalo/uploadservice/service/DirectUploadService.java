@@ -0,0 +1,259 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kibikalo.shared.model.EncodingPriority;
+
+import io.minio.CopyObjectArgs;
+import io.minio.CopySource;
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PostPolicy;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Uploads that bypass this service: the client gets a presigned POST policy for
+ * the staging key {@code raw-audio/_direct/{audioId}/upload} and sends the file
+ * straight to MinIO, which enforces the size limit. Its completion callback
+ * validates the staged object (ranged reads by default), copies it server-side
+ * to {@code {audioId}/{fileName}} if it is still the validated version, and
+ * publishes the {@code AudioUploadedEvent}. The policy stays usable until it
+ * expires, but it can only ever replace the staged object, never the audio
+ * that was handed to encoding; staged objects expire with the {@code _direct/}
+ * lifecycle rule.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DirectUploadService {
+
+    private static final long MB = 1024 * 1024;
+    private static final String PREFIX = "_direct/";
+
+    private final MinioClient minioClient;
+    private final ObjectMapper objectMapper;
+    private final StoredAudioInspector inspector;
+    private final UploadService uploadService;
+
+    @Value("${app.minio.bucket.raw}")
+    private String rawBucketName;
+
+    @Value("${app.minio.access-key}")
+    private String accessKey;
+
+    @Value("${app.minio.secret-key}")
+    private String secretKey;
+
+    @Value("${app.upload.direct.public-url}")
+    private String publicUrl;
+
+    @Value("${app.upload.direct.expiry-seconds}")
+    private long expirySeconds;
+
+    @Value("${app.upload.direct.max-size-mb}")
+    private long maxSizeMb;
+
+    @Value("${app.upload.direct.full-read}")
+    private boolean fullRead; // Hash (and so dedupe) at the cost of reading every byte back
+
+    // Signs for the endpoint clients reach; the region is fixed so signing needs no request.
+    // Not a bean, the injected client stays the only MinioClient.
+    private MinioClient presigningClient;
+
+    // Completion callbacks in progress, a duplicate one must not publish twice
+    private final Set<String> completing = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param fields form fields to POST to {@code uploadUrl} along with the file, which must come last
+     */
+    public record DirectUploadTicket(String audioId, String uploadUrl, Map<String, String> fields, Instant expiresAt) {
+    }
+
+    @PostConstruct
+    void init() {
+        presigningClient = MinioClient.builder()
+                .endpoint(publicUrl)
+                .credentials(accessKey, secretKey)
+                .region("us-east-1")
+                .build();
+    }
+
+    public DirectUploadTicket create(String fileName, String uploaderId, EncodingPriority priority) throws Exception {
+        DirectUpload upload = new DirectUpload();
+        upload.setAudioId(UUID.randomUUID().toString());
+        upload.setFileName(StringUtils.cleanPath(fileName != null ? fileName : "unknown"));
+        upload.setStagedObjectName(PREFIX + upload.getAudioId() + "/upload");
+        upload.setObjectName(String.format("%s/%s", upload.getAudioId(), upload.getFileName()));
+        upload.setUploaderId(uploaderId);
+        upload.setPriority(priority);
+        upload.setCreatedAt(Instant.now());
+        save(upload);
+
+        ZonedDateTime expiresAt = ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(expirySeconds);
+        PostPolicy policy = new PostPolicy(rawBucketName, expiresAt);
+        policy.addEqualsCondition("key", upload.getStagedObjectName());
+        policy.addContentLengthRangeCondition(1, maxSizeMb * MB);
+        Map<String, String> fields = new HashMap<>(presigningClient.getPresignedPostFormData(policy));
+        fields.put("key", upload.getStagedObjectName());
+
+        log.info("Issued direct upload for '{}' as {}", upload.getFileName(), upload.getStagedObjectName());
+        String baseUrl = publicUrl.endsWith("/") ? publicUrl : publicUrl + "/";
+        return new DirectUploadTicket(upload.getAudioId(), baseUrl + rawBucketName, fields, expiresAt.toInstant());
+    }
+
+    /**
+     * Completion callback, called by the client once MinIO accepted the file.
+     *
+     * @throws NoSuchElementException   if no direct upload was issued for this audioId, or it completed already
+     * @throws IllegalStateException    if the object isn't there yet, was replaced while being validated,
+     *                                  or another callback is completing it
+     * @throws IllegalArgumentException if the object is not valid audio, it is deleted
+     */
+    public String complete(String audioId) throws Exception {
+        if (!completing.add(audioId)) {
+            throw new IllegalStateException("Direct upload " + audioId + " is already being completed");
+        }
+        try {
+            DirectUpload upload = find(audioId)
+                    .orElseThrow(() -> new NoSuchElementException("Unknown direct upload " + audioId));
+            StatObjectResponse stat;
+            try {
+                stat = minioClient.statObject(
+                        StatObjectArgs.builder()
+                                .bucket(rawBucketName)
+                                .object(upload.getStagedObjectName())
+                                .build()
+                );
+            } catch (ErrorResponseException e) {
+                if ("NoSuchKey".equals(e.errorResponse().code())) {
+                    throw new IllegalStateException("Nothing has been uploaded for " + audioId + " yet");
+                }
+                throw e;
+            }
+
+            StoredAudioInspector.Inspection inspection = fullRead
+                    ? inspector.inspect(upload.getStagedObjectName(), stat.size(), upload.getFileName())
+                    : inspector.inspectRanged(upload.getStagedObjectName(), stat.size(), stat.etag(), upload.getFileName());
+            AudioValidationResult validationResult = inspection.validation();
+            if (!validationResult.isValid()) {
+                log.warn("Audio validation failed for file [{}]: {}", upload.getFileName(), validationResult.getMessage());
+                removeStaged(upload);
+                delete(audioId);
+                throw new IllegalArgumentException("Audio validation failed: " + validationResult.getMessage());
+            }
+            log.info("Audio validation passed for file [{}]. Format: {}, Duration: {}s",
+                    upload.getFileName(), validationResult.getFormat(), validationResult.getDurationSeconds());
+
+            // Only the version that was validated moves to the key encoding reads
+            try {
+                minioClient.copyObject(
+                        CopyObjectArgs.builder()
+                                .bucket(rawBucketName)
+                                .object(upload.getObjectName())
+                                .source(
+                                        CopySource.builder()
+                                                .bucket(rawBucketName)
+                                                .object(upload.getStagedObjectName())
+                                                .matchETag(stat.etag())
+                                                .build()
+                                )
+                                .build()
+                );
+            } catch (ErrorResponseException e) {
+                if ("PreconditionFailed".equals(e.errorResponse().code())) {
+                    throw new IllegalStateException("The upload for " + audioId + " was replaced while being validated");
+                }
+                throw e;
+            }
+            removeStaged(upload);
+
+            uploadService.publishUploaded(
+                    audioId, upload.getObjectName(), upload.getFileName(), inspection.contentHash(),
+                    validationResult.getDurationSeconds(), upload.getUploaderId(), upload.getPriority()
+            );
+            delete(audioId);
+            return audioId;
+        } finally {
+            completing.remove(audioId);
+        }
+    }
+
+    private void removeStaged(DirectUpload upload) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(rawBucketName)
+                            .object(upload.getStagedObjectName())
+                            .build()
+            );
+        } catch (Exception e) {
+            // Expires with the _direct/ lifecycle rule
+            log.warn("Could not delete staged upload {}: {}", upload.getStagedObjectName(), e.getMessage());
+        }
+    }
+
+    private void save(DirectUpload upload) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(upload);
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(rawBucketName)
+                        .object(PREFIX + upload.getAudioId() + ".json")
+                        .stream(new ByteArrayInputStream(json), json.length, -1)
+                        .contentType("application/json")
+                        .build()
+        );
+    }
+
+    private Optional<DirectUpload> find(String audioId) throws Exception {
+        try (InputStream state = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(rawBucketName)
+                        .object(PREFIX + audioId + ".json")
+                        .build()
+        )) {
+            return Optional.of(objectMapper.readValue(state, DirectUpload.class));
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    private void delete(String audioId) {
+        try {
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(rawBucketName)
+                            .object(PREFIX + audioId + ".json")
+                            .build()
+            );
+        } catch (Exception e) {
+            // A leftover only lets a later callback publish again, the metadata service ignores known audioIds
+            log.warn("Could not delete direct upload record {}: {}", audioId, e.getMessage());
+        }
+    }
+}
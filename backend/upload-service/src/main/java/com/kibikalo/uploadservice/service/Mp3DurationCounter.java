@@ -0,0 +1,99 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.OutputStream;
+
+/**
+ * Push-based MP3 frame walk: every byte written goes through a frame sync
+ * search, whole frames are skipped by their header's length and their
+ * durations added up. A leading ID3v2 tag is skipped, it may contain false
+ * syncs. Used as a tee sink so an upload's duration is known once its last
+ * byte has gone past, without a second pass.
+ */
+final class Mp3DurationCounter extends OutputStream {
+
+    private static final int ID3V2_HEADER_BYTES = 10;
+
+    private final byte[] tagHeader = new byte[ID3V2_HEADER_BYTES];
+    private int tagHeaderFilled = 0;
+    private long skipRemaining = 0;
+    private int header = 0;
+    private int filled = 0;
+    private double pendingFrameMillis = 0; // Counted once the frame is complete
+    private double millis = 0;
+
+    @Override
+    public void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        int i = offset;
+        while (i < end) {
+            if (tagHeaderFilled < ID3V2_HEADER_BYTES) {
+                tagHeader[tagHeaderFilled++] = bytes[i++];
+                if (tagHeaderFilled == ID3V2_HEADER_BYTES) {
+                    checkTagHeader();
+                }
+                continue;
+            }
+            if (skipRemaining > 0) {
+                int skipped = (int) Math.min(skipRemaining, end - i);
+                skipRemaining -= skipped;
+                i += skipped;
+                if (skipRemaining == 0) {
+                    millis += pendingFrameMillis;
+                    pendingFrameMillis = 0;
+                }
+                continue;
+            }
+            accept(bytes[i++]);
+        }
+    }
+
+    /**
+     * Duration of all complete frames seen so far, a truncated last frame doesn't count.
+     */
+    long getDurationMillis() {
+        if (tagHeaderFilled < ID3V2_HEADER_BYTES) {
+            // Shorter than a tag header, these few bytes can still hold no whole frame
+            return 0;
+        }
+        return Math.round(millis);
+    }
+
+    private void checkTagHeader() {
+        int tagLength = Mp3FrameScanner.id3v2Length(tagHeader);
+        if (tagLength > 0) {
+            skipRemaining = tagLength - ID3V2_HEADER_BYTES;
+            return;
+        }
+        // No tag, these bytes are audio and go through the frame search
+        for (byte b : tagHeader) {
+            if (skipRemaining > 0) {
+                skipRemaining--;
+                if (skipRemaining == 0) {
+                    millis += pendingFrameMillis;
+                    pendingFrameMillis = 0;
+                }
+            } else {
+                accept(b);
+            }
+        }
+    }
+
+    private void accept(byte b) {
+        header = header << 8 | (b & 0xFF);
+        if (++filled < 4) {
+            return;
+        }
+        Mp3FrameScanner.Frame frame = Mp3FrameScanner.parseHeader(header);
+        if (frame == null) {
+            return; // Slide one byte until the next sync
+        }
+        pendingFrameMillis = frame.samples() * 1000.0 / frame.sampleRate();
+        skipRemaining = frame.length() - 4;
+        filled = 0;
+    }
+}
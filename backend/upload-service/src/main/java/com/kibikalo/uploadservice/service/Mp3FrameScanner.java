@@ -0,0 +1,149 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * MP3 frame header parsing for the one case header-based validation gets wrong:
+ * VBR files without a Xing/Info/VBRI frame, whose duration can only be found by
+ * walking every frame (see {@link Mp3DurationCounter}).
+ */
+final class Mp3FrameScanner {
+
+    // Kbit/s by [MPEG-1 ? 0 : 1][layer 1..3 -> 0..2][index]
+    private static final int[][][] BITRATES = {
+            {
+                    { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+                    { 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+                    { 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 }
+            },
+            {
+                    { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+                    { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 },
+                    { 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 }
+            }
+    };
+    private static final int[] MPEG1_SAMPLE_RATES = { 44100, 48000, 32000 };
+    private static final int FRAMES_TO_SAMPLE = 32; // Frames compared for a bitrate change
+    private static final int ID3V2_HEADER_BYTES = 10;
+
+    private Mp3FrameScanner() {
+    }
+
+    record Frame(int bitrateKbps, int sampleRate, int samples, int length) {
+    }
+
+    /**
+     * @param header four bytes, big-endian
+     * @return null unless this is a valid MPEG audio frame header
+     */
+    static Frame parseHeader(int header) {
+        if ((header & 0xFFE00000) != 0xFFE00000) {
+            return null;
+        }
+        int version = (header >>> 19) & 0x3; // 0 = 2.5, 2 = 2, 3 = 1
+        int layerBits = (header >>> 17) & 0x3; // 3 = I, 2 = II, 1 = III
+        int bitrateIndex = (header >>> 12) & 0xF;
+        int sampleRateIndex = (header >>> 10) & 0x3;
+        int padding = (header >>> 9) & 0x1;
+        if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return null; // Reserved values, or free format which can't be walked
+        }
+        int layer = 4 - layerBits;
+        boolean mpeg1 = version == 3;
+        int bitrate = BITRATES[mpeg1 ? 0 : 1][layer - 1][bitrateIndex];
+        int sampleRate = MPEG1_SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : version == 2 ? 1 : 2);
+        int samples;
+        int length;
+        if (layer == 1) {
+            samples = 384;
+            length = (12 * bitrate * 1000 / sampleRate + padding) * 4;
+        } else {
+            samples = layer == 3 && !mpeg1 ? 576 : 1152;
+            length = samples / 8 * bitrate * 1000 / sampleRate + padding;
+        }
+        return length > 4 ? new Frame(bitrate, sampleRate, samples, length) : null;
+    }
+
+    /**
+     * True if the head of the file starts VBR audio without a Xing/Info/VBRI frame,
+     * so a duration derived from the first frame's bitrate is wrong.
+     *
+     * @param head bytes from the first frame sync on (after any ID3v2 tag)
+     */
+    static boolean needsFrameScan(byte[] head) {
+        int offset = findFrame(head, 0);
+        if (offset < 0) {
+            return false; // Not something we can walk, trust the header parser
+        }
+        Frame first = parseHeader(readInt(head, offset));
+        String firstFrame = new String(
+                head, offset, Math.min(first.length(), head.length - offset), StandardCharsets.ISO_8859_1
+        );
+        if (firstFrame.contains("Xing") || firstFrame.contains("Info") || firstFrame.contains("VBRI")) {
+            return false;
+        }
+        for (int i = 1; i < FRAMES_TO_SAMPLE; i++) {
+            offset += parseHeader(readInt(head, offset)).length();
+            if (offset + 4 > head.length) {
+                return false;
+            }
+            Frame frame = parseHeader(readInt(head, offset));
+            if (frame == null) {
+                return false; // Lost sync, not a clean frame sequence
+            }
+            if (frame.bitrateKbps() != first.bitrateKbps()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Walks every frame of the stream and adds up their durations.
+     */
+    static long scanDurationMillis(InputStream source) throws IOException {
+        Mp3DurationCounter counter = new Mp3DurationCounter();
+        source.transferTo(counter);
+        return counter.getDurationMillis();
+    }
+
+    /**
+     * @return the offset of the first valid frame header that is followed by another
+     * one where its length says, or -1
+     */
+    static int findFrame(byte[] bytes, int from) {
+        for (int offset = from; offset + 4 <= bytes.length; offset++) {
+            Frame frame = parseHeader(readInt(bytes, offset));
+            if (frame == null) {
+                continue;
+            }
+            int nextOffset = offset + frame.length();
+            if (nextOffset + 4 > bytes.length || parseHeader(readInt(bytes, nextOffset)) != null) {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param head the first bytes of the file
+     * @return length of the leading ID3v2 tag including header and footer, 0 if there is none
+     */
+    static int id3v2Length(byte[] head) {
+        if (head.length < ID3V2_HEADER_BYTES || head[0] != 'I' || head[1] != 'D' || head[2] != '3') {
+            return 0;
+        }
+        int tagSize = (head[6] & 0x7F) << 21 | (head[7] & 0x7F) << 14 | (head[8] & 0x7F) << 7 | (head[9] & 0x7F);
+        boolean footer = (head[5] & 0x10) != 0;
+        return ID3V2_HEADER_BYTES + tagSize + (footer ? ID3V2_HEADER_BYTES : 0);
+    }
+
+    private static int readInt(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24
+                | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8
+                | (bytes[offset + 3] & 0xFF);
+    }
+}
@@ -0,0 +1,101 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+
+/**
+ * Sequential view of a stored object that turns long skips into a new ranged
+ * GET instead of reading through, so a {@link SparseAudioCopy} of the object
+ * downloads only what it copies. Every range is pinned to the ETag the object
+ * had when it was stat'ed; a concurrent overwrite fails the read.
+ */
+final class RangedObjectInputStream extends InputStream {
+
+    private static final long READ_THROUGH_BYTES = 1024 * 1024; // Shorter skips aren't worth a request
+
+    private final MinioClient minioClient;
+    private final String bucket;
+    private final String objectName;
+    private final String etag;
+    private final long size;
+    private long position = 0;
+    private InputStream current;
+
+    RangedObjectInputStream(MinioClient minioClient, String bucket, String objectName, String etag, long size) {
+        this.minioClient = minioClient;
+        this.bucket = bucket;
+        this.objectName = objectName;
+        this.etag = etag;
+        this.size = size;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+        if (current == null) {
+            current = open(position);
+        }
+        int read = current.read(bytes, offset, (int) Math.min(length, size - position));
+        if (read == -1) {
+            throw new EOFException(objectName + " ended at byte " + position + " of " + size);
+        }
+        position += read;
+        return read;
+    }
+
+    @Override
+    public long skip(long length) throws IOException {
+        long skipped = Math.max(0, Math.min(length, size - position));
+        if (current != null && skipped < READ_THROUGH_BYTES) {
+            skipped = current.skip(skipped);
+        } else {
+            closeCurrent(); // The next read opens a range at the new position
+        }
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closeCurrent();
+    }
+
+    private InputStream open(long offset) throws IOException {
+        try {
+            return minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(bucket)
+                            .object(objectName)
+                            .offset(offset)
+                            .matchETag(etag)
+                            .build()
+            );
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Could not read " + objectName + " from byte " + offset, e);
+        }
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+            current = null;
+        }
+    }
+}
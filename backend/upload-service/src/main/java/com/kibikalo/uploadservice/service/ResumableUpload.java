@@ -0,0 +1,53 @@
+package com.kibikalo.uploadservice.service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kibikalo.shared.model.EncodingPriority;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * State of a resumable upload, persisted as JSON next to its staged chunks.
+ * Every accepted chunk is one staged object, later one part of the raw object.
+ */
+@Data
+@NoArgsConstructor
+public class ResumableUpload {
+
+    private String uploadId;
+    private String audioId; // Assigned up front, the raw object is {audioId}/{fileName}
+    private String fileName;
+    private String contentType;
+    private long length;
+    private String uploaderId;
+    private EncodingPriority priority;
+    private Instant createdAt;
+    private List<Part> parts = new ArrayList<>();
+
+    // ETag of the state object this was read from, saves are conditional on it
+    @JsonIgnore
+    private String stateEtag;
+
+    // Bytes received so far, a chunk counts once it is recorded here
+    @JsonIgnore
+    public long getOffset() {
+        return parts.stream().mapToLong(Part::getSize).sum();
+    }
+
+    /**
+     * A staged chunk. Each has its own object name, so two requests racing for
+     * the same offset never write to the same object.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Part {
+        private String objectName;
+        private long size;
+    }
+}
@@ -0,0 +1,219 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.kibikalo.shared.model.EncodingPriority;
+
+import io.minio.ComposeObjectArgs;
+import io.minio.ComposeSource;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectArgs;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * tus-style resumable uploads: create, then PATCH chunks at the current offset,
+ * which a client can always ask for after a dropped connection. Every chunk is
+ * stored as its own uniquely named object and then recorded in the upload's
+ * state; of two requests for the same offset, on any instances, only the first
+ * to record wins (see {@link ResumableUploadStore#save}). The last chunk
+ * triggers a server-side compose in which each chunk becomes one part of the
+ * multipart raw object. Only then is the object validated and the
+ * {@code AudioUploadedEvent} published.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadService {
+
+    private static final long MB = 1024 * 1024;
+    static final long MIN_PART_BYTES = 5 * MB; // S3 minimum for every part but the last
+
+    private final MinioClient minioClient;
+    private final ResumableUploadStore store;
+    private final StoredAudioInspector inspector;
+    private final UploadService uploadService;
+
+    @Value("${app.minio.bucket.raw}")
+    private String rawBucketName;
+
+    @Value("${app.upload.resumable.max-size-mb}")
+    private long maxSizeMb;
+
+    @Value("${app.upload.resumable.max-chunk-size-mb}")
+    private long maxChunkSizeMb;
+
+    @Value("${app.upload.resumable.expiry-hours}")
+    private long expiryHours; // Refused after this, the bucket lifecycle rule removes what was staged
+
+    /**
+     * @param audioId set by the chunk that completed the upload
+     */
+    public record ChunkResult(long offset, String audioId) {
+    }
+
+    public ResumableUpload create(
+            long length,
+            String fileName,
+            String contentType,
+            String uploaderId,
+            EncodingPriority priority
+    ) throws Exception {
+        if (length <= 0) {
+            throw new IllegalArgumentException("Audio validation failed: File is empty or null.");
+        }
+        if (length > maxSizeMb * MB) {
+            throw new IllegalArgumentException("Upload of " + length + " bytes exceeds the limit of " + maxSizeMb + " MB.");
+        }
+        ResumableUpload upload = new ResumableUpload();
+        upload.setUploadId(UUID.randomUUID().toString());
+        upload.setAudioId(UUID.randomUUID().toString());
+        upload.setFileName(StringUtils.cleanPath(fileName != null ? fileName : "unknown"));
+        upload.setContentType(contentType);
+        upload.setLength(length);
+        upload.setUploaderId(uploaderId);
+        upload.setPriority(priority);
+        upload.setCreatedAt(Instant.now());
+        store.save(upload);
+        log.info("Created resumable upload {} for '{}' ({} bytes)", upload.getUploadId(), upload.getFileName(), length);
+        return upload;
+    }
+
+    public Optional<ResumableUpload> find(String uploadId) throws Exception {
+        Optional<ResumableUpload> upload = store.find(uploadId);
+        if (upload.isPresent() && isExpired(upload.get())) {
+            log.info("Resumable upload {} expired, removing its chunks", uploadId);
+            store.delete(upload.get());
+            return Optional.empty();
+        }
+        return upload;
+    }
+
+    /**
+     * Stores one chunk. The chunk that reaches the declared length completes the upload.
+     *
+     * @throws NoSuchElementException   if the upload doesn't exist or expired
+     * @throws IllegalStateException    if the offset isn't the current one, or another request stored a chunk there first
+     * @throws IllegalArgumentException if the chunk doesn't fit, or the completed upload is not valid audio
+     */
+    public ChunkResult appendChunk(String uploadId, long offset, long chunkLength, InputStream body) throws Exception {
+        ResumableUpload upload = find(uploadId)
+                .orElseThrow(() -> new NoSuchElementException("Unknown upload " + uploadId));
+        if (offset != upload.getOffset()) {
+            throw new IllegalStateException("Upload-Offset " + offset + " does not match the current offset " + upload.getOffset());
+        }
+        long end = offset + chunkLength;
+        if (chunkLength <= 0 || end > upload.getLength()) {
+            throw new IllegalArgumentException("A chunk of " + chunkLength + " bytes at " + offset
+                    + " does not fit an upload of " + upload.getLength() + " bytes.");
+        }
+        boolean last = end == upload.getLength();
+        if (!last && chunkLength < MIN_PART_BYTES) {
+            throw new IllegalArgumentException("Chunks must be at least " + MIN_PART_BYTES / MB + " MB, except the last one.");
+        }
+        if (chunkLength > maxChunkSizeMb * MB) {
+            throw new IllegalArgumentException("Chunks must be at most " + maxChunkSizeMb + " MB.");
+        }
+
+        String partObjectName = store.newPartObjectName(uploadId);
+        minioClient.putObject(
+                PutObjectArgs.builder()
+                        .bucket(rawBucketName)
+                        .object(partObjectName)
+                        .stream(body, chunkLength, -1)
+                        .build()
+        );
+        ResumableUpload.Part part = new ResumableUpload.Part(partObjectName, chunkLength);
+        upload.getParts().add(part);
+        try {
+            // A chunk counts once this is written; for the last one it also claims the completion
+            store.save(upload);
+        } catch (IllegalStateException e) {
+            store.deletePart(uploadId, partObjectName); // Lost the race, the other request's chunk counts
+            throw new IllegalStateException("Another chunk of upload " + uploadId + " was stored first", e);
+        }
+        if (!last) {
+            log.debug("Upload {}: stored part {}, {} of {} bytes", uploadId, upload.getParts().size(), end, upload.getLength());
+            return new ChunkResult(end, null);
+        }
+        try {
+            complete(upload);
+        } catch (IllegalArgumentException e) {
+            throw e; // Not audio, the upload is gone
+        } catch (Exception e) {
+            // Give the last chunk back, so the client can resend it
+            upload.getParts().remove(part);
+            try {
+                store.save(upload);
+                store.deletePart(uploadId, partObjectName);
+            } catch (Exception rollback) {
+                log.warn("Upload {}: could not reopen after failed completion: {}", uploadId, rollback.getMessage());
+            }
+            throw e;
+        }
+        return new ChunkResult(end, upload.getAudioId());
+    }
+
+    private void complete(ResumableUpload upload) throws Exception {
+        String relativeObjectName = String.format("%s/%s", upload.getAudioId(), upload.getFileName());
+        List<ComposeSource> sources = new ArrayList<>();
+        for (ResumableUpload.Part part : upload.getParts()) {
+            sources.add(
+                    ComposeSource.builder()
+                            .bucket(rawBucketName)
+                            .object(part.getObjectName())
+                            .build()
+            );
+        }
+        ComposeObjectArgs.Builder compose = ComposeObjectArgs.builder()
+                .bucket(rawBucketName)
+                .object(relativeObjectName)
+                .sources(sources);
+        if (upload.getContentType() != null) {
+            compose.headers(Map.of("Content-Type", upload.getContentType()));
+        }
+        minioClient.composeObject(compose.build());
+        log.info("Upload {}: composed {} parts into {}", upload.getUploadId(), sources.size(), relativeObjectName);
+
+        StoredAudioInspector.Inspection inspection = inspector.inspect(
+                relativeObjectName, upload.getLength(), upload.getFileName()
+        );
+        AudioValidationResult validationResult = inspection.validation();
+        if (!validationResult.isValid()) {
+            log.warn("Audio validation failed for file [{}]: {}", upload.getFileName(), validationResult.getMessage());
+            minioClient.removeObject(
+                    RemoveObjectArgs.builder()
+                            .bucket(rawBucketName)
+                            .object(relativeObjectName)
+                            .build()
+            );
+            store.delete(upload);
+            throw new IllegalArgumentException("Audio validation failed: " + validationResult.getMessage());
+        }
+        log.info("Audio validation passed for file [{}]. Format: {}, Duration: {}s",
+                upload.getFileName(), validationResult.getFormat(), validationResult.getDurationSeconds());
+
+        uploadService.publishUploaded(
+                upload.getAudioId(), relativeObjectName, upload.getFileName(), inspection.contentHash(),
+                validationResult.getDurationSeconds(), upload.getUploaderId(), upload.getPriority()
+        );
+        store.delete(upload);
+    }
+
+    private boolean isExpired(ResumableUpload upload) {
+        return upload.getCreatedAt().plus(Duration.ofHours(expiryHours)).isBefore(Instant.now());
+    }
+}
@@ -0,0 +1,138 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.RemoveObjectsArgs;
+import io.minio.Result;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.DeleteError;
+import io.minio.messages.DeleteObject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps resumable uploads in the raw bucket under {@value #PREFIX}{uploadId}/:
+ * a small state object plus one staged object per chunk. Nothing is held in
+ * memory between requests, so any instance can take the next chunk. The state
+ * is only overwritten if it still has the ETag it was read with, so of two
+ * requests storing a chunk at the same offset only one is recorded. Objects
+ * of abandoned uploads expire through the raw bucket's lifecycle rules
+ * (minio-init/raw-audio-lifecycle.json).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ResumableUploadStore {
+
+    static final String PREFIX = "_resumable/";
+    private static final String STATE_OBJECT = "upload.json";
+
+    private final MinioClient minioClient;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.minio.bucket.raw}")
+    private String rawBucketName;
+
+    /**
+     * Writes the state. An upload that was read from the store is only written
+     * if nobody else has written it since.
+     *
+     * @throws IllegalStateException if another request changed the upload meanwhile
+     */
+    public void save(ResumableUpload upload) throws Exception {
+        byte[] json = objectMapper.writeValueAsBytes(upload);
+        PutObjectArgs.Builder args = PutObjectArgs.builder()
+                .bucket(rawBucketName)
+                .object(PREFIX + upload.getUploadId() + "/" + STATE_OBJECT)
+                .stream(new ByteArrayInputStream(json), json.length, -1)
+                .contentType("application/json");
+        if (upload.getStateEtag() != null) {
+            args.headers(Map.of("If-Match", upload.getStateEtag()));
+        }
+        try {
+            ObjectWriteResponse response = minioClient.putObject(args.build());
+            upload.setStateEtag(response.etag());
+        } catch (ErrorResponseException e) {
+            if ("PreconditionFailed".equals(e.errorResponse().code())) {
+                throw new IllegalStateException("Upload " + upload.getUploadId() + " was changed by another request", e);
+            }
+            throw e;
+        }
+    }
+
+    public Optional<ResumableUpload> find(String uploadId) throws Exception {
+        try (GetObjectResponse state = minioClient.getObject(
+                GetObjectArgs.builder()
+                        .bucket(rawBucketName)
+                        .object(PREFIX + uploadId + "/" + STATE_OBJECT)
+                        .build()
+        )) {
+            ResumableUpload upload = objectMapper.readValue(state, ResumableUpload.class);
+            upload.setStateEtag(state.headers().get("ETag"));
+            return Optional.of(upload);
+        } catch (ErrorResponseException e) {
+            if ("NoSuchKey".equals(e.errorResponse().code())) {
+                return Optional.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the state and the recorded chunks. Chunks that lost a race were
+     * removed by their request, or are left to the lifecycle rule.
+     */
+    public void delete(ResumableUpload upload) {
+        List<DeleteObject> objects = new ArrayList<>();
+        objects.add(new DeleteObject(PREFIX + upload.getUploadId() + "/" + STATE_OBJECT));
+        for (ResumableUpload.Part part : upload.getParts()) {
+            objects.add(new DeleteObject(part.getObjectName()));
+        }
+        deleteObjects(objects, upload.getUploadId());
+    }
+
+    /**
+     * Removes a staged chunk that was never recorded.
+     */
+    public void deletePart(String uploadId, String objectName) {
+        deleteObjects(List.of(new DeleteObject(objectName)), uploadId);
+    }
+
+    private void deleteObjects(List<DeleteObject> objects, String uploadId) {
+        Iterable<Result<DeleteError>> errors = minioClient.removeObjects(
+                RemoveObjectsArgs.builder()
+                        .bucket(rawBucketName)
+                        .objects(objects)
+                        .build()
+        );
+        try {
+            for (Result<DeleteError> error : errors) { // Lazy, iterating performs the delete
+                DeleteError deleteError = error.get();
+                log.warn("Could not delete {}: {}", deleteError.objectName(), deleteError.message());
+            }
+        } catch (Exception e) {
+            // Leftovers only cost storage, the raw bucket's lifecycle rule on the prefix clears them
+            log.warn("Could not clean up resumable upload {}: {}", uploadId, e.getMessage());
+        }
+    }
+
+    // Unique per request, the order of the parts is the order in the state
+    public String newPartObjectName(String uploadId) {
+        return PREFIX + uploadId + "/part-" + UUID.randomUUID();
+    }
+}
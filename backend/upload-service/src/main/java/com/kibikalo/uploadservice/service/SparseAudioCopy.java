@@ -0,0 +1,156 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a sparse copy of an upload for header parsing: a file of the full size
+ * in which only the container metadata, a window after it and the tail hold real
+ * bytes, the audio in between is a hole. Everything is streamed through one
+ * fixed buffer, so memory per upload doesn't grow with the file.
+ * <ul>
+ *   <li>MP4: every top-level box except the mdat payload (moov may be at either end).</li>
+ *   <li>FLAC: all metadata blocks (pictures included), then the head window.</li>
+ *   <li>ID3v2-tagged files: the whole tag, then the head window.</li>
+ *   <li>Everything else: the head window.</li>
+ * </ul>
+ * The tail window is always copied, Ogg durations come from the last page.
+ */
+final class SparseAudioCopy {
+
+    static final int HEAD_WINDOW_BYTES = 256 * 1024;
+    static final int TAIL_WINDOW_BYTES = 256 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_MP4_BOXES = 64;
+
+    private final InputStream input;
+    private final FileChannel channel;
+    private final long size;
+    private final byte[] buffer = new byte[BUFFER_BYTES];
+    private long position = 0;
+    private long copiedBytes = 0;
+
+    private SparseAudioCopy(InputStream input, FileChannel channel, long size) {
+        this.input = input;
+        this.channel = channel;
+        this.size = size;
+    }
+
+    /**
+     * @param size total size of the upload, the copy has exactly this length
+     * @return bytes actually copied (the rest is a hole)
+     */
+    static long write(InputStream source, long size, Path target) throws IOException {
+        try (
+                InputStream input = new BufferedInputStream(source, BUFFER_BYTES);
+                FileChannel channel = FileChannel.open(
+                        target,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.WRITE
+                )
+        ) {
+            SparseAudioCopy copy = new SparseAudioCopy(input, channel, size);
+            copy.copyLeadingMetadata();
+            copy.copy(HEAD_WINDOW_BYTES);
+            copy.skip(size - TAIL_WINDOW_BYTES - copy.position);
+            copy.copy(size - copy.position);
+            if (channel.size() < size) {
+                channel.write(ByteBuffer.wrap(new byte[1]), size - 1); // Extends the file over the hole
+            }
+            return copy.copiedBytes;
+        }
+    }
+
+    private void copyLeadingMetadata() throws IOException {
+        byte[] magic = peek(12);
+        if (magic.length >= 8 && "ftyp".equals(ascii(magic, 4, 4))) {
+            copyMp4Boxes();
+        } else if (magic.length >= 4 && "fLaC".equals(ascii(magic, 0, 4))) {
+            copyFlacMetadata();
+        } else {
+            copy(Mp3FrameScanner.id3v2Length(magic)); // Album art can make the tag megabytes long
+        }
+    }
+
+    private void copyMp4Boxes() throws IOException {
+        for (int i = 0; i < MAX_MP4_BOXES && position + 8 <= size; i++) {
+            byte[] header = peek(16);
+            if (header.length < 8) {
+                return;
+            }
+            long boxSize = ByteBuffer.wrap(header).getInt(0) & 0xFFFFFFFFL;
+            String type = ascii(header, 4, 4);
+            int headerSize = 8;
+            if (boxSize == 1 && header.length >= 16) {
+                boxSize = ByteBuffer.wrap(header).getLong(8); // 64-bit largesize
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = size - position; // Runs to the end of the file
+            }
+            if (boxSize < headerSize) {
+                return; // Corrupt, leave it to the parser
+            }
+            if ("mdat".equals(type)) {
+                copy(headerSize);
+                skip(boxSize - headerSize);
+            } else {
+                copy(boxSize);
+            }
+        }
+    }
+
+    private void copyFlacMetadata() throws IOException {
+        copy(4);
+        boolean last = false;
+        while (!last && position < size) {
+            byte[] header = peek(4);
+            if (header.length < 4) {
+                return;
+            }
+            last = (header[0] & 0x80) != 0;
+            int length = (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | (header[3] & 0xFF);
+            copy(4L + length);
+        }
+    }
+
+    private byte[] peek(int length) throws IOException {
+        input.mark(length);
+        byte[] bytes = input.readNBytes(length);
+        input.reset();
+        return bytes;
+    }
+
+    private void copy(long length) throws IOException {
+        long remaining = Math.min(length, size - position);
+        while (remaining > 0) {
+            int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Upload ended at byte " + position + " of " + size);
+            }
+            ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, read);
+            while (chunk.hasRemaining()) {
+                position += channel.write(chunk, position);
+            }
+            copiedBytes += read;
+            remaining -= read;
+        }
+    }
+
+    private void skip(long length) throws IOException {
+        long skipped = Math.max(0, Math.min(length, size - position));
+        input.skipNBytes(skipped); // A seek for a disk-backed stream, read through by a TeeInputStream
+        position += skipped;
+    }
+
+    private static String ascii(byte[] bytes, int offset, int length) {
+        return new String(bytes, offset, length, StandardCharsets.US_ASCII);
+    }
+}
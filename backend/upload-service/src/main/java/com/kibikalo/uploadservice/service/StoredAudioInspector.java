@@ -0,0 +1,105 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.minio.GetObjectArgs;
+import io.minio.MinioClient;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Validates an upload that is already an object in the raw bucket, either in
+ * one streamed read that also hashes it (the same sparse copy, digest and frame
+ * counter the request path tees its body into, fed from MinIO instead) or from
+ * ranged reads of just the parts the header parsers need.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class StoredAudioInspector {
+
+    private final MinioClient minioClient;
+    private final AudioValidator audioValidator;
+
+    @Value("${app.minio.bucket.raw}")
+    private String rawBucketName;
+
+    /**
+     * @param contentHash SHA-256 of the object, null unless it is valid and was read in full
+     */
+    public record Inspection(AudioValidationResult validation, String contentHash) {
+    }
+
+    public Inspection inspect(String objectName, long size, String fileName) throws Exception {
+        MessageDigest digest = newSha256();
+        Mp3DurationCounter frameCounter = new Mp3DurationCounter();
+        File sparseCopy = AudioValidator.createTempCopyFile(fileName);
+        try {
+            try (InputStream stored = minioClient.getObject(
+                    GetObjectArgs.builder()
+                            .bucket(rawBucketName)
+                            .object(objectName)
+                            .build()
+            )) {
+                InputStream tee = new TeeInputStream(stored, List.of(
+                        new DigestOutputStream(OutputStream.nullOutputStream(), digest),
+                        frameCounter
+                ));
+                SparseAudioCopy.write(tee, size, sparseCopy.toPath());
+            }
+            AudioValidationResult validation = audioValidator.validateSparseCopy(
+                    sparseCopy, fileName, frameCounter::getDurationMillis
+            );
+            return new Inspection(validation, validation.isValid() ? HexFormat.of().formatHex(digest.digest()) : null);
+        } finally {
+            if (!sparseCopy.delete()) {
+                log.warn("Could not delete temporary validation file: {}", sparseCopy.getAbsolutePath());
+            }
+        }
+    }
+
+    /**
+     * Downloads only the container metadata and the head and tail windows, the
+     * whole object only for VBR MP3s without a Xing header. There is no content
+     * hash, that would take every byte.
+     *
+     * @param etag the object's ETag from its stat, every range must still match it
+     */
+    public Inspection inspectRanged(String objectName, long size, String etag, String fileName) throws Exception {
+        File sparseCopy = AudioValidator.createTempCopyFile(fileName);
+        try {
+            try (InputStream ranged = new RangedObjectInputStream(minioClient, rawBucketName, objectName, etag, size)) {
+                long copied = SparseAudioCopy.write(ranged, size, sparseCopy.toPath());
+                log.debug("Read {} of {} bytes of {} for validation", copied, size, objectName);
+            }
+            AudioValidationResult validation = audioValidator.validateSparseCopy(sparseCopy, fileName, () -> {
+                try (InputStream whole = new RangedObjectInputStream(minioClient, rawBucketName, objectName, etag, size)) {
+                    return Mp3FrameScanner.scanDurationMillis(whole);
+                }
+            });
+            return new Inspection(validation, null);
+        } finally {
+            if (!sparseCopy.delete()) {
+                log.warn("Could not delete temporary validation file: {}", sparseCopy.getAbsolutePath());
+            }
+        }
+    }
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Mandatory in every JRE
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Hands every byte read from the source to each sink, in order. Skips read
+ * through the source instead of seeking, so skipped bytes reach the sinks too:
+ * a reader can jump over the audio it doesn't need while hashing and storage
+ * still see the whole upload.
+ */
+final class TeeInputStream extends FilterInputStream {
+
+    private static final int SKIP_BUFFER_BYTES = 64 * 1024;
+
+    private final List<OutputStream> sinks;
+    private byte[] skipBuffer;
+
+    TeeInputStream(InputStream source, List<OutputStream> sinks) {
+        super(source);
+        this.sinks = sinks;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            for (OutputStream sink : sinks) {
+                sink.write(b);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int read = in.read(bytes, offset, length);
+        if (read > 0) {
+            for (OutputStream sink : sinks) {
+                sink.write(bytes, offset, read);
+            }
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long length) throws IOException {
+        if (skipBuffer == null) {
+            skipBuffer = new byte[SKIP_BUFFER_BYTES];
+        }
+        long skipped = 0;
+        while (skipped < length) {
+            int read = read(skipBuffer, 0, (int) Math.min(skipBuffer.length, length - skipped));
+            if (read == -1) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false; // A reset would tee the same bytes twice
+    }
+
+    @Override
+    public void mark(int readLimit) {
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+}
@@ -0,0 +1,181 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded in-memory pipe from the thread reading an upload to the one writing
+ * it to MinIO. The last byte written is held back until {@link #complete()}, so
+ * the MinIO client can't finish the object before the upload has been validated;
+ * after {@link #abort} its next read fails and it abandons the multipart upload.
+ * Locks rather than monitors, both ends may run on virtual threads.
+ */
+final class UploadPipe {
+
+    private final byte[] ring;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private int head = 0; // Next byte to read
+    private int count = 0;
+    private int heldByte = -1;
+    private boolean completed = false;
+    private boolean readerClosed = false;
+    private IOException failure;
+
+    UploadPipe(int bufferBytes) {
+        this.ring = new byte[bufferBytes];
+    }
+
+    /**
+     * Writing end. Closing it does nothing, {@link #complete()} or {@link #abort} end the stream.
+     */
+    OutputStream sink() {
+        return new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[] { (byte) b }, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                if (length == 0) {
+                    return;
+                }
+                if (heldByte >= 0) {
+                    put(new byte[] { (byte) heldByte }, 0, 1);
+                }
+                put(bytes, offset, length - 1);
+                heldByte = bytes[offset + length - 1] & 0xFF;
+            }
+        };
+    }
+
+    /**
+     * Reading end, blocks until bytes arrive. Must be closed, a writer blocked on
+     * a full pipe fails instead of waiting forever.
+     */
+    InputStream source() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                byte[] single = new byte[1];
+                return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) throws IOException {
+                return take(bytes, offset, length);
+            }
+
+            @Override
+            public void close() {
+                lock.lock();
+                try {
+                    readerClosed = true;
+                    notFull.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+            }
+        };
+    }
+
+    /**
+     * Releases the held-back byte and ends the stream after it.
+     */
+    void complete() throws IOException {
+        if (heldByte >= 0) {
+            put(new byte[] { (byte) heldByte }, 0, 1);
+            heldByte = -1;
+        }
+        lock.lock();
+        try {
+            completed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Fails the reader's next read with the given cause.
+     */
+    void abort(IOException cause) {
+        lock.lock();
+        try {
+            if (failure == null) {
+                failure = cause;
+            }
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(byte[] bytes, int offset, int length) throws IOException {
+        lock.lock();
+        try {
+            while (length > 0) {
+                while (count == ring.length && !readerClosed && failure == null) {
+                    await(notFull);
+                }
+                if (failure != null) {
+                    throw new IOException("Upload aborted: " + failure.getMessage(), failure);
+                }
+                if (readerClosed) {
+                    throw new IOException("Storage upload stopped reading");
+                }
+                int tail = (head + count) % ring.length;
+                int chunk = Math.min(length, Math.min(ring.length - count, ring.length - tail));
+                System.arraycopy(bytes, offset, ring, tail, chunk);
+                count += chunk;
+                offset += chunk;
+                length -= chunk;
+                notEmpty.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int take(byte[] bytes, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        lock.lock();
+        try {
+            while (count == 0 && !completed && failure == null) {
+                await(notEmpty);
+            }
+            if (failure != null) {
+                throw new IOException("Upload aborted: " + failure.getMessage(), failure);
+            }
+            if (count == 0) {
+                return -1;
+            }
+            int chunk = Math.min(length, Math.min(count, ring.length - head));
+            System.arraycopy(ring, head, bytes, offset, chunk);
+            head = (head + chunk) % ring.length;
+            count -= chunk;
+            notFull.signal();
+            return chunk;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void await(Condition condition) throws InterruptedIOException {
+        try {
+            condition.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting on the upload pipe");
+        }
+    }
+}
@@ -1,26 +1,53 @@
 package com.kibikalo.uploadservice.service;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.kibikalo.shared.events.AudioUploadedEvent;
+import com.kibikalo.shared.model.EncodingPriority;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import io.minio.MinioClient;
 import io.minio.PutObjectArgs;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Stores uploads in the raw bucket and announces them. The body is read once:
+ * a {@link TeeInputStream} feeds the validator's sparse copy, a SHA-256 digest,
+ * an MP3 frame counter and an {@link UploadPipe} that MinIO streams from as a
+ * multipart upload. The pipe holds back the last byte until validation passes,
+ * a rejected upload never becomes an object.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class UploadService {
 
+    private static final long MB = 1024 * 1024;
+
     private final MinioClient minioClient;
     private final KafkaTemplate<String, AudioUploadedEvent> kafkaTemplate;
     private final AudioValidator audioValidator;
@@ -31,81 +58,234 @@ public class UploadService {
     @Value("${app.kafka.topic.audio-uploaded}")
     private String audioUploadedTopic;
 
-    public String uploadAudio(MultipartFile file) {
-        log.info("Received upload request for file: {}", file.getOriginalFilename());
+    @Value("${app.upload.streaming.max-size-mb}")
+    private long maxSizeMb;
+
+    @Value("${app.upload.streaming.pipe-buffer-kb}")
+    private int pipeBufferKb; // Bytes read ahead of MinIO, per upload
+
+    // putObject blocks on the pipe, so each upload gets a cheap virtual thread
+    private ExecutorService storageExecutor;
+
+    @PostConstruct
+    void init() {
+        storageExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    }
 
-        // Step 1: Validate the File
-        AudioValidationResult validationResult = audioValidator.validate(file);
-        if (!validationResult.isValid()) {
-            log.warn("Audio validation failed for file [{}]: {}", file.getOriginalFilename(), validationResult.getMessage());
-            throw new IllegalArgumentException("Audio validation failed: " + validationResult.getMessage());
+    public String uploadAudio(MultipartFile file, String uploaderId, EncodingPriority priority) {
+        log.info("Received upload request for file: {}", file.getOriginalFilename());
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Audio validation failed: File is empty or null.");
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            return uploadAudioStream(
+                    inputStream, file.getSize(), file.getOriginalFilename(), file.getContentType(), uploaderId, priority
+            );
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to process audio upload", e);
         }
-        log.info("Audio validation passed for file [{}]. Format: {}, Duration: {}s",
-                file.getOriginalFilename(), validationResult.getFormat(), validationResult.getDurationSeconds());
+    }
 
-        String originalFileName = StringUtils.cleanPath(
-                file.getOriginalFilename() != null
-                        ? file.getOriginalFilename()
-                        : "unknown"
-        );
+    /**
+     * Validates, hashes and stores an upload in a single pass over its body.
+     *
+     * @param body exactly {@code size} bytes, consumed and closed
+     * @throws IllegalArgumentException if the upload is empty, too large or not valid audio
+     */
+    public String uploadAudioStream(
+            InputStream body,
+            long size,
+            String fileName,
+            String contentType,
+            String uploaderId,
+            EncodingPriority priority
+    ) {
+        AudioUploadedEvent event = storeAudioStream(body, size, fileName, contentType, uploaderId, priority);
+        publish(event);
+        return event.getAudioId(); // Return the generated ID
+    }
+
+    /**
+     * {@link #uploadAudioStream} without the publish, for callers that send events in bulk.
+     *
+     * @return the event announcing the stored upload, not yet sent
+     */
+    AudioUploadedEvent storeAudioStream(
+            InputStream body,
+            long size,
+            String fileName,
+            String contentType,
+            String uploaderId,
+            EncodingPriority priority
+    ) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Audio validation failed: File is empty or null.");
+        }
+        if (size > maxSizeMb * MB) {
+            throw new IllegalArgumentException("Upload of " + size + " bytes exceeds the limit of " + maxSizeMb + " MB.");
+        }
+        String originalFileName = StringUtils.cleanPath(fileName != null ? fileName : "unknown");
         String audioId = UUID.randomUUID().toString();
 
         // --- Define RELATIVE object name ---
         String relativeObjectName = String.format("%s/%s", audioId, originalFileName);
 
-        try (InputStream inputStream = file.getInputStream()) {
-            log.info(
-                    "Uploading file '{}' to MinIO bucket '{}' as '{}'",
-                    originalFileName,
-                    rawBucketName, // Use the bucket name variable
-                    relativeObjectName // Use the relative object name
-            );
-
-            // Step 2: Upload file to MinIO
-            log.info("--- UPLOAD DEBUG ---");
-            log.info("Using Bucket Name: '{}'", rawBucketName); // Log the bucket name value
-            log.info("Using Object Key : '{}'", relativeObjectName); // Log the object key value
-            log.info("Target Full Path (Expected): {}/{}", rawBucketName, relativeObjectName);
-            log.info("Uploading file '{}' to MinIO...", originalFileName);
-            minioClient.putObject(
-                    PutObjectArgs.builder()
-                            .bucket(rawBucketName) // Specify bucket
-                            .object(relativeObjectName) // Specify RELATIVE object key
-                            .stream(inputStream, file.getSize(), -1) // -1 part size for auto
-                            .contentType(file.getContentType()) // Store content type
-                            .build()
-            );
+        UploadPipe pipe = new UploadPipe(pipeBufferKb * 1024);
+        log.info("Streaming file '{}' to MinIO bucket '{}' as '{}'", originalFileName, rawBucketName, relativeObjectName);
+        Future<?> storage = storageExecutor.submit(() -> {
+            try (InputStream source = pipe.source()) {
+                minioClient.putObject(
+                        PutObjectArgs.builder()
+                                .bucket(rawBucketName) // Specify bucket
+                                .object(relativeObjectName) // Specify RELATIVE object key
+                                .stream(source, size, -1) // -1 part size for auto
+                                .contentType(contentType) // Store content type
+                                .build()
+                );
+            }
+            return null;
+        });
 
-            log.info("File uploaded successfully to MinIO: {}", relativeObjectName);
+        File sparseCopy = null;
+        try {
+            // Step 1: One pass over the body, every consumer sees each byte as it arrives
+            MessageDigest digest = newSha256();
+            Mp3DurationCounter frameCounter = new Mp3DurationCounter();
+            sparseCopy = AudioValidator.createTempCopyFile(originalFileName);
+            InputStream tee = new TeeInputStream(body, List.of(
+                    pipe.sink(),
+                    new DigestOutputStream(OutputStream.nullOutputStream(), digest),
+                    frameCounter
+            ));
+            long copied = SparseAudioCopy.write(tee, size, sparseCopy.toPath());
+            log.debug("Copied {} of {} bytes for validation", copied, size);
 
-            // Step 3: Create event payload (use the RELATIVE path)
-            AudioUploadedEvent event = new AudioUploadedEvent(
-                    audioId,
-                    relativeObjectName, // Use the relative path for the event
-                    originalFileName,
-                    Instant.now()
+            // Step 2: Validate, then let MinIO finish or abandon the object
+            AudioValidationResult validationResult = audioValidator.validateSparseCopy(
+                    sparseCopy, originalFileName, frameCounter::getDurationMillis
             );
+            if (!validationResult.isValid()) {
+                log.warn("Audio validation failed for file [{}]: {}", originalFileName, validationResult.getMessage());
+                pipe.abort(new IOException("Audio validation failed"));
+                awaitAbandoned(storage);
+                throw new IllegalArgumentException("Audio validation failed: " + validationResult.getMessage());
+            }
+            log.info("Audio validation passed for file [{}]. Format: {}, Duration: {}s",
+                    originalFileName, validationResult.getFormat(), validationResult.getDurationSeconds());
+            pipe.complete();
+            storage.get();
 
-            // Publish event to Kafka
-            // Use audioId as the key for partitioning (optional but good practice)
-            kafkaTemplate.send(audioUploadedTopic, audioId, event);
-            log.info(
-                    "Published AudioUploadedEvent for audioId: {} to topic: {}",
-                    audioId,
-                    audioUploadedTopic
-            );
+            String contentHash = HexFormat.of().formatHex(digest.digest());
+            log.info("File uploaded successfully to MinIO: {} (sha256 {})", relativeObjectName, contentHash);
 
-            return audioId; // Return the generated ID
+            // Step 3: Event payload (use the RELATIVE path)
+            return newUploadedEvent(
+                    audioId, relativeObjectName, originalFileName, contentHash,
+                    validationResult.getDurationSeconds(), uploaderId, priority
+            );
 
+        } catch (IllegalArgumentException e) {
+            throw e;
         } catch (Exception e) {
+            pipe.abort(new IOException("Upload pipeline failed", e));
+            awaitAbandoned(storage);
             log.error(
-                    "Error uploading file '{}' or publishing event: {}",
+                    "Error uploading file '{}': {}",
                     originalFileName,
                     e.getMessage(),
                     e
             );
-            // Consider specific exception handling (MinIO vs Kafka vs IO)
             throw new RuntimeException("Failed to process audio upload", e);
+        } finally {
+            if (sparseCopy != null && !sparseCopy.delete()) {
+                log.warn("Could not delete temporary validation file: {}", sparseCopy.getAbsolutePath());
+            }
+        }
+    }
+
+    void publishUploaded(
+            String audioId,
+            String relativeObjectName,
+            String originalFileName,
+            String contentHash,
+            Integer durationSeconds,
+            String uploaderId,
+            EncodingPriority priority
+    ) {
+        publish(newUploadedEvent(
+                audioId, relativeObjectName, originalFileName, contentHash, durationSeconds, uploaderId, priority
+        ));
+    }
+
+    AudioUploadedEvent newUploadedEvent(
+            String audioId,
+            String relativeObjectName,
+            String originalFileName,
+            String contentHash,
+            Integer durationSeconds,
+            String uploaderId,
+            EncodingPriority priority
+    ) {
+        return new AudioUploadedEvent(
+                audioId,
+                relativeObjectName, // Use the relative path for the event
+                originalFileName,
+                Instant.now(),
+                contentHash,
+                durationSeconds,
+                uploaderId,
+                priority
+        );
+    }
+
+    private void publish(AudioUploadedEvent event) {
+        // Publish event to Kafka
+        // Use audioId as the key for partitioning (optional but good practice)
+        kafkaTemplate.send(audioUploadedTopic, event.getAudioId(), event);
+        log.info(
+                "Published AudioUploadedEvent for audioId: {} to topic: {}",
+                event.getAudioId(),
+                audioUploadedTopic
+        );
+    }
+
+    /**
+     * Sends all events, then flushes once so they leave in as few (compressed)
+     * producer batches as possible instead of one request per event.
+     *
+     * @return one send result per event, in order, completed once the broker acknowledged it
+     */
+    List<CompletableFuture<SendResult<String, AudioUploadedEvent>>> publishAll(List<AudioUploadedEvent> events) {
+        List<CompletableFuture<SendResult<String, AudioUploadedEvent>>> sends = new ArrayList<>(events.size());
+        for (AudioUploadedEvent event : events) {
+            sends.add(kafkaTemplate.send(audioUploadedTopic, event.getAudioId(), event));
+        }
+        kafkaTemplate.flush();
+        log.info("Published {} AudioUploadedEvents to topic: {}", events.size(), audioUploadedTopic);
+        return sends;
+    }
+
+    // The aborted putObject fails by design, wait only so no half-written parts outlive the request
+    private void awaitAbandoned(Future<?> storage) {
+        try {
+            storage.get();
+        } catch (ExecutionException e) {
+            log.debug("MinIO upload abandoned: {}", e.getCause().getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
-}
\ No newline at end of file
+
+    private MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Mandatory in every JRE
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        storageExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,142 @@
+package com.kibikalo.uploadservice.service;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.kibikalo.shared.events.AudioUploadedEvent;
+import com.kibikalo.shared.model.EncodingPriority;
+
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchUploadServiceTest {
+
+    @InjectMocks
+    private BatchUploadService batchUploadService;
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private UploadService uploadService;
+
+    @Mock
+    private StoredAudioInspector inspector;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(batchUploadService, "rawBucketName", "raw-audio");
+        ReflectionTestUtils.setField(batchUploadService, "parallelism", 4);
+        ReflectionTestUtils.setField(batchUploadService, "maxItems", 10);
+        ReflectionTestUtils.setField(batchUploadService, "publishTimeoutSeconds", 5L);
+        batchUploadService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        batchUploadService.shutdown();
+    }
+
+    @Test
+    void uploadFilesShouldReportEachItemAndPublishOnce() throws Exception {
+        // Given: one valid and one invalid file
+        MultipartFile valid = new MockMultipartFile("files", "good.mp3", "audio/mpeg", new byte[100]);
+        MultipartFile invalid = new MockMultipartFile("files", "bad.mp3", "audio/mpeg", new byte[50]);
+        AudioUploadedEvent event = new AudioUploadedEvent(
+                "audio-1", "audio-1/good.mp3", "good.mp3", Instant.now(), "hash", 30, "user-1", EncodingPriority.NORMAL
+        );
+        when(uploadService.storeAudioStream(any(), eq(100L), eq("good.mp3"), any(), any(), any())).thenReturn(event);
+        when(uploadService.storeAudioStream(any(), eq(50L), eq("bad.mp3"), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("Audio validation failed: Unsupported audio format"));
+        when(uploadService.publishAll(List.of(event))).thenReturn(List.of(CompletableFuture.completedFuture(null)));
+
+        // When
+        List<BatchUploadService.ItemResult> results = batchUploadService.uploadFiles(
+                List.of(valid, invalid), "user-1", EncodingPriority.NORMAL
+        );
+
+        // Then
+        assertEquals(2, results.size());
+        assertTrue(results.get(0).success());
+        assertEquals("audio-1", results.get(0).audioId());
+        assertFalse(results.get(1).success());
+        assertNull(results.get(1).audioId());
+        assertEquals("Audio validation failed: Unsupported audio format", results.get(1).error());
+        assertFalse(results.get(1).resubmittable());
+        verify(uploadService, times(1)).publishAll(any());
+    }
+
+    @Test
+    void uploadFilesShouldDeleteStoredFileWhoseEventWasNotPublished() throws Exception {
+        // Given: the file is stored, but Kafka rejects its event
+        MultipartFile file = new MockMultipartFile("files", "good.mp3", "audio/mpeg", new byte[100]);
+        AudioUploadedEvent event = new AudioUploadedEvent(
+                "audio-1", "audio-1/good.mp3", "good.mp3", Instant.now(), "hash", 30, "user-1", EncodingPriority.NORMAL
+        );
+        when(uploadService.storeAudioStream(any(), eq(100L), eq("good.mp3"), any(), any(), any())).thenReturn(event);
+        when(uploadService.publishAll(List.of(event)))
+                .thenReturn(List.of(CompletableFuture.failedFuture(new IllegalStateException("Broker unavailable"))));
+
+        // When
+        List<BatchUploadService.ItemResult> results = batchUploadService.uploadFiles(
+                List.of(file), "user-1", EncodingPriority.NORMAL
+        );
+
+        // Then: nothing is left behind, so the item can simply be sent again
+        assertFalse(results.get(0).success());
+        assertNull(results.get(0).audioId());
+        assertTrue(results.get(0).resubmittable());
+        ArgumentCaptor<RemoveObjectArgs> removed = ArgumentCaptor.forClass(RemoveObjectArgs.class);
+        verify(minioClient).removeObject(removed.capture());
+        assertEquals("raw-audio", removed.getValue().bucket());
+        assertEquals("audio-1/good.mp3", removed.getValue().object());
+    }
+
+    @Test
+    void importStagedShouldRejectInternalKeysWithoutReadingThem() throws Exception {
+        // When
+        List<BatchUploadService.ItemResult> results = batchUploadService.importStaged(
+                List.of(new BatchUploadService.StagedItem("_resumable/upload-1/part-00001", null)),
+                "user-1", EncodingPriority.NORMAL
+        );
+
+        // Then
+        assertFalse(results.get(0).success());
+        verifyNoInteractions(minioClient);
+        verify(inspector, never()).inspectRanged(any(), anyLong(), any(), any());
+        verify(uploadService, never()).publishAll(any());
+    }
+
+    @Test
+    void uploadFilesShouldRejectOversizedBatches() {
+        // Given
+        List<MultipartFile> files = Collections.nCopies(
+                11, new MockMultipartFile("files", "a.mp3", "audio/mpeg", new byte[1])
+        );
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class,
+                () -> batchUploadService.uploadFiles(files, "user-1", EncodingPriority.NORMAL));
+    }
+}
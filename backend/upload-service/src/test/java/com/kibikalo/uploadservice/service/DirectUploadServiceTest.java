@@ -0,0 +1,160 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.time.Instant;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kibikalo.shared.model.EncodingPriority;
+
+import io.minio.CopyObjectArgs;
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.RemoveObjectArgs;
+import io.minio.StatObjectArgs;
+import io.minio.StatObjectResponse;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import okhttp3.Headers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DirectUploadServiceTest {
+
+    private static final String STAGED = "_direct/audio-1/upload";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private StoredAudioInspector inspector;
+
+    @Mock
+    private UploadService uploadService;
+
+    private DirectUploadService directUploadService;
+
+    @BeforeEach
+    void setUp() {
+        directUploadService = new DirectUploadService(minioClient, objectMapper, inspector, uploadService);
+        ReflectionTestUtils.setField(directUploadService, "rawBucketName", "raw-audio");
+        ReflectionTestUtils.setField(directUploadService, "accessKey", "minioadmin");
+        ReflectionTestUtils.setField(directUploadService, "secretKey", "minioadmin");
+        ReflectionTestUtils.setField(directUploadService, "publicUrl", "http://localhost:9000");
+        ReflectionTestUtils.setField(directUploadService, "expirySeconds", 3600L);
+        ReflectionTestUtils.setField(directUploadService, "maxSizeMb", 2048L);
+        ReflectionTestUtils.setField(directUploadService, "fullRead", false);
+        directUploadService.init();
+    }
+
+    @Test
+    void ticketShouldOnlyAllowWritingTheStagingKey() throws Exception {
+        // When
+        DirectUploadService.DirectUploadTicket ticket = directUploadService.create("track.mp3", "user-1", EncodingPriority.NORMAL);
+
+        // Then
+        assertEquals("_direct/" + ticket.audioId() + "/upload", ticket.fields().get("key"));
+        assertEquals("http://localhost:9000/raw-audio", ticket.uploadUrl());
+    }
+
+    @Test
+    void completeShouldCopyTheValidatedVersionAndDropTheStagedObject() throws Exception {
+        // Given
+        storedTicket();
+        stagedObject("etag-1");
+        when(inspector.inspectRanged(STAGED, 1000L, "etag-1", "track.mp3")).thenReturn(
+                new StoredAudioInspector.Inspection(AudioValidationResult.success("MP3", 30), null)
+        );
+
+        // When
+        String audioId = directUploadService.complete("audio-1");
+
+        // Then: copied only if the staged object is still the one that was validated
+        assertEquals("audio-1", audioId);
+        ArgumentCaptor<CopyObjectArgs> copy = ArgumentCaptor.forClass(CopyObjectArgs.class);
+        verify(minioClient).copyObject(copy.capture());
+        assertEquals("audio-1/track.mp3", copy.getValue().object());
+        assertEquals(STAGED, copy.getValue().source().object());
+        assertEquals("etag-1", copy.getValue().source().matchETag());
+        verify(minioClient).removeObject(argThat((RemoveObjectArgs args) -> args.object().equals(STAGED)));
+        verify(uploadService).publishUploaded(
+                "audio-1", "audio-1/track.mp3", "track.mp3", null, 30, "user-1", EncodingPriority.NORMAL
+        );
+    }
+
+    @Test
+    void completeShouldNotPublishWhenTheStagedObjectWasReplacedDuringValidation() throws Exception {
+        // Given
+        storedTicket();
+        stagedObject("etag-1");
+        when(inspector.inspectRanged(anyString(), anyLong(), anyString(), anyString())).thenReturn(
+                new StoredAudioInspector.Inspection(AudioValidationResult.success("MP3", 30), null)
+        );
+        ErrorResponse error = new ErrorResponse(
+                "PreconditionFailed", "At least one of the pre-conditions you specified did not hold",
+                "raw-audio", STAGED, null, null, null
+        );
+        when(minioClient.copyObject(any(CopyObjectArgs.class))).thenThrow(new ErrorResponseException(error, null, null));
+
+        // When / Then: the ticket stays, so completing again validates the new version
+        assertThrows(IllegalStateException.class, () -> directUploadService.complete("audio-1"));
+        verify(uploadService, never()).publishUploaded(any(), any(), any(), any(), any(), any(), any());
+        verify(minioClient, never()).removeObject(any());
+    }
+
+    @Test
+    void completeShouldDeleteAStagedObjectThatIsNotAudio() throws Exception {
+        // Given
+        storedTicket();
+        stagedObject("etag-1");
+        when(inspector.inspectRanged(anyString(), anyLong(), anyString(), anyString())).thenReturn(
+                new StoredAudioInspector.Inspection(AudioValidationResult.failure("Unsupported audio format"), null)
+        );
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> directUploadService.complete("audio-1"));
+        verify(minioClient, never()).copyObject(any());
+        verify(minioClient).removeObject(argThat((RemoveObjectArgs args) -> args.object().equals(STAGED)));
+        verify(uploadService, never()).publishUploaded(any(), any(), any(), any(), any(), any(), any());
+    }
+
+    private void storedTicket() throws Exception {
+        DirectUpload upload = new DirectUpload();
+        upload.setAudioId("audio-1");
+        upload.setStagedObjectName(STAGED);
+        upload.setObjectName("audio-1/track.mp3");
+        upload.setFileName("track.mp3");
+        upload.setUploaderId("user-1");
+        upload.setPriority(EncodingPriority.NORMAL);
+        upload.setCreatedAt(Instant.now());
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of(),
+                "raw-audio",
+                null,
+                "_direct/audio-1.json",
+                new ByteArrayInputStream(objectMapper.writeValueAsBytes(upload))
+        ));
+    }
+
+    private void stagedObject(String etag) throws Exception {
+        StatObjectResponse stat = mock(StatObjectResponse.class);
+        when(stat.size()).thenReturn(1000L);
+        when(stat.etag()).thenReturn(etag);
+        when(minioClient.statObject(argThat((StatObjectArgs args) -> args.object().equals(STAGED)))).thenReturn(stat);
+    }
+}
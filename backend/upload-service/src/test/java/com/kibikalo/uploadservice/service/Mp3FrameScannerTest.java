@@ -0,0 +1,79 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class Mp3FrameScannerTest {
+
+    // MPEG-1 Layer III, 44.1 kHz, no padding
+    private static byte[] frame(int bitrateIndex, String marker) {
+        int header = 0xFFFB0000 | bitrateIndex << 12;
+        byte[] frame = new byte[Mp3FrameScanner.parseHeader(header).length()];
+        ByteBuffer.wrap(frame).putInt(header);
+        if (marker != null) {
+            System.arraycopy(marker.getBytes(), 0, frame, 36, 4);
+        }
+        return frame;
+    }
+
+    @Test
+    void parseHeaderShouldComputeFrameLength() {
+        // When
+        Mp3FrameScanner.Frame frame = Mp3FrameScanner.parseHeader(0xFFFB9000); // 128 kbit/s
+
+        // Then
+        assertEquals(128, frame.bitrateKbps());
+        assertEquals(44100, frame.sampleRate());
+        assertEquals(1152, frame.samples());
+        assertEquals(417, frame.length());
+        assertNull(Mp3FrameScanner.parseHeader(0x74657374)); // "test"
+    }
+
+    @Test
+    void needsFrameScanShouldDetectVbrWithoutXingHeader() {
+        // Given
+        ByteArrayOutputStream cbr = new ByteArrayOutputStream();
+        ByteArrayOutputStream vbr = new ByteArrayOutputStream();
+        ByteArrayOutputStream tagged = new ByteArrayOutputStream();
+        tagged.writeBytes(frame(9, "Xing"));
+        for (int i = 0; i < 40; i++) {
+            cbr.writeBytes(frame(9, null));
+            vbr.writeBytes(frame(i % 3 == 0 ? 9 : 11, null));
+            tagged.writeBytes(frame(i % 3 == 0 ? 9 : 11, null));
+        }
+
+        // When / Then
+        assertFalse(Mp3FrameScanner.needsFrameScan(cbr.toByteArray()));
+        assertTrue(Mp3FrameScanner.needsFrameScan(vbr.toByteArray()));
+        assertFalse(Mp3FrameScanner.needsFrameScan(tagged.toByteArray()));
+        assertFalse(Mp3FrameScanner.needsFrameScan("test-content".getBytes()));
+    }
+
+    @Test
+    void scanDurationMillisShouldSkipId3TagAndCountFrames() throws Exception {
+        // Given: 300-byte ID3v2 tag and 1000 frames of 1152 samples
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        byte[] tag = new byte[310];
+        tag[0] = 'I';
+        tag[1] = 'D';
+        tag[2] = '3';
+        tag[8] = 2;
+        tag[9] = 44;
+        file.writeBytes(tag);
+        for (int i = 0; i < 1000; i++) {
+            file.writeBytes(frame(i % 2 == 0 ? 9 : 11, null));
+        }
+
+        // When
+        long millis = Mp3FrameScanner.scanDurationMillis(new ByteArrayInputStream(file.toByteArray()));
+
+        // Then
+        assertEquals(310, Mp3FrameScanner.id3v2Length(tag));
+        assertEquals(Math.round(1000 * 1152 * 1000.0 / 44100), millis);
+    }
+}
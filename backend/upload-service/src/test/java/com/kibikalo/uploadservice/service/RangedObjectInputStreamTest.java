@@ -0,0 +1,64 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import okhttp3.Headers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RangedObjectInputStreamTest {
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Test
+    void longSkipsShouldOpenANewRange() throws Exception {
+        // Given: a 10 MB object served from whatever offset is asked for
+        byte[] object = new byte[10 * 1024 * 1024];
+        for (int i = 0; i < object.length; i++) {
+            object[i] = (byte) (i / 1000);
+        }
+        List<GetObjectArgs> requests = new ArrayList<>();
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenAnswer(invocation -> {
+            GetObjectArgs args = invocation.getArgument(0);
+            requests.add(args);
+            int offset = args.offset().intValue();
+            return new GetObjectResponse(Headers.of(), "raw-audio", "", "audio-1/track.mp3",
+                    new ByteArrayInputStream(object, offset, object.length - offset));
+        });
+
+        // When: read the head, skip most of the object, read the tail
+        byte[] head;
+        byte[] tail;
+        try (InputStream ranged = new RangedObjectInputStream(
+                minioClient, "raw-audio", "audio-1/track.mp3", "etag", object.length
+        )) {
+            head = ranged.readNBytes(4096);
+            ranged.skipNBytes(object.length - 8192);
+            tail = ranged.readAllBytes();
+        }
+
+        // Then
+        assertArrayEquals(Arrays.copyOfRange(object, 0, 4096), head);
+        assertArrayEquals(Arrays.copyOfRange(object, object.length - 4096, object.length), tail);
+        assertEquals(2, requests.size());
+        assertEquals(0L, requests.get(0).offset());
+        assertEquals(object.length - 4096L, requests.get(1).offset());
+        assertEquals("etag", requests.get(1).matchETag());
+    }
+}
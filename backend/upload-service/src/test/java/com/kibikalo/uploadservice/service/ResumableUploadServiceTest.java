@@ -0,0 +1,174 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kibikalo.shared.model.EncodingPriority;
+
+import io.minio.ComposeObjectArgs;
+import io.minio.MinioClient;
+import io.minio.PutObjectArgs;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResumableUploadServiceTest {
+
+    private static final long MB = 1024 * 1024;
+
+    @InjectMocks
+    private ResumableUploadService resumableUploadService;
+
+    @Mock
+    private MinioClient minioClient;
+
+    @Mock
+    private ResumableUploadStore store;
+
+    @Mock
+    private StoredAudioInspector inspector;
+
+    @Mock
+    private UploadService uploadService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(resumableUploadService, "rawBucketName", "raw-audio");
+        ReflectionTestUtils.setField(resumableUploadService, "maxSizeMb", 2048L);
+        ReflectionTestUtils.setField(resumableUploadService, "maxChunkSizeMb", 64L);
+        ReflectionTestUtils.setField(resumableUploadService, "expiryHours", 24L);
+    }
+
+    private ResumableUpload upload(long length, Long... partSizes) {
+        ResumableUpload upload = new ResumableUpload();
+        upload.setUploadId("upload-1");
+        upload.setAudioId("audio-1");
+        upload.setFileName("track.mp3");
+        upload.setLength(length);
+        upload.setUploaderId("user-1");
+        upload.setPriority(EncodingPriority.NORMAL);
+        upload.setCreatedAt(Instant.now());
+        for (int i = 0; i < partSizes.length; i++) {
+            upload.getParts().add(new ResumableUpload.Part("_resumable/upload-1/part-" + i, partSizes[i]));
+        }
+        return upload;
+    }
+
+    @Test
+    void appendChunkShouldRejectAWrongOffset() throws Exception {
+        // Given
+        when(store.find("upload-1")).thenReturn(Optional.of(upload(20 * MB, 5 * MB)));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> resumableUploadService.appendChunk(
+                "upload-1", 0, 5 * MB, new ByteArrayInputStream(new byte[0])
+        ));
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void appendChunkShouldRejectSmallChunksBeforeTheLast() throws Exception {
+        // Given
+        when(store.find("upload-1")).thenReturn(Optional.of(upload(20 * MB)));
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> resumableUploadService.appendChunk(
+                "upload-1", 0, 1024, new ByteArrayInputStream(new byte[1024])
+        ));
+        verify(minioClient, never()).putObject(any(PutObjectArgs.class));
+    }
+
+    @Test
+    void appendChunkShouldCompleteAndPublishOnTheLastChunk() throws Exception {
+        // Given: 5 MB already stored, the last 1000 bytes arrive
+        ResumableUpload upload = upload(5 * MB + 1000, 5 * MB);
+        when(store.find("upload-1")).thenReturn(Optional.of(upload));
+        when(store.newPartObjectName("upload-1")).thenReturn("_resumable/upload-1/part-last");
+        when(inspector.inspect("audio-1/track.mp3", 5 * MB + 1000, "track.mp3")).thenReturn(
+                new StoredAudioInspector.Inspection(AudioValidationResult.success("MP3", 30), "hash")
+        );
+
+        // When
+        ResumableUploadService.ChunkResult result = resumableUploadService.appendChunk(
+                "upload-1", 5 * MB, 1000, new ByteArrayInputStream(new byte[1000])
+        );
+
+        // Then
+        assertEquals(5 * MB + 1000, result.offset());
+        assertEquals("audio-1", result.audioId());
+        verify(minioClient).composeObject(any(ComposeObjectArgs.class));
+        verify(uploadService).publishUploaded(
+                "audio-1", "audio-1/track.mp3", "track.mp3", "hash", 30, "user-1", EncodingPriority.NORMAL
+        );
+        verify(store).save(upload); // Claims the completion
+        verify(store).delete(upload);
+    }
+
+    @Test
+    void appendChunkShouldDropAnUploadThatFailsValidation() throws Exception {
+        // Given
+        ResumableUpload upload = upload(1000);
+        when(store.find("upload-1")).thenReturn(Optional.of(upload));
+        when(store.newPartObjectName("upload-1")).thenReturn("_resumable/upload-1/part-1");
+        when(inspector.inspect(anyString(), anyLong(), anyString())).thenReturn(
+                new StoredAudioInspector.Inspection(AudioValidationResult.failure("Unsupported audio format"), null)
+        );
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> resumableUploadService.appendChunk(
+                "upload-1", 0, 1000, new ByteArrayInputStream(new byte[1000])
+        ));
+        verify(store).delete(upload);
+        verify(uploadService, never()).publishUploaded(any(), any(), any(), any(), any(), any(), any());
+        verify(minioClient).removeObject(any());
+    }
+
+    @Test
+    void appendChunkShouldDropItsPartWhenAnotherRequestRecordedTheOffsetFirst() throws Exception {
+        // Given: a request on another instance stored a chunk at the same offset in the meantime
+        ResumableUpload upload = upload(20 * MB, 5 * MB);
+        when(store.find("upload-1")).thenReturn(Optional.of(upload));
+        when(store.newPartObjectName("upload-1")).thenReturn("_resumable/upload-1/part-mine");
+        doThrow(new IllegalStateException("Upload upload-1 was changed by another request")).when(store).save(upload);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> resumableUploadService.appendChunk(
+                "upload-1", 5 * MB, 5 * MB, new ByteArrayInputStream(new byte[0])
+        ));
+        verify(store).deletePart("upload-1", "_resumable/upload-1/part-mine");
+        verify(minioClient, never()).composeObject(any());
+    }
+
+    @Test
+    void appendChunkShouldReopenTheUploadWhenCompletingFails() throws Exception {
+        // Given
+        ResumableUpload upload = upload(5 * MB + 1000, 5 * MB);
+        when(store.find("upload-1")).thenReturn(Optional.of(upload));
+        when(store.newPartObjectName("upload-1")).thenReturn("_resumable/upload-1/part-last");
+        when(minioClient.composeObject(any(ComposeObjectArgs.class))).thenThrow(new IOException("MinIO unavailable"));
+
+        // When / Then
+        assertThrows(IOException.class, () -> resumableUploadService.appendChunk(
+                "upload-1", 5 * MB, 1000, new ByteArrayInputStream(new byte[1000])
+        ));
+        assertEquals(5 * MB, upload.getOffset()); // The client can resend the last chunk
+        verify(store, times(2)).save(upload);
+        verify(store).deletePart("upload-1", "_resumable/upload-1/part-last");
+        verify(uploadService, never()).publishUploaded(any(), any(), any(), any(), any(), any(), any());
+    }
+}
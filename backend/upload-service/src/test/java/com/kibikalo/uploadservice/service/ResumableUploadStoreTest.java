@@ -0,0 +1,87 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.minio.GetObjectArgs;
+import io.minio.GetObjectResponse;
+import io.minio.MinioClient;
+import io.minio.ObjectWriteResponse;
+import io.minio.PutObjectArgs;
+import io.minio.errors.ErrorResponseException;
+import io.minio.messages.ErrorResponse;
+import okhttp3.Headers;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ResumableUploadStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private MinioClient minioClient;
+
+    private ResumableUploadStore store;
+
+    @BeforeEach
+    void setUp() {
+        store = new ResumableUploadStore(minioClient, objectMapper);
+        ReflectionTestUtils.setField(store, "rawBucketName", "raw-audio");
+    }
+
+    @Test
+    void saveShouldOnlyOverwriteTheStateItWasReadFrom() throws Exception {
+        // Given
+        ResumableUpload stored = new ResumableUpload();
+        stored.setUploadId("upload-1");
+        when(minioClient.getObject(any(GetObjectArgs.class))).thenReturn(new GetObjectResponse(
+                Headers.of("ETag", "\"etag-1\""),
+                "raw-audio",
+                null,
+                "_resumable/upload-1/upload.json",
+                new ByteArrayInputStream(objectMapper.writeValueAsBytes(stored))
+        ));
+        ObjectWriteResponse written = mock(ObjectWriteResponse.class);
+        when(written.etag()).thenReturn("etag-2");
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenReturn(written);
+        ResumableUpload upload = store.find("upload-1").orElseThrow();
+
+        // When
+        upload.getParts().add(new ResumableUpload.Part("_resumable/upload-1/part-a", 5));
+        store.save(upload);
+
+        // Then: conditional on what was read, later saves on what was written
+        ArgumentCaptor<PutObjectArgs> put = ArgumentCaptor.forClass(PutObjectArgs.class);
+        verify(minioClient).putObject(put.capture());
+        assertTrue(put.getValue().headers().get("If-Match").contains("\"etag-1\""));
+        assertEquals("etag-2", upload.getStateEtag());
+    }
+
+    @Test
+    void saveShouldReportAConcurrentChangeAsAConflict() throws Exception {
+        // Given
+        ResumableUpload upload = new ResumableUpload();
+        upload.setUploadId("upload-1");
+        upload.setStateEtag("etag-1");
+        ErrorResponse error = new ErrorResponse(
+                "PreconditionFailed", "At least one of the pre-conditions you specified did not hold",
+                "raw-audio", "_resumable/upload-1/upload.json", null, null, null
+        );
+        when(minioClient.putObject(any(PutObjectArgs.class))).thenThrow(new ErrorResponseException(error, null, null));
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> store.save(upload));
+    }
+}
@@ -0,0 +1,85 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SparseAudioCopyTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writeShouldKeepHeadAndTailAndLeaveHoleInBetween() throws Exception {
+        // Given
+        byte[] upload = new byte[3_000_000];
+        new Random(1).nextBytes(upload);
+        Path target = tempDir.resolve("upload.wav");
+        int head = SparseAudioCopy.HEAD_WINDOW_BYTES;
+        int tail = SparseAudioCopy.TAIL_WINDOW_BYTES;
+
+        // When
+        long copied = SparseAudioCopy.write(new ByteArrayInputStream(upload), upload.length, target);
+
+        // Then
+        byte[] copy = Files.readAllBytes(target);
+        assertEquals(upload.length, copy.length);
+        assertEquals(head + tail, copied);
+        assertArrayEquals(Arrays.copyOf(upload, head), Arrays.copyOf(copy, head));
+        assertArrayEquals(
+                Arrays.copyOfRange(upload, upload.length - tail, upload.length),
+                Arrays.copyOfRange(copy, copy.length - tail, copy.length)
+        );
+        assertEquals(0, copy[1_500_000]);
+    }
+
+    @Test
+    void writeShouldCopyMp4BoxesExceptMediaData() throws Exception {
+        // Given: ftyp, 2 MB mdat, then a moov larger than the tail window
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream mp4 = new DataOutputStream(bytes);
+        mp4.writeInt(16);
+        mp4.writeBytes("ftypM4A ");
+        mp4.writeInt(0);
+        mp4.writeInt(8 + 2_000_000);
+        mp4.writeBytes("mdat");
+        mp4.write(new byte[2_000_000]);
+        byte[] moov = new byte[500_000];
+        Arrays.fill(moov, (byte) 7);
+        mp4.writeInt(8 + moov.length);
+        mp4.writeBytes("moov");
+        mp4.write(moov);
+        byte[] upload = bytes.toByteArray();
+        Path target = tempDir.resolve("upload.m4a");
+
+        // When
+        long copied = SparseAudioCopy.write(new ByteArrayInputStream(upload), upload.length, target);
+
+        // Then
+        assertArrayEquals(upload, Files.readAllBytes(target));
+        assertEquals(16 + 8 + 8 + moov.length, copied);
+    }
+
+    @Test
+    void writeShouldCopySmallUploadCompletely() throws Exception {
+        // Given
+        byte[] upload = "test-content".getBytes();
+        Path target = tempDir.resolve("upload.mp3");
+
+        // When
+        long copied = SparseAudioCopy.write(new ByteArrayInputStream(upload), upload.length, target);
+
+        // Then
+        assertEquals(upload.length, copied);
+        assertArrayEquals(upload, Files.readAllBytes(target));
+    }
+}
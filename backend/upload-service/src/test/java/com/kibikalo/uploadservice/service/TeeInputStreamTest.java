@@ -0,0 +1,36 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TeeInputStreamTest {
+
+    @Test
+    void sinksShouldSeeSkippedBytesToo() throws Exception {
+        // Given
+        byte[] body = new byte[200_000];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte) i;
+        }
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        // When: read a little, skip most of it, read the rest
+        try (InputStream tee = new TeeInputStream(new ByteArrayInputStream(body), List.of(first, second))) {
+            assertEquals(0, tee.read());
+            assertEquals(100, tee.readNBytes(100).length);
+            tee.skipNBytes(150_000);
+            assertEquals(body.length - 150_101, tee.readAllBytes().length);
+        }
+
+        // Then
+        assertArrayEquals(body, first.toByteArray());
+        assertArrayEquals(body, second.toByteArray());
+    }
+}
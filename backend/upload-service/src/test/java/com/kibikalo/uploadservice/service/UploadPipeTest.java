@@ -0,0 +1,80 @@
+package com.kibikalo.uploadservice.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadPipeTest {
+
+    private final ExecutorService reader = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        reader.shutdownNow();
+    }
+
+    @Test
+    void readerShouldGetTheLastByteOnlyAfterComplete() throws Exception {
+        // Given: a body much larger than the pipe
+        UploadPipe pipe = new UploadPipe(1024);
+        byte[] body = new byte[100_000];
+        new Random(7).nextBytes(body);
+        Future<byte[]> read = reader.submit(() -> {
+            try (InputStream source = pipe.source()) {
+                return source.readAllBytes();
+            }
+        });
+
+        // When
+        OutputStream sink = pipe.sink();
+        for (int offset = 0; offset < body.length; offset += 4096) {
+            sink.write(body, offset, Math.min(4096, body.length - offset));
+        }
+
+        // Then
+        assertThrows(TimeoutException.class, () -> read.get(200, TimeUnit.MILLISECONDS));
+        pipe.complete();
+        assertArrayEquals(body, read.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void abortShouldFailTheReader() throws Exception {
+        // Given
+        UploadPipe pipe = new UploadPipe(1024);
+        Future<byte[]> read = reader.submit(() -> {
+            try (InputStream source = pipe.source()) {
+                return source.readAllBytes();
+            }
+        });
+        pipe.sink().write(new byte[512]);
+
+        // When
+        pipe.abort(new IOException("Audio validation failed"));
+
+        // Then
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> read.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+    }
+
+    @Test
+    void writerShouldFailOnceTheReaderIsClosed() throws Exception {
+        // Given
+        UploadPipe pipe = new UploadPipe(1024);
+        pipe.source().close();
+
+        // When / Then: a full pipe doesn't block forever
+        assertThrows(IOException.class, () -> pipe.sink().write(new byte[4096]));
+    }
+}
@@ -19,6 +19,14 @@ else
   echo "Bucket already exists: raw-audio"
 fi
 
+# Staged resumable chunks and direct-upload state of abandoned uploads expire after a day.
+# Import replaces the bucket's whole lifecycle configuration, so this is safe to rerun.
+echo "Applying lifecycle rules from /init/raw-audio-lifecycle.json to bucket: raw-audio"
+mc --config-dir /tmp/.mc ilm import local/raw-audio < /init/raw-audio-lifecycle.json
+if [ $? -ne 0 ]; then
+  echo "ERROR: Failed to set lifecycle rules for raw-audio bucket!"
+fi
+
 mc --config-dir /tmp/.mc ls local/processed-audio > /dev/null 2>&1
 if [ $? -ne 0 ]; then
   echo "Creating bucket: processed-audio"